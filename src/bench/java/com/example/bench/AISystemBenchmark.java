@@ -0,0 +1,81 @@
+package com.example.bench;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.joml.Vector3f;
+import org.openjdk.jmh.annotations.*;
+
+import com.example.components.*;
+import com.example.physics.PhysicsWorld;
+import com.example.systems.AISystem;
+
+// One AISystem.update over N patrolling agents, deciding on 1 thread (serial)
+// or on a ForkJoin pool of the given size, with distance-based level of detail
+// on or off.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AISystemBenchmark {
+    private static final float DT = 1.0f / 60.0f;
+
+    @Param({ "100", "1000", "5000" })
+    public int agentCount;
+
+    @Param({ "1", "4" })
+    public int threads;
+
+    @Param({ "true", "false" })
+    public boolean lod;
+
+    private AISystem aiSystem;
+    private ForkJoinPool pool;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        ECSRegistry ecs = new ECSRegistry();
+        PhysicsWorld physicsWorld = new PhysicsWorld();
+
+        // The player stands in the middle of the field, so agents fall into every
+        // level-of-detail tier and the few nearby ones run detection checks.
+        int player = ecs.createEntity();
+        ecs.addComponent(player, new TransformComponent(0.0f, 0.0f, 0.0f));
+
+        Random random = new Random(42);
+        for (int i = 0; i < agentCount; i++) {
+            float x = (random.nextFloat() - 0.5f) * 400.0f;
+            float z = (random.nextFloat() - 0.5f) * 400.0f;
+
+            int agent = ecs.createEntity();
+            ecs.addComponent(agent, new TransformComponent(x, 0.0f, z));
+            ecs.addComponent(agent, new HealthComponent(100));
+            AIComponent ai = new AIComponent();
+            ai.waypoints = new Vector3f[] {
+                    new Vector3f(x, 0.0f, z),
+                    new Vector3f(x + 10.0f, 0.0f, z)
+            };
+            ecs.addComponent(agent, ai);
+        }
+
+        pool = threads > 1 ? new ForkJoinPool(threads) : null;
+        aiSystem = new AISystem(ecs, physicsWorld, player, pool);
+        if (!lod) {
+            aiSystem.setLevelOfDetail(Float.MAX_VALUE, Float.MAX_VALUE);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    @Benchmark
+    public void update() {
+        aiSystem.update(DT);
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.bench;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.example.physics.SpatialHashGrid;
+
+// Bullet-vs-entity AABB testing as done by GameWorld.checkCollisions: the old
+// all-pairs scan against the spatial-hash broadphase, at several populations.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CollisionBenchmark {
+    private static final float WORLD_SIZE = 200.0f;
+    private static final float BULLET_SIZE = 0.2f;
+
+    @Param({ "100", "1000", "2000" })
+    public int bulletCount;
+
+    @Param({ "100", "500" })
+    public int targetCount;
+
+    private float[] bulletX, bulletY, bulletZ;
+    private float[] targetX, targetY, targetZ, targetSize;
+    private SpatialHashGrid grid;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Random random = new Random(42);
+        bulletX = new float[bulletCount];
+        bulletY = new float[bulletCount];
+        bulletZ = new float[bulletCount];
+        for (int i = 0; i < bulletCount; i++) {
+            bulletX[i] = (random.nextFloat() - 0.5f) * WORLD_SIZE;
+            bulletY[i] = random.nextFloat() * 10.0f;
+            bulletZ[i] = (random.nextFloat() - 0.5f) * WORLD_SIZE;
+        }
+
+        targetX = new float[targetCount];
+        targetY = new float[targetCount];
+        targetZ = new float[targetCount];
+        targetSize = new float[targetCount];
+        for (int i = 0; i < targetCount; i++) {
+            targetX[i] = (random.nextFloat() - 0.5f) * WORLD_SIZE;
+            targetY[i] = random.nextFloat() * 10.0f;
+            targetZ[i] = (random.nextFloat() - 0.5f) * WORLD_SIZE;
+            targetSize[i] = 1.0f + random.nextFloat() * 2.0f;
+        }
+
+        grid = new SpatialHashGrid(4.0f);
+    }
+
+    @Benchmark
+    public int bruteForce() {
+        int hits = 0;
+        for (int b = 0; b < bulletCount; b++) {
+            for (int t = 0; t < targetCount; t++) {
+                float half = targetSize[t] / 2 + BULLET_SIZE / 2;
+                if (Math.abs(bulletX[b] - targetX[t]) <= half &&
+                        Math.abs(bulletY[b] - targetY[t]) <= half &&
+                        Math.abs(bulletZ[b] - targetZ[t]) <= half) {
+                    hits++;
+                    break;
+                }
+            }
+        }
+        return hits;
+    }
+
+    // Includes the per-frame rebuild, as checkCollisions pays for it every tick.
+    @Benchmark
+    public int spatialHash() {
+        grid.clear();
+        for (int t = 0; t < targetCount; t++) {
+            float half = targetSize[t] / 2;
+            grid.insert(t, targetX[t] - half, targetY[t] - half, targetZ[t] - half,
+                    targetX[t] + half, targetY[t] + half, targetZ[t] + half);
+        }
+
+        int hits = 0;
+        float half = BULLET_SIZE / 2;
+        for (int b = 0; b < bulletCount; b++) {
+            if (grid.firstOverlap(-1, bulletX[b] - half, bulletY[b] - half, bulletZ[b] - half,
+                    bulletX[b] + half, bulletY[b] + half, bulletZ[b] + half) != -1) {
+                hits++;
+            }
+        }
+        return hits;
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.example.components.*;
+
+// ECSRegistry entity churn, random-access lookups and full iteration.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EcsBenchmark {
+    @Param({ "1000", "10000" })
+    public int entityCount;
+
+    private ECSRegistry ecs;
+    private int[] entities;
+    private ComponentPool<TransformComponent> transforms;
+    private EntityQuery colliderQuery;
+    private TransformComponent spareTransform;
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        ecs = new ECSRegistry();
+        entities = new int[entityCount];
+        for (int i = 0; i < entityCount; i++) {
+            int entity = ecs.createEntity();
+            entities[i] = entity;
+            ecs.addComponent(entity, new TransformComponent(i, 0.0f, -i));
+            if (i % 2 == 0) {
+                ecs.addComponent(entity, new ColliderComponent(1.0f, 1.0f, 1.0f));
+            }
+            if (i % 4 == 0) {
+                ecs.addComponent(entity, new HealthComponent(100));
+            }
+        }
+        transforms = ecs.pool(TransformComponent.class);
+        colliderQuery = ecs.query(TransformComponent.class, ColliderComponent.class);
+        spareTransform = new TransformComponent(0.0f, 0.0f, 0.0f);
+    }
+
+    // One short-lived entity, the way a bullet or explosion is spawned and retired.
+    @Benchmark
+    public int createAndRemove() {
+        int entity = ecs.createEntity();
+        ecs.addComponent(entity, spareTransform);
+        ecs.removeEntity(entity);
+        return entity;
+    }
+
+    @Benchmark
+    public void getComponent(Blackhole blackhole) {
+        for (int entity : entities) {
+            blackhole.consume(ecs.getComponent(entity, TransformComponent.class));
+        }
+    }
+
+    @Benchmark
+    public float iterateQuery() {
+        float sum = 0.0f;
+        for (int i = 0, n = colliderQuery.collect(); i < n; i++) {
+            sum += transforms.get(colliderQuery.entity(i)).x;
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public float iteratePool() {
+        float sum = 0.0f;
+        for (int i = 0; i < transforms.size(); i++) {
+            sum += transforms.componentAt(i).x;
+        }
+        return sum;
+    }
+}
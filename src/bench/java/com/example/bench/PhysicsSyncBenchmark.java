@@ -0,0 +1,74 @@
+package com.example.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.bulletphysics.collision.shapes.SphereShape;
+import com.bulletphysics.dynamics.RigidBody;
+import com.bulletphysics.dynamics.RigidBodyConstructionInfo;
+import com.bulletphysics.linearmath.Transform;
+import com.example.GameWorld;
+import com.example.components.*;
+import com.example.physics.PhysicsWorld;
+import com.example.physics.TrackedMotionState;
+
+// The physics step and the write-back of body positions into TransformComponent,
+// on a headless world with N extra dynamic bodies.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PhysicsSyncBenchmark {
+    private static final float DT = 1.0f / 60.0f;
+
+    @Param({ "100", "1000" })
+    public int bodyCount;
+
+    private GameWorld world;
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        world = new GameWorld(true);
+        ECSRegistry ecs = world.getEcs();
+        SphereShape shape = new SphereShape(0.5f);
+        javax.vecmath.Vector3f inertia = new javax.vecmath.Vector3f();
+        shape.calculateLocalInertia(1.0f, inertia);
+
+        for (int i = 0; i < bodyCount; i++) {
+            float x = (i % 32) * 2.0f;
+            float y = 10.0f + (i / 1024) * 2.0f;
+            float z = ((i / 32) % 32) * 2.0f;
+
+            Transform start = new Transform();
+            start.setIdentity();
+            start.origin.set(x, y, z);
+            RigidBody body = new RigidBody(
+                    new RigidBodyConstructionInfo(1.0f, new TrackedMotionState(start), shape, inertia));
+
+            int entity = ecs.createEntity();
+            ecs.addComponent(entity, new TransformComponent(x, y, z));
+            ecs.addComponent(entity, new PhysicsComponent(body));
+            PhysicsWorld.tagEntity(body, entity);
+            world.getPhysicsWorld().addRigidBody(body);
+        }
+
+        // Publish a first snapshot so syncTransforms has positions to copy.
+        world.getPhysicsWorld().stepSimulation(DT);
+    }
+
+    // Without a new step there is no new frame, so this is the cost of a tick
+    // that finds nothing to copy.
+    @Benchmark
+    public void syncTransforms() {
+        world.syncPhysicsTransforms();
+    }
+
+    @Benchmark
+    public void stepAndSync() {
+        world.getPhysicsWorld().stepSimulation(DT);
+        world.syncPhysicsTransforms();
+    }
+}
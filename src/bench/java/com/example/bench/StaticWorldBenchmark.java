@@ -0,0 +1,87 @@
+package com.example.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.bulletphysics.collision.shapes.BoxShape;
+import com.bulletphysics.collision.shapes.SphereShape;
+import com.bulletphysics.dynamics.RigidBody;
+import com.bulletphysics.dynamics.RigidBodyConstructionInfo;
+import com.bulletphysics.linearmath.Transform;
+import com.example.physics.CollisionLayer;
+import com.example.physics.PhysicsWorld;
+import com.example.physics.StaticGeometry;
+import com.example.physics.TrackedMotionState;
+
+// One physics step on a map of N static boxes with dynamic spheres falling onto
+// it, for each broadphase, with the boxes added one body each or baked into a
+// single static body.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StaticWorldBenchmark {
+    private static final float DT = 1.0f / 60.0f;
+    private static final int DYNAMIC_BODIES = 256;
+    private static final float BOX_SPACING = 4.0f;
+
+    @Param({ "100", "1000", "5000" })
+    public int staticBoxes;
+
+    @Param({ "DBVT", "AXIS_SWEEP" })
+    public PhysicsWorld.Broadphase broadphase;
+
+    @Param({ "false", "true" })
+    public boolean baked;
+
+    private PhysicsWorld world;
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        int side = (int) Math.ceil(Math.sqrt(staticBoxes));
+        float halfSize = side * BOX_SPACING / 2.0f;
+        world = new PhysicsWorld(broadphase, halfSize + 50.0f);
+
+        // A square map of crates on a grid.
+        BoxShape boxShape = new BoxShape(new javax.vecmath.Vector3f(1.0f, 1.0f, 1.0f));
+        StaticGeometry level = new StaticGeometry();
+        for (int i = 0; i < staticBoxes; i++) {
+            float x = (i % side) * BOX_SPACING - halfSize;
+            float z = (i / side) * BOX_SPACING - halfSize;
+            if (baked) {
+                level.addBox(x, 0.0f, z, 1.0f, 1.0f, 1.0f);
+                continue;
+            }
+
+            Transform start = new Transform();
+            start.setIdentity();
+            start.origin.set(x, 0.0f, z);
+            RigidBody box = new RigidBody(
+                    new RigidBodyConstructionInfo(0.0f, new TrackedMotionState(start), boxShape));
+            world.addRigidBody(box, CollisionLayer.STATIC_WORLD);
+        }
+        if (baked) {
+            level.bake(world);
+        }
+
+        SphereShape sphereShape = new SphereShape(0.5f);
+        javax.vecmath.Vector3f inertia = new javax.vecmath.Vector3f();
+        sphereShape.calculateLocalInertia(1.0f, inertia);
+        for (int i = 0; i < DYNAMIC_BODIES; i++) {
+            Transform start = new Transform();
+            start.setIdentity();
+            start.origin.set((i % 16) * BOX_SPACING - 32.0f, 3.0f + (i / 64) * 2.0f, ((i / 16) % 16) * BOX_SPACING - 32.0f);
+            RigidBody sphere = new RigidBody(
+                    new RigidBodyConstructionInfo(1.0f, new TrackedMotionState(start), sphereShape, inertia));
+            world.addRigidBody(sphere, CollisionLayer.ENEMY);
+        }
+    }
+
+    @Benchmark
+    public void step() {
+        world.stepSimulation(DT);
+    }
+}
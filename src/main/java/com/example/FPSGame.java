@@ -1,12 +1,9 @@
 package com.example;
 
+import java.io.IOException;
 import java.nio.FloatBuffer;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Map;
+import java.nio.file.Path;
 
-import org.joml.Math;
-import org.joml.Vector3f;
 import static org.lwjgl.glfw.Callbacks.glfwFreeCallbacks;
 import static org.lwjgl.glfw.GLFW.*;
 import org.lwjgl.glfw.GLFWErrorCallback;
@@ -20,38 +17,42 @@ import static org.lwjgl.opengl.GL30.glGenVertexArrays;
 import org.lwjgl.system.MemoryUtil;
 import static org.lwjgl.system.MemoryUtil.NULL;
 
-import com.bulletphysics.collision.shapes.BoxShape;
-import com.bulletphysics.dynamics.RigidBody;
-import com.bulletphysics.dynamics.RigidBodyConstructionInfo;
-import com.bulletphysics.linearmath.DefaultMotionState;
-import com.bulletphysics.linearmath.Transform;
+import com.example.FrameProfiler.Phase;
 import com.example.components.*;
 import com.example.entities.Camera;
-import com.example.entities.Rifle;
-import com.example.entities.Weapon;
 import com.example.input.PlayerController;
-import com.example.physics.PhysicsWorld;
-import com.example.rendering.Mesh;
+import com.example.rendering.CameraUniformBuffer;
 import com.example.rendering.Renderer;
 import com.example.rendering.ShaderProgram;
 import com.example.rendering.UIRenderer;
-import com.example.systems.AISystem;
 
 public class FPSGame {
+    // Simulation rate and how many ticks a single frame may run to catch up.
+    private static final int TICK_RATE = Integer.getInteger("fps.tickRate", 60);
+    private static final int MAX_TICKS_PER_FRAME = Integer.getInteger("fps.maxTicksPerFrame", 5);
+    // -Dfps.physicsThread=true steps physics on its own thread at the tick rate.
+    private static final boolean PHYSICS_THREAD = Boolean.getBoolean("fps.physicsThread");
+    // Frame profiling is off unless -Dfps.profile=true; F3 writes the recorded
+    // frames to fps.profileOut and prints percentiles.
+    private static final boolean PROFILE = Boolean.getBoolean("fps.profile");
+    private static final int PROFILE_FRAMES = Integer.getInteger("fps.profileFrames", 1024);
+    private static final String PROFILE_OUT = System.getProperty("fps.profileOut", "frame-profile.csv");
+
     private long window;
+    private GameWorld world;
     private ECSRegistry ecs;
-    private PhysicsWorld physicsWorld;
-    private AISystem aiSystem;
+    private ComponentPool<TransformComponent> transforms;
     private PlayerController playerController;
     private UIRenderer uiRenderer;
     private Renderer renderer;
-    private Weapon weapon;
     private Camera camera;
+    private CameraUniformBuffer cameraUniforms;
     private ShaderProgram shader;
-    private Mesh bulletMesh;
-    private Mesh cubeMesh;
     private int playerEntity;
     private float lastFrameTime;
+    private FixedTimestep timestep = new FixedTimestep(TICK_RATE, MAX_TICKS_PER_FRAME);
+    private FrameProfiler profiler = new FrameProfiler(PROFILE_FRAMES, PROFILE);
+    private boolean dumpKeyDown;
 
     private void init() throws Exception {
         GLFWErrorCallback.createPrint(System.err).set();
@@ -81,63 +82,16 @@ public class FPSGame {
         glEnable(GL_BLEND);
         glBlendFunc(GL_SRC_ALPHA, GL_ONE_MINUS_SRC_ALPHA);
 
-        ecs = new ECSRegistry();
-        physicsWorld = new PhysicsWorld();
-        cubeMesh = createCubeMesh();
-        Mesh cylinderMesh = createCylinderMesh(32, 3f, 1f);
-
-        // Create enemy entity
-        int enemyEntity = ecs.createEntity();
-        ecs.addComponent(enemyEntity, new TransformComponent(5.0f, 0.0f, -5.0f));
-        ecs.addComponent(enemyEntity, new MeshComponent(cylinderMesh));
-        ecs.addComponent(enemyEntity, new ColliderComponent(2.0f, 2.0f, 2.0f));
-        ecs.addComponent(enemyEntity, new HealthComponent(100));
-        // ecs.addComponent(enemyEntity, new Weapon.Pistol());
-        AIComponent ai = new AIComponent();
-        ai.waypoints = new Vector3f[] {
-                new Vector3f(5f, 0f, -5f),
-                new Vector3f(-5f, 0f, -5f)
-        };
-        ecs.addComponent(enemyEntity, ai);
-
-        // Initialize AI System
-        aiSystem = new AISystem(ecs, physicsWorld);
-        // Create player entity (used for input and camera)
-        playerEntity = ecs.createEntity();
-        ecs.addComponent(playerEntity, new TransformComponent(0.0f, 0.0f, 3.0f));
-        ecs.addComponent(playerEntity, new ColliderComponent(1.0f, 1.0f, 1.0f));
-        ecs.addComponent(playerEntity, new HealthComponent(100));
+        world = new GameWorld(false);
+        world.setProfiler(profiler);
+        if (PHYSICS_THREAD) {
+            world.startPhysicsThread(timestep.getTickDuration());
+        }
+        ecs = world.getEcs();
+        transforms = ecs.pool(TransformComponent.class);
+        playerEntity = world.getPlayerEntity();
         playerController = new PlayerController(playerEntity, ecs);
 
-        // Create a cube entity as a static scene object
-        // Create a box shape for a wall (dimensions are half-extents)
-        BoxShape wallShape = new BoxShape(new javax.vecmath.Vector3f(5f, 2.5f, 0.5f));
-
-        // Set up the transform for the wall's position
-        Transform wallTransform = new Transform();
-        wallTransform.setIdentity();
-        wallTransform.origin.set(0f, 0f, -10f);
-
-        // Static objects use zero mass
-        float mass = 0f;
-        Vector3f inertia = new Vector3f(0, 0, 0);
-        DefaultMotionState wallMotionState = new DefaultMotionState(wallTransform);
-        RigidBodyConstructionInfo wallRbInfo = new RigidBodyConstructionInfo(mass, wallMotionState, wallShape);
-        RigidBody wallBody = new RigidBody(wallRbInfo);
-
-        // Add the wall body to the physics world
-        physicsWorld.addRigidBody(wallBody);
-
-        int cubeEntity = ecs.createEntity();
-        ecs.addComponent(cubeEntity, new TransformComponent(0.0f, 0.0f, -5.0f));
-        ecs.addComponent(cubeEntity, new MeshComponent(cubeMesh));
-        ecs.addComponent(cubeEntity, new ColliderComponent(1.0f, 1.0f, 1.0f));
-        ecs.addComponent(cubeEntity, new HealthComponent(100));
-        ecs.addComponent(cubeEntity, new PhysicsComponent(wallBody));
-
-        // Create a shared bullet mesh.
-        bulletMesh = createCubeMesh();
-
         // Define the crosshair vertices (two lines crossing at the center)
         float[] crosshairVertices = {
                 -0.02f, 0.0f, // Left end of horizontal line
@@ -164,369 +118,124 @@ public class FPSGame {
         int crosshairEntity = ecs.createEntity();
         ecs.addComponent(crosshairEntity, new UIComponent(uiVAO, 4));
 
-        // Shader sources (vertex shader passes position and color; fragment shader
-        // usesa uniform "alpha")
+        // Shader sources. The model matrix and alpha are per-instance attributes
+        // streamed by the renderer; view and projection come from the shared
+        // Camera uniform block.
         String vertexShaderSource = "#version 330 core\n" +
                 "layout (location = 0) in vec3 aPos;\n" +
                 "layout (location = 1) in vec3 aColor;\n" +
+                "layout (location = 2) in mat4 aModel;\n" +
+                "layout (location = 6) in float aAlpha;\n" +
                 "out vec3 vertexColor;\n" +
-                "uniform mat4 model;\n" +
-                "uniform mat4 view;\n" +
-                "uniform mat4 projection;\n" +
+                "out float vertexAlpha;\n" +
+                "layout (std140) uniform Camera {\n" +
+                "    mat4 view;\n" +
+                "    mat4 projection;\n" +
+                "};\n" +
                 "void main() {\n" +
                 "    vertexColor = aColor;\n" +
-                "    gl_Position = projection * view * model * vec4(aPos, 1.0);\n" +
+                "    vertexAlpha = aAlpha;\n" +
+                "    gl_Position = projection * view * aModel * vec4(aPos, 1.0);\n" +
                 "}\n";
         String fragmentShaderSource = "#version 330 core\n" +
                 "in vec3 vertexColor;\n" +
+                "in float vertexAlpha;\n" +
                 "out vec4 FragColor;\n" +
-                "uniform float alpha;\n" +
                 "void main() {\n" +
-                "    FragColor = vec4(vertexColor, alpha);\n" +
+                "    FragColor = vec4(vertexColor, vertexAlpha);\n" +
                 "}\n";
         shader = new ShaderProgram(vertexShaderSource, fragmentShaderSource);
 
         camera = new Camera(70f, 1280f / 720f, 0.1f, 100f);
 
-        TransformComponent playerTransform = ecs.getComponent(playerEntity, TransformComponent.class);
+        TransformComponent playerTransform = transforms.get(playerEntity);
 
         camera.position.set(playerTransform.x, playerTransform.y, playerTransform.z);
         camera.target.set(0, 0, -1);
 
+        cameraUniforms = new CameraUniformBuffer();
         renderer = new Renderer(shader, camera, ecs);
-        uiRenderer = new UIRenderer();
-        weapon = new Rifle();
+        uiRenderer = new UIRenderer(ecs);
 
         lastFrameTime = (float) glfwGetTime();
     }
 
-    private Mesh createCylinderMesh(int segments, float height, float radius) {
-        List<Float> vertices = new ArrayList<>();
-        List<Integer> indices = new ArrayList<>();
-
-        // Bottom center vertex
-        vertices.add(0f);
-        vertices.add(-height / 2);
-        vertices.add(0f); // Position
-        vertices.add(1f);
-        vertices.add(1f);
-        vertices.add(1f); // Color
-
-        // Bottom circle
-        for (int i = 0; i < segments; i++) {
-            float angle = (float) (2 * Math.PI * i / segments);
-            float x = (float) Math.cos(angle) * radius;
-            float z = (float) Math.sin(angle) * radius;
-            vertices.add(x);
-            vertices.add(-height / 2);
-            vertices.add(z); // Position
-            vertices.add(1f);
-            vertices.add(0f);
-            vertices.add(0f); // Color
-        }
-
-        // Top center vertex
-        vertices.add(0f);
-        vertices.add(height / 2);
-        vertices.add(0f); // Position
-        vertices.add(1f);
-        vertices.add(1f);
-        vertices.add(1f); // Color
-
-        // Top circle
-        for (int i = 0; i < segments; i++) {
-            float angle = (float) (2 * Math.PI * i / segments);
-            float x = (float) Math.cos(angle) * radius;
-            float z = (float) Math.sin(angle) * radius;
-            vertices.add(x);
-            vertices.add(height / 2);
-            vertices.add(z); // Position
-            vertices.add(0f);
-            vertices.add(0f);
-            vertices.add(1f); // Color
-        }
+    private void tick(float dt) {
+        world.beginTick();
+        profiler.begin(Phase.INPUT);
+        playerController.update(window);
+        profiler.end(Phase.INPUT);
+        world.update(dt);
 
-        // Bottom face indices
-        for (int i = 1; i <= segments; i++) {
-            indices.add(0);
-            indices.add(i);
-            indices.add(i % segments + 1);
+        if (glfwGetMouseButton(window, GLFW_MOUSE_BUTTON_LEFT) == GLFW_PRESS) {
+            world.firePlayerWeapon();
         }
-
-        // Top face indices
-        int topCenter = segments + 1;
-        for (int i = 1; i <= segments; i++) {
-            indices.add(topCenter);
-            indices.add(topCenter + i);
-            indices.add(topCenter + (i % segments) + 1);
-        }
-
-        // Side faces
-        for (int i = 1; i <= segments; i++) {
-            int next = (i % segments) + 1;
-            int bottom = i;
-            int top = i + segments + 1;
-            int topNext = next + segments + 1;
-
-            indices.add(bottom);
-            indices.add(next);
-            indices.add(top);
-
-            indices.add(next);
-            indices.add(topNext);
-            indices.add(top);
-        }
-
-        // Convert lists to arrays
-        float[] verticesArray = new float[vertices.size()];
-        int[] indicesArray = new int[indices.size()];
-        for (int i = 0; i < vertices.size(); i++) {
-            verticesArray[i] = vertices.get(i);
-        }
-        for (int i = 0; i < indices.size(); i++) {
-            indicesArray[i] = indices.get(i);
-        }
-
-        return new Mesh(verticesArray, indicesArray);
-    }
-
-    private Mesh createCubeMesh() {
-        float[] vertices = {
-                // positions // colors
-                -0.5f, -0.5f, -0.5f, 1f, 0f, 0f,
-                0.5f, -0.5f, -0.5f, 0f, 1f, 0f,
-                0.5f, 0.5f, -0.5f, 0f, 0f, 1f,
-                -0.5f, 0.5f, -0.5f, 1f, 1f, 0f,
-                -0.5f, -0.5f, 0.5f, 1f, 0f, 1f,
-                0.5f, -0.5f, 0.5f, 0f, 1f, 1f,
-                0.5f, 0.5f, 0.5f, 1f, 1f, 1f,
-                -0.5f, 0.5f, 0.5f, 0f, 0f, 0f,
-        };
-        int[] indices = {
-                // back face
-                0, 1, 2, 2, 3, 0,
-                // front face
-                4, 5, 6, 6, 7, 4,
-                // left face
-                4, 0, 3, 3, 7, 4,
-                // right face
-                1, 5, 6, 6, 2, 1,
-                // bottom face
-                4, 5, 1, 1, 0, 4,
-                // top face
-                3, 2, 6, 6, 7, 3
-        };
-        return new Mesh(vertices, indices);
-    }
-
-    private void updateBullets(float dt) {
-        List<Integer> toRemove = new ArrayList<>();
-
-        for (Map.Entry<Integer, Map<Class<? extends Component>, Component>> entry : ecs.getEntities().entrySet()) {
-            int id = entry.getKey();
-
-            Map<Class<? extends Component>, Component> comps = entry.getValue();
-
-            if (comps.containsKey(BulletComponent.class) && comps.containsKey(TransformComponent.class)) {
-                BulletComponent bullet = (BulletComponent) comps.get(BulletComponent.class);
-                TransformComponent transform = (TransformComponent) comps.get(TransformComponent.class);
-
-                bullet.velocity.add(new Vector3f(bullet.acceleration).mul(dt));
-
-                transform.x += bullet.velocity.x * dt;
-                transform.y += bullet.velocity.y * dt;
-                transform.z += bullet.velocity.z * dt;
-
-                bullet.lifeTime -= dt;
-
-                if (bullet.lifeTime <= 0) {
-                    toRemove.add(id);
-                }
-            }
-        }
-
-        for (int id : toRemove) {
-            ecs.removeEntity(id);
-        }
-    }
-
-    private boolean checkCollision(TransformComponent t1, ColliderComponent c1, TransformComponent t2,
-            ColliderComponent c2) {
-        float t1MinX = t1.x - c1.width / 2, t1MaxX = t1.x + c1.width / 2;
-        float t1MinY = t1.y - c1.height / 2, t1MaxY = t1.y + c1.height / 2;
-        float t1MinZ = t1.z - c1.depth / 2, t1MaxZ = t1.z + c1.depth / 2;
-
-        float t2MinX = t2.x - c2.width / 2, t2MaxX = t2.x + c2.width / 2;
-        float t2MinY = t2.y - c2.height / 2, t2MaxY = t2.y + c2.height / 2;
-        float t2MinZ = t2.z - c2.depth / 2, t2MaxZ = t2.z + c2.depth / 2;
-
-        return (t1MinX <= t2MaxX && t1MaxX >= t2MinX) &&
-                (t1MinY <= t2MaxY && t1MaxY >= t2MinY) &&
-                (t1MinZ <= t2MaxZ && t1MaxZ >= t2MinZ);
-    }
-
-    private void checkCollisions() {
-        List<Integer> bulletsToRemove = new ArrayList<>();
-        List<Integer> entitiesToRemove = new ArrayList<>();
-
-        for (Map.Entry<Integer, Map<Class<? extends Component>, Component>> bulletEntry : new ArrayList<>(
-                ecs.getEntities().entrySet())) {
-            int bulletId = bulletEntry.getKey();
-
-            Map<Class<? extends Component>, Component> bulletComps = bulletEntry.getValue();
-
-            if (!bulletComps.containsKey(BulletComponent.class) || !bulletComps.containsKey(ColliderComponent.class))
-                continue;
-
-            TransformComponent bulletTransform = (TransformComponent) bulletComps.get(TransformComponent.class);
-            ColliderComponent bulletCollider = (ColliderComponent) bulletComps.get(ColliderComponent.class);
-
-            for (Map.Entry<Integer, Map<Class<? extends Component>, Component>> otherEntry : new ArrayList<>(
-                    ecs.getEntities().entrySet())) {
-                int otherId = otherEntry.getKey();
-
-                if (otherId == bulletId)
-                    continue;
-
-                Map<Class<? extends Component>, Component> otherComps = otherEntry.getValue();
-
-                if (!otherComps.containsKey(ColliderComponent.class))
-                    continue;
-                if (otherComps.containsKey(BulletComponent.class))
-                    continue;
-
-                TransformComponent otherTransform = (TransformComponent) otherComps.get(TransformComponent.class);
-                ColliderComponent otherCollider = (ColliderComponent) otherComps.get(ColliderComponent.class);
-
-                if (checkCollision(bulletTransform, bulletCollider, otherTransform, otherCollider)) {
-                    System.out.println("Collided");
-                    bulletsToRemove.add(bulletId);
-
-                    spawnExplosion(bulletTransform.x, bulletTransform.y, bulletTransform.z);
-
-                    HealthComponent health = (HealthComponent) otherComps.get(HealthComponent.class);
-                    if (health != null) {
-                        health.health--;
-                        if (health.health <= 0) {
-                            entitiesToRemove.add(otherId);
-                        }
-                    }
-                    break;
-                }
-            }
-        }
-        for (int entityId : bulletsToRemove) {
-            PhysicsComponent physComp = ecs.getComponent(entityId, PhysicsComponent.class);
-            if (physComp != null) {
-                physicsWorld.removeRigidBody(physComp.rigidBody);
-            }
-            ecs.removeEntity(entityId);
-        }
-
-        for (int id : entitiesToRemove)
-            ecs.removeEntity(id);
-    }
-
-    private void updateExplosions(float dt) {
-        List<Integer> toRemove = new ArrayList<>();
-
-        for (Map.Entry<Integer, Map<Class<? extends Component>, Component>> entry : ecs.getEntities().entrySet()) {
-            int id = entry.getKey();
-
-            Map<Class<? extends Component>, Component> comps = entry.getValue();
-
-            if (comps.containsKey(ExplosionComponent.class)) {
-                ExplosionComponent explosion = (ExplosionComponent) comps.get(ExplosionComponent.class);
-
-                explosion.lifetime -= dt;
-                if (explosion.lifetime <= 0) {
-                    toRemove.add(id);
-                }
-            }
-        }
-
-        for (int entityId : toRemove) {
-            PhysicsComponent physComp = ecs.getComponent(entityId, PhysicsComponent.class);
-            if (physComp != null) {
-                physicsWorld.removeRigidBody(physComp.rigidBody);
-            }
-            ecs.removeEntity(entityId);
-        }
-    }
-
-    private void updatePhysics(float dt) {
-        physicsWorld.stepSimulation(dt);
-
-        // Update ECS TransformComponent from the physics simulation:
-        for (Map.Entry<Integer, Map<Class<? extends Component>, Component>> entry : ecs.getEntities().entrySet()) {
-            Map<Class<? extends Component>, Component> comps = entry.getValue();
-            PhysicsComponent physComp = (PhysicsComponent) comps.get(PhysicsComponent.class);
-            TransformComponent transform = (TransformComponent) comps.get(TransformComponent.class);
-            if (physComp != null && transform != null) {
-                Transform trans = new Transform();
-                physComp.rigidBody.getMotionState().getWorldTransform(trans);
-                javax.vecmath.Vector3f pos = trans.origin;
-                transform.x = pos.x;
-                transform.y = pos.y;
-                transform.z = pos.z;
-            }
-        }
-    }
-
-    private void spawnExplosion(float x, float y, float z) {
-        int explosionEntity = ecs.createEntity();
-
-        TransformComponent transform = new TransformComponent(x, y, z);
-
-        ecs.addComponent(explosionEntity, transform);
-        ecs.addComponent(explosionEntity, new MeshComponent(cubeMesh));
-        ecs.addComponent(explosionEntity, new ExplosionComponent(1.0f));
     }
 
     private void loop() {
         while (!glfwWindowShouldClose(window)) {
+            profiler.beginFrame();
             float currentTime = (float) glfwGetTime();
-            float dt = currentTime - lastFrameTime;
+            float frameTime = currentTime - lastFrameTime;
             lastFrameTime = currentTime;
 
-            playerController.update(window);
-            TransformComponent playerTransform = ecs.getComponent(playerEntity, TransformComponent.class);
-            camera.position.set(playerTransform.x, playerTransform.y, playerTransform.z);
-
-            checkCollisions();
-            updatePhysics(dt);
-            aiSystem.update(dt);
+            for (int ticks = timestep.advance(frameTime); ticks > 0; ticks--) {
+                tick(timestep.getTickDuration());
+            }
 
-            updateBullets(dt);
-            updateExplosions(dt);
+            float interpolation = timestep.getAlpha();
+            TransformComponent playerTransform = transforms.get(playerEntity);
+            camera.position.set(playerTransform.interpolatedX(interpolation),
+                    playerTransform.interpolatedY(interpolation), playerTransform.interpolatedZ(interpolation));
 
-            renderer.render();
+            profiler.begin(Phase.RENDER);
+            camera.updateView();
+            cameraUniforms.update(camera);
+            renderer.render(interpolation);
+            profiler.end(Phase.RENDER);
 
-            List<Map<Class<? extends Component>, Component>> uiEntities = new ArrayList<>();
-            for (Map<Class<? extends Component>, Component> comps : ecs.getEntities().values()) {
-                if (comps.containsKey(UIComponent.class)) {
-                    uiEntities.add(comps);
-                }
-            }
-            uiRenderer.render(uiEntities);
+            profiler.begin(Phase.UI);
+            uiRenderer.render();
+            profiler.end(Phase.UI);
 
             glfwSwapBuffers(window);
             glfwPollEvents();
+            profiler.endFrame();
 
-            if (glfwGetMouseButton(window, GLFW_MOUSE_BUTTON_LEFT) == GLFW_PRESS) {
-                weapon.fire(ecs, physicsWorld, bulletMesh, playerTransform.x, playerTransform.y, playerTransform.z,
-                        0.0f, 0.0f, -1.0f);
+            boolean dumpKey = glfwGetKey(window, GLFW_KEY_F3) == GLFW_PRESS;
+            if (dumpKey && !dumpKeyDown && profiler.isEnabled()) {
+                dumpProfile();
             }
+            dumpKeyDown = dumpKey;
+        }
+    }
+
+    private void dumpProfile() {
+        profiler.printSummary(System.out);
+        try {
+            profiler.writeCsv(Path.of(PROFILE_OUT));
+            System.out.println("Frame profile written to " + PROFILE_OUT);
+        } catch (IOException e) {
+            System.err.println("Failed to write frame profile: " + e.getMessage());
         }
     }
 
     private void cleanup() {
+        if (world != null)
+            world.shutdown();
         if (shader != null)
             shader.cleanup();
-
-        for (Map<Class<? extends Component>, Component> comps : ecs.getEntities().values()) {
-            MeshComponent meshComp = (MeshComponent) comps.get(MeshComponent.class);
-            if (meshComp != null && meshComp.mesh != null) {
+        if (renderer != null)
+            renderer.cleanup();
+        if (uiRenderer != null)
+            uiRenderer.cleanup();
+        if (cameraUniforms != null)
+            cameraUniforms.cleanup();
+
+        ComponentPool<MeshComponent> meshes = ecs.pool(MeshComponent.class);
+        for (int i = 0; i < meshes.size(); i++) {
+            MeshComponent meshComp = meshes.componentAt(i);
+            if (meshComp.mesh != null) {
                 meshComp.mesh.cleanup();
             }
         }
@@ -0,0 +1,55 @@
+package com.example;
+
+// Turns variable frame times into a whole number of fixed simulation ticks.
+// Frame time is banked in an accumulator and paid out one tick at a time; the
+// remainder becomes the interpolation factor the renderer uses to blend the
+// last two simulation states.
+//
+// If a hitch leaves more than maxTicksPerFrame ticks owed, the extra time is
+// dropped instead of simulated, so a slow frame cannot snowball into ever
+// slower ones.
+public class FixedTimestep {
+    private final float tickDuration;
+    private final int maxTicksPerFrame;
+    private float accumulator;
+    private long droppedTicks;
+
+    public FixedTimestep(float tickRate, int maxTicksPerFrame) {
+        if (tickRate <= 0)
+            throw new IllegalArgumentException("Tick rate must be positive: " + tickRate);
+        if (maxTicksPerFrame <= 0)
+            throw new IllegalArgumentException("Max ticks per frame must be positive: " + maxTicksPerFrame);
+
+        this.tickDuration = 1.0f / tickRate;
+        this.maxTicksPerFrame = maxTicksPerFrame;
+    }
+
+    // Banks the frame time and returns how many ticks to simulate now.
+    public int advance(float frameTime) {
+        accumulator += Math.max(frameTime, 0.0f);
+
+        int ticks = (int) (accumulator / tickDuration);
+        if (ticks > maxTicksPerFrame) {
+            droppedTicks += ticks - maxTicksPerFrame;
+            ticks = maxTicksPerFrame;
+            accumulator = ticks * tickDuration + accumulator % tickDuration;
+        }
+
+        accumulator -= ticks * tickDuration;
+        return ticks;
+    }
+
+    public float getTickDuration() {
+        return tickDuration;
+    }
+
+    // How far the current frame sits between the previous tick and the next one,
+    // from 0 to 1.
+    public float getAlpha() {
+        return Math.min(accumulator / tickDuration, 1.0f);
+    }
+
+    public long getDroppedTicks() {
+        return droppedTicks;
+    }
+}
@@ -0,0 +1,154 @@
+package com.example;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.Arrays;
+
+// Per-frame, per-phase timing. Each phase is timed with System.nanoTime between
+// begin() and end(), and the frame's totals go into a preallocated ring of frame
+// records, so recording never allocates. A phase that runs several times in one
+// frame, like the simulation phases when a frame catches up on ticks, adds up.
+//
+// Percentiles are computed on demand over the frames still in the ring. A
+// disabled profiler returns from every call after a single field check.
+public class FrameProfiler {
+    public enum Phase {
+        INPUT, HITSCAN, COLLISIONS, PHYSICS, AI, BULLETS, EXPLOSIONS, RENDER, UI
+    }
+
+    private static final Phase[] PHASES = Phase.values();
+    // Each record holds one column per phase followed by the whole-frame time.
+    private static final int FRAME_COLUMN = PHASES.length;
+    private static final int COLUMNS = PHASES.length + 1;
+
+    public static final FrameProfiler DISABLED = new FrameProfiler(1, false);
+
+    private final boolean enabled;
+    private final int capacity;
+    private final long[] records;
+    private final long[] phaseStart = new long[PHASES.length];
+    private final long[] sortScratch;
+    private long frameStart;
+    private int head;
+    private long frameCount;
+
+    public FrameProfiler(int capacity, boolean enabled) {
+        if (capacity <= 0)
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+
+        this.enabled = enabled;
+        this.capacity = capacity;
+        this.records = new long[capacity * COLUMNS];
+        this.sortScratch = new long[capacity];
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void beginFrame() {
+        if (!enabled)
+            return;
+
+        int row = head * COLUMNS;
+        Arrays.fill(records, row, row + COLUMNS, 0L);
+        frameStart = System.nanoTime();
+    }
+
+    public void endFrame() {
+        if (!enabled)
+            return;
+
+        records[head * COLUMNS + FRAME_COLUMN] = System.nanoTime() - frameStart;
+        head = (head + 1) % capacity;
+        frameCount++;
+    }
+
+    public void begin(Phase phase) {
+        if (!enabled)
+            return;
+
+        phaseStart[phase.ordinal()] = System.nanoTime();
+    }
+
+    public void end(Phase phase) {
+        if (!enabled)
+            return;
+
+        int column = phase.ordinal();
+        records[head * COLUMNS + column] += System.nanoTime() - phaseStart[column];
+    }
+
+    public long getFrameCount() {
+        return frameCount;
+    }
+
+    // Number of frames currently held in the ring.
+    public int getRecordedFrames() {
+        return (int) Math.min(frameCount, capacity);
+    }
+
+    // Nearest-rank percentile (0-100) of a phase's time per frame, in nanoseconds.
+    public long percentile(Phase phase, double percentile) {
+        return percentile(phase.ordinal(), percentile);
+    }
+
+    // Nearest-rank percentile (0-100) of the whole frame time, in nanoseconds.
+    public long framePercentile(double percentile) {
+        return percentile(FRAME_COLUMN, percentile);
+    }
+
+    private long percentile(int column, double percentile) {
+        int frames = getRecordedFrames();
+        if (frames == 0)
+            return 0;
+
+        for (int i = 0; i < frames; i++) {
+            sortScratch[i] = records[i * COLUMNS + column];
+        }
+        Arrays.sort(sortScratch, 0, frames);
+
+        int rank = (int) Math.ceil(percentile / 100.0 * frames) - 1;
+        return sortScratch[Math.max(0, Math.min(frames - 1, rank))];
+    }
+
+    public void printSummary(PrintStream out) {
+        out.printf("%-10s %9s %9s %9s  (ms over %d frames)%n", "phase", "p50", "p95", "p99", getRecordedFrames());
+        for (Phase phase : PHASES) {
+            printSummaryRow(out, phase.name().toLowerCase(), phase.ordinal());
+        }
+        printSummaryRow(out, "frame", FRAME_COLUMN);
+    }
+
+    private void printSummaryRow(PrintStream out, String name, int column) {
+        out.printf("%-10s %9.3f %9.3f %9.3f%n", name, percentile(column, 50) / 1e6,
+                percentile(column, 95) / 1e6, percentile(column, 99) / 1e6);
+    }
+
+    // Writes one row per recorded frame, oldest first, with times in microseconds.
+    public void writeCsv(Writer out) throws IOException {
+        out.write("frame,frame_us");
+        for (Phase phase : PHASES) {
+            out.write("," + phase.name().toLowerCase() + "_us");
+        }
+        out.write("\n");
+
+        int frames = getRecordedFrames();
+        int oldest = frames < capacity ? 0 : head;
+        for (int i = 0; i < frames; i++) {
+            int row = ((oldest + i) % capacity) * COLUMNS;
+            out.write(Long.toString(frameCount - frames + i));
+            out.write("," + records[row + FRAME_COLUMN] / 1000.0);
+            for (int column = 0; column < PHASES.length; column++) {
+                out.write("," + records[row + column] / 1000.0);
+            }
+            out.write("\n");
+        }
+    }
+
+    public void writeCsv(Path path) throws IOException {
+        try (Writer out = Files.newBufferedWriter(path)) {
+            writeCsv(out);
+        }
+    }
+}
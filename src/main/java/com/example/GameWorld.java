@@ -0,0 +1,601 @@
+package com.example;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.joml.Math;
+import org.joml.Vector3f;
+
+import com.example.FrameProfiler.Phase;
+import com.example.assets.MeshAssets;
+import com.example.assets.MeshData;
+import com.example.components.*;
+import com.example.entities.ProjectilePool;
+import com.example.entities.Rifle;
+import com.example.entities.Weapon;
+import com.example.navigation.NavGrid;
+import com.example.navigation.PathService;
+import com.example.physics.CollisionLayer;
+import com.example.physics.CollisionMatrix;
+import com.example.physics.PhysicsSnapshot;
+import com.example.physics.PhysicsWorld;
+import com.example.physics.SpatialHashGrid;
+import com.example.physics.StaticGeometry;
+import com.example.rendering.Mesh;
+import com.example.systems.AISystem;
+import com.example.systems.HitscanSystem;
+import com.example.systems.SystemScheduler;
+
+// The simulated game world: ECS, physics, AI and weapons, plus the per-tick
+// systems that drive them. It has no window or input of its own, so FPSGame
+// wraps it with rendering and HeadlessServer runs it without any GL context.
+public class GameWorld {
+    // Worker threads for the system scheduler; 1 runs every system serially on
+    // the calling thread.
+    private static final int SIM_THREADS = Integer.getInteger("fps.simThreads",
+            Runtime.getRuntime().availableProcessors());
+    // Time AISystem aims to stay within per tick; 0 disables the budget.
+    private static final int AI_BUDGET_MICROS = Integer.getInteger("fps.aiBudgetMicros", 2000);
+    // Time spent resolving queued path searches per tick.
+    private static final int PATH_BUDGET_MICROS = Integer.getInteger("fps.pathBudgetMicros", 500);
+    // Physics broadphase, dbvt or axis_sweep, and the world bounds the sweep
+    // needs.
+    private static final PhysicsWorld.Broadphase BROADPHASE = PhysicsWorld.Broadphase
+            .valueOf(System.getProperty("fps.broadphase", "dbvt").toUpperCase());
+    private static final int WORLD_HALF_EXTENT = Integer.getInteger("fps.worldHalfExtent", 500);
+    // Where imported models are cached in binary form, and the directory their
+    // cache paths are taken relative to.
+    private static final String MESH_CACHE_DIR = System.getProperty("fps.meshCacheDir", "mesh-cache");
+    private static final String ASSET_DIR = System.getProperty("fps.assetDir", ".");
+
+    private final boolean headless;
+    private ECSRegistry ecs;
+    private PhysicsWorld physicsWorld;
+    private AISystem aiSystem;
+    private HitscanSystem hitscanSystem;
+    private Weapon weapon;
+    private ProjectilePool projectilePool;
+    private Mesh bulletMesh;
+    private Mesh cubeMesh;
+    private int playerEntity;
+
+    private ComponentPool<TransformComponent> transforms;
+    private ComponentPool<ColliderComponent> colliders;
+    private ComponentPool<BulletComponent> bullets;
+    private ComponentPool<ExplosionComponent> explosions;
+    private ComponentPool<PhysicsComponent> physicsBodies;
+    private EntityQuery bulletQuery;
+    private EntityQuery projectileQuery;
+    private EntityQuery colliderQuery;
+    private EntityQuery explosionQuery;
+    // Columns for the entities that opt in to struct-of-arrays transforms; for
+    // now the pooled projectiles.
+    private final TransformStore transformStore = new TransformStore();
+    private SpatialHashGrid collisionGrid = new SpatialHashGrid(4.0f);
+    private FrameProfiler profiler = FrameProfiler.DISABLED;
+    // Shared by the scheduler and by systems that split their own work; null
+    // when running serially.
+    private final ForkJoinPool simPool = SIM_THREADS > 1 ? new ForkJoinPool(SIM_THREADS) : null;
+    private SystemScheduler scheduler;
+    private final MeshAssets meshAssets = new MeshAssets(Paths.get(MESH_CACHE_DIR), Paths.get(ASSET_DIR));
+    // Step of the last physics snapshot copied into the ECS.
+    private long lastSyncedStep = -1;
+
+    // Builds the level. A headless world creates meshes that never touch GL, so
+    // it can run on machines without a display or GPU.
+    public GameWorld(boolean headless) {
+        this.headless = headless;
+
+        ecs = new ECSRegistry();
+        transforms = ecs.pool(TransformComponent.class);
+        colliders = ecs.pool(ColliderComponent.class);
+        bullets = ecs.pool(BulletComponent.class);
+        explosions = ecs.pool(ExplosionComponent.class);
+        physicsBodies = ecs.pool(PhysicsComponent.class);
+        bulletQuery = ecs.query(TransformComponent.class, BulletComponent.class);
+        projectileQuery = ecs.query(TransformComponent.class, BulletComponent.class, ColliderComponent.class);
+        colliderQuery = ecs.query(TransformComponent.class, ColliderComponent.class);
+        explosionQuery = ecs.query(ExplosionComponent.class);
+
+        physicsWorld = new PhysicsWorld(BROADPHASE, WORLD_HALF_EXTENT);
+        cubeMesh = createCubeMesh();
+        Mesh cylinderMesh = createCylinderMesh(32, 3f, 1f);
+
+        // Create enemy entity
+        int enemyEntity = ecs.createEntity();
+        ecs.addComponent(enemyEntity, new TransformComponent(5.0f, 0.0f, -5.0f));
+        ecs.addComponent(enemyEntity, new MeshComponent(cylinderMesh));
+        ecs.addComponent(enemyEntity, new ColliderComponent(2.0f, 2.0f, 2.0f, CollisionLayer.ENEMY));
+        ecs.addComponent(enemyEntity, new HealthComponent(100));
+        // ecs.addComponent(enemyEntity, new Weapon.Pistol());
+        AIComponent ai = new AIComponent();
+        ai.waypoints = new Vector3f[] {
+                new Vector3f(5f, 0f, -5f),
+                new Vector3f(-5f, 0f, -5f)
+        };
+        ecs.addComponent(enemyEntity, ai);
+
+        // Create player entity (used for input and camera)
+        playerEntity = ecs.createEntity();
+        ecs.addComponent(playerEntity, new TransformComponent(0.0f, 0.0f, 3.0f));
+        ecs.addComponent(playerEntity, new ColliderComponent(1.0f, 1.0f, 1.0f, CollisionLayer.PLAYER));
+        ecs.addComponent(playerEntity, new HealthComponent(100));
+
+        // Initialize AI System
+        aiSystem = new AISystem(ecs, physicsWorld, playerEntity, simPool);
+        aiSystem.setTickBudget(AI_BUDGET_MICROS * 1000L);
+
+        // Create a cube entity as a static scene object, resting against the
+        // front face of the wall (the wall's front face is at z = -9.5).
+        int cubeEntity = ecs.createEntity();
+        ecs.addComponent(cubeEntity, new TransformComponent(0.0f, 0.0f, -9.0f));
+        ecs.addComponent(cubeEntity, new MeshComponent(cubeMesh));
+        ecs.addComponent(cubeEntity, new ColliderComponent(1.0f, 1.0f, 1.0f, CollisionLayer.STATIC_WORLD));
+        ecs.addComponent(cubeEntity, new HealthComponent(100));
+
+        // Static level geometry is baked into one physics body. The wall is a
+        // box given by its center and half extents.
+        StaticGeometry level = new StaticGeometry();
+        level.addBox(0.0f, 0.0f, -10.0f, 5.0f, 2.5f, 0.5f);
+        level.bake(physicsWorld);
+
+        // Bake walkable cells around the level once its static geometry is in
+        // place, and let agents path around it.
+        NavGrid navGrid = NavGrid.bake(physicsWorld, -50.0f, -50.0f, 100, 100, 1.0f, 1.0f);
+        aiSystem.setNavigation(new PathService(navGrid, 256), PATH_BUDGET_MICROS * 1000L);
+
+        // Create a shared bullet mesh.
+        bulletMesh = createCubeMesh();
+
+        projectilePool = new ProjectilePool(ecs, physicsWorld, transformStore, bulletMesh, 512,
+                ProjectilePool.OverflowPolicy.RECYCLE_OLDEST);
+        hitscanSystem = new HitscanSystem(ecs, physicsWorld);
+        weapon = new Rifle(projectilePool, hitscanSystem);
+
+        scheduler = new SystemScheduler(simPool);
+        registerSystems();
+    }
+
+    // Declares what every per-tick system touches. Systems that share a written
+    // type run in the order listed here; the rest may run at the same time. None
+    // of them removes entities directly; removals are queued and flushed at the
+    // end of the tick. The transform store's columns count as TransformComponent.
+    private void registerSystems() {
+        scheduler.add("hitscan", profiled(Phase.HITSCAN, dt -> hitscanSystem.resolve()))
+                .reads(TransformComponent.class, ColliderComponent.class, BulletComponent.class, PhysicsWorld.class)
+                .writes(HealthComponent.class);
+        scheduler.add("collisions", profiled(Phase.COLLISIONS, dt -> checkCollisions()))
+                .reads(BulletComponent.class, ColliderComponent.class, PhysicsWorld.class)
+                .writes(TransformComponent.class, HealthComponent.class, MeshComponent.class,
+                        ExplosionComponent.class, ECSRegistry.class);
+        scheduler.add("physics", profiled(Phase.PHYSICS, this::updatePhysics))
+                .reads(PhysicsComponent.class)
+                .writes(TransformComponent.class, PhysicsWorld.class);
+        scheduler.add("ai", profiled(Phase.AI, dt -> aiSystem.update(dt)))
+                .reads(HealthComponent.class, ECSRegistry.class, PhysicsWorld.class)
+                .writes(AIComponent.class, TransformComponent.class);
+        scheduler.add("bullets", profiled(Phase.BULLETS, this::updateBullets))
+                .reads(PhysicsComponent.class)
+                .writes(BulletComponent.class, TransformComponent.class);
+        scheduler.add("explosions", profiled(Phase.EXPLOSIONS, this::updateExplosions))
+                .writes(ExplosionComponent.class);
+    }
+
+    private SystemScheduler.Task profiled(Phase phase, SystemScheduler.Task task) {
+        return dt -> {
+            profiler.begin(phase);
+            task.update(dt);
+            profiler.end(phase);
+        };
+    }
+
+    private Mesh createMesh(float[] vertices, int[] indices) {
+        return headless ? Mesh.headless(vertices, indices) : new Mesh(vertices, indices);
+    }
+
+    // Loads a model file, importing it on first use and mapping its binary
+    // cache afterwards.
+    public Mesh loadMesh(Path source) throws IOException {
+        MeshData data = meshAssets.load(source);
+        return headless ? Mesh.headless(data) : new Mesh(data);
+    }
+
+    private Mesh createCylinderMesh(int segments, float height, float radius) {
+        List<Float> vertices = new ArrayList<>();
+        List<Integer> indices = new ArrayList<>();
+
+        // Bottom center vertex
+        vertices.add(0f);
+        vertices.add(-height / 2);
+        vertices.add(0f); // Position
+        vertices.add(1f);
+        vertices.add(1f);
+        vertices.add(1f); // Color
+
+        // Bottom circle
+        for (int i = 0; i < segments; i++) {
+            float angle = (float) (2 * Math.PI * i / segments);
+            float x = (float) Math.cos(angle) * radius;
+            float z = (float) Math.sin(angle) * radius;
+            vertices.add(x);
+            vertices.add(-height / 2);
+            vertices.add(z); // Position
+            vertices.add(1f);
+            vertices.add(0f);
+            vertices.add(0f); // Color
+        }
+
+        // Top center vertex
+        vertices.add(0f);
+        vertices.add(height / 2);
+        vertices.add(0f); // Position
+        vertices.add(1f);
+        vertices.add(1f);
+        vertices.add(1f); // Color
+
+        // Top circle
+        for (int i = 0; i < segments; i++) {
+            float angle = (float) (2 * Math.PI * i / segments);
+            float x = (float) Math.cos(angle) * radius;
+            float z = (float) Math.sin(angle) * radius;
+            vertices.add(x);
+            vertices.add(height / 2);
+            vertices.add(z); // Position
+            vertices.add(0f);
+            vertices.add(0f);
+            vertices.add(1f); // Color
+        }
+
+        // Bottom face indices
+        for (int i = 1; i <= segments; i++) {
+            indices.add(0);
+            indices.add(i);
+            indices.add(i % segments + 1);
+        }
+
+        // Top face indices
+        int topCenter = segments + 1;
+        for (int i = 1; i <= segments; i++) {
+            indices.add(topCenter);
+            indices.add(topCenter + i);
+            indices.add(topCenter + (i % segments) + 1);
+        }
+
+        // Side faces
+        for (int i = 1; i <= segments; i++) {
+            int next = (i % segments) + 1;
+            int bottom = i;
+            int top = i + segments + 1;
+            int topNext = next + segments + 1;
+
+            indices.add(bottom);
+            indices.add(next);
+            indices.add(top);
+
+            indices.add(next);
+            indices.add(topNext);
+            indices.add(top);
+        }
+
+        // Convert lists to arrays
+        float[] verticesArray = new float[vertices.size()];
+        int[] indicesArray = new int[indices.size()];
+        for (int i = 0; i < vertices.size(); i++) {
+            verticesArray[i] = vertices.get(i);
+        }
+        for (int i = 0; i < indices.size(); i++) {
+            indicesArray[i] = indices.get(i);
+        }
+
+        return createMesh(verticesArray, indicesArray);
+    }
+
+    private Mesh createCubeMesh() {
+        float[] vertices = {
+                // positions // colors
+                -0.5f, -0.5f, -0.5f, 1f, 0f, 0f,
+                0.5f, -0.5f, -0.5f, 0f, 1f, 0f,
+                0.5f, 0.5f, -0.5f, 0f, 0f, 1f,
+                -0.5f, 0.5f, -0.5f, 1f, 1f, 0f,
+                -0.5f, -0.5f, 0.5f, 1f, 0f, 1f,
+                0.5f, -0.5f, 0.5f, 0f, 1f, 1f,
+                0.5f, 0.5f, 0.5f, 1f, 1f, 1f,
+                -0.5f, 0.5f, 0.5f, 0f, 0f, 0f,
+        };
+        int[] indices = {
+                // back face
+                0, 1, 2, 2, 3, 0,
+                // front face
+                4, 5, 6, 6, 7, 4,
+                // left face
+                4, 0, 3, 3, 7, 4,
+                // right face
+                1, 5, 6, 6, 2, 1,
+                // bottom face
+                4, 5, 1, 1, 0, 4,
+                // top face
+                3, 2, 6, 6, 7, 3
+        };
+        return createMesh(vertices, indices);
+    }
+
+    private void updateBullets(float dt) {
+        for (int i = 0, n = bulletQuery.collect(); i < n; i++) {
+            int id = bulletQuery.entity(i);
+
+            BulletComponent bullet = bullets.get(id);
+
+            // Bullets with a rigid body are moved by the physics step.
+            if (!physicsBodies.has(id)) {
+                bullet.velocity.fma(dt, bullet.acceleration);
+
+                if (transformStore.contains(id)) {
+                    int slot = ECSRegistry.entityIndex(id);
+                    transformStore.x[slot] += bullet.velocity.x * dt;
+                    transformStore.y[slot] += bullet.velocity.y * dt;
+                    transformStore.z[slot] += bullet.velocity.z * dt;
+                } else {
+                    TransformComponent transform = transforms.get(id);
+                    transform.x += bullet.velocity.x * dt;
+                    transform.y += bullet.velocity.y * dt;
+                    transform.z += bullet.velocity.z * dt;
+                }
+            }
+
+            bullet.lifeTime -= dt;
+
+            if (bullet.lifeTime <= 0) {
+                ecs.removeEntityLater(id);
+            }
+        }
+    }
+
+    // Removes an entity along with whatever it owns outside the ECS: pooled
+    // projectiles go back to the pool, other rigid bodies leave the physics world.
+    private void destroyEntity(int id) {
+        if (!ecs.isAlive(id))
+            return;
+
+        if (projectilePool.owns(id)) {
+            projectilePool.release(id);
+            return;
+        }
+
+        PhysicsComponent physComp = physicsBodies.get(id);
+        if (physComp != null) {
+            physicsWorld.removeRigidBody(physComp.rigidBody);
+        }
+        ecs.removeEntity(id);
+    }
+
+    // Destroys every entity queued with removeEntityLater() during the tick. The
+    // same entity may be queued more than once, e.g. a bullet that hit something
+    // on its last tick of life.
+    private void flushRemovals() {
+        for (int i = 0, n = ecs.getPendingRemovalCount(); i < n; i++) {
+            destroyEntity(ecs.getPendingRemoval(i));
+        }
+        ecs.clearPendingRemovals();
+    }
+
+    private void checkCollisions() {
+        int bulletCount = projectileQuery.collect();
+        CollisionMatrix matrix = physicsWorld.getCollisionMatrix();
+
+        // Rebuild the broadphase over every collider a projectile may hit, so
+        // each bullet is only tested against boxes in the cells it touches.
+        // Bullets themselves stay out unless the matrix lets them hit each other.
+        collisionGrid.clear();
+        for (int j = 0, n = colliderQuery.collect(); j < n; j++) {
+            int otherId = colliderQuery.entity(j);
+            ColliderComponent otherCollider = colliders.get(otherId);
+            if (!matrix.collides(otherCollider.layer, CollisionLayer.PROJECTILE))
+                continue;
+
+            TransformComponent otherTransform = transforms.get(otherId);
+            collisionGrid.insert(otherId, otherCollider.layer.bit,
+                    otherTransform.x - otherCollider.width / 2,
+                    otherTransform.y - otherCollider.height / 2,
+                    otherTransform.z - otherCollider.depth / 2,
+                    otherTransform.x + otherCollider.width / 2,
+                    otherTransform.y + otherCollider.height / 2,
+                    otherTransform.z + otherCollider.depth / 2);
+        }
+
+        // Pooled projectiles are read from the transform store's columns, which
+        // hold their current positions; any other bullet from its component.
+        float[] storeX = transformStore.x, storeY = transformStore.y, storeZ = transformStore.z;
+        for (int i = 0; i < bulletCount; i++) {
+            int bulletId = projectileQuery.entity(i);
+
+            ColliderComponent bulletCollider = colliders.get(bulletId);
+            BulletComponent bullet = bullets.get(bulletId);
+            float bx, by, bz;
+            if (transformStore.contains(bulletId)) {
+                int slot = ECSRegistry.entityIndex(bulletId);
+                bx = storeX[slot];
+                by = storeY[slot];
+                bz = storeZ[slot];
+            } else {
+                TransformComponent bulletTransform = transforms.get(bulletId);
+                bx = bulletTransform.x;
+                by = bulletTransform.y;
+                bz = bulletTransform.z;
+            }
+
+            int hit = collisionGrid.firstOverlap(matrix.maskOf(bulletCollider.layer), bulletId, bullet.owner,
+                    bx - bulletCollider.width / 2,
+                    by - bulletCollider.height / 2,
+                    bz - bulletCollider.depth / 2,
+                    bx + bulletCollider.width / 2,
+                    by + bulletCollider.height / 2,
+                    bz + bulletCollider.depth / 2);
+            if (hit == -1)
+                continue;
+
+            int otherId = collisionGrid.entityAt(hit);
+
+            spawnExplosion(bx, by, bz);
+            ecs.removeEntityLater(bulletId);
+
+            HealthComponent health = ecs.getComponent(otherId, HealthComponent.class);
+            if (health != null) {
+                health.health--;
+                if (health.health <= 0) {
+                    ecs.removeEntityLater(otherId);
+                }
+            }
+        }
+    }
+
+    private void updateExplosions(float dt) {
+        for (int i = 0, n = explosionQuery.collect(); i < n; i++) {
+            int id = explosionQuery.entity(i);
+            ExplosionComponent explosion = explosions.get(id);
+
+            explosion.lifetime -= dt;
+            if (explosion.lifetime <= 0) {
+                ecs.removeEntityLater(id);
+            }
+        }
+    }
+
+    // With a physics thread the world steps on its own, so the tick only picks
+    // up its latest positions.
+    private void updatePhysics(float dt) {
+        if (!physicsWorld.isThreaded()) {
+            physicsWorld.stepSimulation(dt);
+        }
+        syncPhysicsTransforms();
+    }
+
+    // Update ECS TransformComponent from the latest physics snapshot. Only
+    // bodies that moved since the last frame we took are visited, so resting
+    // and static bodies cost nothing. Bodies added since that step keep the
+    // position they were spawned at.
+    public void syncPhysicsTransforms() {
+        PhysicsSnapshot.Frame frame = physicsWorld.getLatestSnapshot();
+        if (frame.getStep() == lastSyncedStep)
+            return;
+        lastSyncedStep = frame.getStep();
+
+        for (int i = 0, n = frame.getMovedCount(); i < n; i++) {
+            int slot = frame.getMovedSlot(i);
+            int entity = frame.getEntity(slot);
+            if (transformStore.contains(entity)) {
+                transformStore.setPosition(entity, frame.getX(slot), frame.getY(slot), frame.getZ(slot));
+                continue;
+            }
+
+            TransformComponent transform = transforms.get(entity);
+            if (transform == null)
+                continue;
+            transform.x = frame.getX(slot);
+            transform.y = frame.getY(slot);
+            transform.z = frame.getZ(slot);
+        }
+    }
+
+    // Moves physics stepping to a thread of its own, stepping every
+    // stepSeconds, so it overlaps with rendering and the rest of the tick.
+    public void startPhysicsThread(float stepSeconds) {
+        physicsWorld.startThread(stepSeconds);
+    }
+
+    public void shutdown() {
+        physicsWorld.stopThread();
+        if (simPool != null) {
+            simPool.shutdown();
+        }
+    }
+
+    private void spawnExplosion(float x, float y, float z) {
+        int explosionEntity = ecs.createEntity();
+
+        TransformComponent transform = new TransformComponent(x, y, z);
+
+        ecs.addComponent(explosionEntity, transform);
+        ecs.addComponent(explosionEntity, new MeshComponent(cubeMesh));
+        ecs.addComponent(explosionEntity, new ExplosionComponent(1.0f));
+    }
+
+    // Records every transform as the previous state. Call at the start of a
+    // tick, before input moves anything, so renderers can interpolate.
+    public void beginTick() {
+        for (int i = 0; i < transforms.size(); i++) {
+            transforms.componentAt(i).snapshot();
+        }
+        transformStore.snapshot();
+    }
+
+    // Advances every simulation system by one fixed tick, then publishes the
+    // transform store so its entities' components show where they ended up.
+    public void update(float dt) {
+        scheduler.run(dt);
+        flushRemovals();
+        transformStore.publish();
+    }
+
+    public void tick(float dt) {
+        beginTick();
+        update(dt);
+    }
+
+    // Fires the current weapon from the player's position straight ahead.
+    public void firePlayerWeapon() {
+        TransformComponent playerTransform = transforms.get(playerEntity);
+        if (playerTransform == null)
+            return;
+
+        weapon.fire(playerEntity, playerTransform.x, playerTransform.y, playerTransform.z,
+                0.0f, 0.0f, -1.0f);
+    }
+
+    public FrameProfiler getProfiler() {
+        return profiler;
+    }
+
+    public void setProfiler(FrameProfiler profiler) {
+        this.profiler = profiler;
+    }
+
+    public SystemScheduler getScheduler() {
+        return scheduler;
+    }
+
+    public boolean isHeadless() {
+        return headless;
+    }
+
+    public ECSRegistry getEcs() {
+        return ecs;
+    }
+
+    public PhysicsWorld getPhysicsWorld() {
+        return physicsWorld;
+    }
+
+    public AISystem getAiSystem() {
+        return aiSystem;
+    }
+
+    public Weapon getWeapon() {
+        return weapon;
+    }
+
+    public TransformStore getTransformStore() {
+        return transformStore;
+    }
+
+    public ProjectilePool getProjectilePool() {
+        return projectilePool;
+    }
+
+    public int getPlayerEntity() {
+        return playerEntity;
+    }
+}
@@ -0,0 +1,124 @@
+package com.example;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.locks.LockSupport;
+
+// Runs the game world without GLFW or OpenGL, for dedicated servers on machines
+// without a GPU and for measuring simulation throughput in CI.
+//
+// Options:
+//   --ticks N       stop after N ticks (default: run until killed)
+//   --tick-rate HZ  simulation rate (default: 60)
+//   --realtime      pace ticks to the wall clock instead of running flat out
+//   --fire          have the player fire every tick to load the bullet paths
+//   --profile FILE  time each simulation phase and write per-tick CSV to FILE
+public class HeadlessServer {
+    private static final long STATUS_INTERVAL_NANOS = 10_000_000_000L;
+    private static final int PROFILE_TICKS = 4096;
+
+    private final GameWorld world;
+    private final float tickRate;
+    private final boolean realtime;
+    private final boolean fire;
+    private final Path profileOut;
+    private final FrameProfiler profiler;
+
+    // profileOut may be null to run without profiling.
+    public HeadlessServer(float tickRate, boolean realtime, boolean fire, Path profileOut) {
+        this.world = new GameWorld(true);
+        this.tickRate = tickRate;
+        this.realtime = realtime;
+        this.fire = fire;
+        this.profileOut = profileOut;
+        this.profiler = new FrameProfiler(PROFILE_TICKS, profileOut != null);
+        world.setProfiler(profiler);
+    }
+
+    public GameWorld getWorld() {
+        return world;
+    }
+
+    // Runs the given number of ticks, or forever if ticks is zero or negative.
+    public void run(long ticks) {
+        FixedTimestep timestep = new FixedTimestep(tickRate, 5);
+        float dt = timestep.getTickDuration();
+        long tickNanos = (long) (1_000_000_000L / tickRate);
+
+        long start = System.nanoTime();
+        long lastStatus = start;
+        long lastFrame = start;
+        long done = 0;
+
+        while (ticks <= 0 || done < ticks) {
+            int due = 1;
+            if (realtime) {
+                long now = System.nanoTime();
+                due = timestep.advance((now - lastFrame) / 1_000_000_000.0f);
+                lastFrame = now;
+                if (due == 0) {
+                    LockSupport.parkNanos(tickNanos / 4);
+                    continue;
+                }
+            }
+
+            for (; due > 0 && (ticks <= 0 || done < ticks); due--) {
+                profiler.beginFrame();
+                world.tick(dt);
+                if (fire) {
+                    world.firePlayerWeapon();
+                }
+                profiler.endFrame();
+                done++;
+            }
+
+            long now = System.nanoTime();
+            if (now - lastStatus >= STATUS_INTERVAL_NANOS) {
+                printStatus(done, now - start);
+                lastStatus = now;
+            }
+        }
+
+        printStatus(done, System.nanoTime() - start);
+        if (profiler.isEnabled()) {
+            writeProfile();
+        }
+    }
+
+    private void writeProfile() {
+        profiler.printSummary(System.out);
+        try {
+            profiler.writeCsv(profileOut);
+        } catch (IOException e) {
+            System.err.println("Failed to write profile: " + e.getMessage());
+        }
+    }
+
+    private void printStatus(long ticks, long elapsedNanos) {
+        double seconds = elapsedNanos / 1_000_000_000.0;
+        System.out.printf("%d ticks in %.2f s (%.1f ticks/s), %d entities, %d projectiles%n",
+                ticks, seconds, ticks / Math.max(seconds, 1e-9), world.getEcs().getEntityCount(),
+                world.getProjectilePool().getActiveCount());
+    }
+
+    public static void main(String[] args) {
+        long ticks = 0;
+        float tickRate = 60.0f;
+        boolean realtime = false;
+        boolean fire = false;
+        Path profileOut = null;
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--ticks" -> ticks = Long.parseLong(args[++i]);
+                case "--tick-rate" -> tickRate = Float.parseFloat(args[++i]);
+                case "--realtime" -> realtime = true;
+                case "--fire" -> fire = true;
+                case "--profile" -> profileOut = Path.of(args[++i]);
+                default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        new HeadlessServer(tickRate, realtime, fire, profileOut).run(ticks);
+    }
+}
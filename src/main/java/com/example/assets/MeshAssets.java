@@ -0,0 +1,80 @@
+package com.example.assets;
+
+import java.io.*;
+import java.nio.file.*;
+
+// Loads model files through the binary mesh cache. The first load of a model
+// imports it with Assimp and writes its cache file; later loads map that file,
+// which takes milliseconds instead of seconds of parsing. A cache older than
+// its source is rebuilt. A cache whose source is missing is still used, so a
+// build can ship caches alone.
+//
+// A model under the asset root is cached at <cacheDir>/<path from the root>.mesh,
+// so enemies/body.obj and props/body.obj get caches of their own. A model
+// outside the root is cached by file name plus a hash of its absolute path.
+//
+// Caches can also be built ahead of time:
+//     java -cp ... com.example.assets.MeshAssets <cacheDir> <assetDir> <model>...
+public class MeshAssets {
+    private static final String CACHE_EXTENSION = ".mesh";
+
+    private final Path cacheDir;
+    private final Path assetRoot;
+
+    // Keys caches on paths relative to the working directory.
+    public MeshAssets(Path cacheDir) {
+        this(cacheDir, Paths.get(""));
+    }
+
+    public MeshAssets(Path cacheDir, Path assetRoot) {
+        this.cacheDir = cacheDir;
+        this.assetRoot = assetRoot.toAbsolutePath().normalize();
+    }
+
+    public MeshData load(Path source) throws IOException {
+        Path cache = cacheFileOf(source);
+        if (Files.exists(cache) && (!Files.exists(source)
+                || Files.getLastModifiedTime(cache).compareTo(Files.getLastModifiedTime(source)) >= 0)) {
+            try {
+                return MeshCache.map(cache);
+            } catch (IOException e) {
+                // A stale or damaged cache is rebuilt below if the source is here.
+                if (!Files.exists(source))
+                    throw e;
+            }
+        }
+        return rebuild(source);
+    }
+
+    // Imports the source and rewrites its cache, returning the mapped result.
+    public MeshData rebuild(Path source) throws IOException {
+        Path cache = cacheFileOf(source);
+        MeshCache.write(cache, MeshImporter.importFile(source));
+        return MeshCache.map(cache);
+    }
+
+    public Path cacheFileOf(Path source) {
+        Path absolute = source.toAbsolutePath().normalize();
+        if (absolute.startsWith(assetRoot) && !absolute.equals(assetRoot)) {
+            return cacheDir.resolve(assetRoot.relativize(absolute).toString() + CACHE_EXTENSION);
+        }
+        return cacheDir.resolve(String.format("%s.%08x%s", absolute.getFileName(), absolute.toString().hashCode(),
+                CACHE_EXTENSION));
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3) {
+            System.err.println("Usage: MeshAssets <cacheDir> <assetDir> <model>...");
+            System.exit(1);
+        }
+
+        MeshAssets assets = new MeshAssets(Paths.get(args[0]), Paths.get(args[1]));
+        for (int i = 2; i < args.length; i++) {
+            Path source = Paths.get(args[i]);
+            long start = System.nanoTime();
+            MeshData mesh = assets.rebuild(source);
+            System.out.printf("%s: %d vertices, %d triangles in %.1f ms%n", assets.cacheFileOf(source),
+                    mesh.getVertexCount(), mesh.getIndexCount() / 3, (System.nanoTime() - start) / 1e6);
+        }
+    }
+}
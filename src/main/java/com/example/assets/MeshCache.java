@@ -0,0 +1,82 @@
+package com.example.assets;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.file.*;
+
+// Binary mesh cache files. A file is a fixed header followed by the vertex and
+// index bytes exactly as MeshData holds them, so loading maps the file and
+// slices it: nothing is parsed or copied, and the slices go straight to GL.
+// Everything is little-endian, which is every platform LWJGL runs on.
+//
+// Header, 64 bytes: magic, version, floats per vertex, vertex count, index
+// count as ints, then bounds min xyz, max xyz and bounding radius as floats,
+// then padding.
+public class MeshCache {
+    private static final int MAGIC = 0x48534D46; // "FMSH"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 64;
+
+    // Writes the mesh to a temporary file next to the target and moves it into
+    // place, so a reader never maps a half-written cache.
+    public static void write(Path file, MeshData mesh) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC);
+        header.putInt(VERSION);
+        header.putInt(MeshData.FLOATS_PER_VERTEX);
+        header.putInt(mesh.getVertexCount());
+        header.putInt(mesh.getIndexCount());
+        header.putFloat(mesh.getMinX()).putFloat(mesh.getMinY()).putFloat(mesh.getMinZ());
+        header.putFloat(mesh.getMaxX()).putFloat(mesh.getMaxY()).putFloat(mesh.getMaxZ());
+        header.putFloat(mesh.getBoundingRadius());
+        header.clear();
+
+        Path directory = file.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temporary = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                ByteBuffer[] parts = { header, mesh.getVertices(), mesh.getIndices() };
+                long remaining = HEADER_BYTES + parts[1].remaining() + parts[2].remaining();
+                while (remaining > 0) {
+                    remaining -= channel.write(parts);
+                }
+            }
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    // Maps a cache file read-only. The returned mesh's buffers are views of the
+    // mapping, which stays valid for as long as they are reachable.
+    public static MeshData map(Path file) throws IOException {
+        MappedByteBuffer mapped;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES || size > Integer.MAX_VALUE)
+                throw new IOException("Not a mesh cache: " + file);
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+        mapped.order(ByteOrder.LITTLE_ENDIAN);
+
+        if (mapped.getInt(0) != MAGIC)
+            throw new IOException("Not a mesh cache: " + file);
+        if (mapped.getInt(4) != VERSION || mapped.getInt(8) != MeshData.FLOATS_PER_VERTEX)
+            throw new IOException("Unsupported mesh cache version in " + file);
+
+        long vertexBytes = (long) mapped.getInt(12) * MeshData.VERTEX_BYTES;
+        long indexBytes = (long) mapped.getInt(16) * Integer.BYTES;
+        if (vertexBytes < 0 || indexBytes < 0 || HEADER_BYTES + vertexBytes + indexBytes != mapped.capacity())
+            throw new IOException("Truncated mesh cache: " + file);
+
+        ByteBuffer vertices = mapped.slice(HEADER_BYTES, (int) vertexBytes).order(ByteOrder.LITTLE_ENDIAN);
+        ByteBuffer indices = mapped.slice(HEADER_BYTES + (int) vertexBytes, (int) indexBytes)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        return new MeshData(vertices, indices,
+                mapped.getFloat(20), mapped.getFloat(24), mapped.getFloat(28),
+                mapped.getFloat(32), mapped.getFloat(36), mapped.getFloat(40),
+                mapped.getFloat(44));
+    }
+}
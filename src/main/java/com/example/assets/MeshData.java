@@ -0,0 +1,119 @@
+package com.example.assets;
+
+import java.nio.*;
+
+// Mesh geometry ready for upload: interleaved vertices of position and color,
+// six floats each, and 32-bit triangle indices, both in direct little-endian
+// buffers that GL can read as they are. Bounds are in model space. Holds no GL
+// state, so it can be built, cached and inspected without a GPU.
+public class MeshData {
+    public static final int FLOATS_PER_VERTEX = 6;
+    public static final int VERTEX_BYTES = FLOATS_PER_VERTEX * Float.BYTES;
+
+    private final ByteBuffer vertices;
+    private final ByteBuffer indices;
+    private final int vertexCount;
+    private final int indexCount;
+    private final float minX, minY, minZ, maxX, maxY, maxZ;
+    private final float boundingRadius;
+
+    MeshData(ByteBuffer vertices, ByteBuffer indices, float minX, float minY, float minZ, float maxX, float maxY,
+            float maxZ, float boundingRadius) {
+        this.vertices = vertices;
+        this.indices = indices;
+        this.vertexCount = vertices.remaining() / VERTEX_BYTES;
+        this.indexCount = indices.remaining() / Integer.BYTES;
+        this.minX = minX;
+        this.minY = minY;
+        this.minZ = minZ;
+        this.maxX = maxX;
+        this.maxY = maxY;
+        this.maxZ = maxZ;
+        this.boundingRadius = boundingRadius;
+    }
+
+    // Copies arrays laid out the way the procedural meshes build them, and
+    // works out their bounds.
+    public static MeshData of(float[] vertices, int[] indices) {
+        if (vertices.length % FLOATS_PER_VERTEX != 0)
+            throw new IllegalArgumentException("Vertex data is not a whole number of vertices: " + vertices.length);
+
+        ByteBuffer vertexBuffer = ByteBuffer.allocateDirect(vertices.length * Float.BYTES)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        vertexBuffer.asFloatBuffer().put(vertices);
+        ByteBuffer indexBuffer = ByteBuffer.allocateDirect(indices.length * Integer.BYTES)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        indexBuffer.asIntBuffer().put(indices);
+        return withBounds(vertexBuffer, indexBuffer);
+    }
+
+    // Wraps filled buffers, computing bounds from the vertex positions.
+    static MeshData withBounds(ByteBuffer vertices, ByteBuffer indices) {
+        float minX = Float.POSITIVE_INFINITY, minY = Float.POSITIVE_INFINITY, minZ = Float.POSITIVE_INFINITY;
+        float maxX = Float.NEGATIVE_INFINITY, maxY = Float.NEGATIVE_INFINITY, maxZ = Float.NEGATIVE_INFINITY;
+        float maxDistanceSquared = 0.0f;
+        int start = vertices.position();
+        for (int o = start; o < vertices.limit(); o += VERTEX_BYTES) {
+            float x = vertices.getFloat(o), y = vertices.getFloat(o + 4), z = vertices.getFloat(o + 8);
+            minX = Math.min(minX, x);
+            minY = Math.min(minY, y);
+            minZ = Math.min(minZ, z);
+            maxX = Math.max(maxX, x);
+            maxY = Math.max(maxY, y);
+            maxZ = Math.max(maxZ, z);
+            maxDistanceSquared = Math.max(maxDistanceSquared, x * x + y * y + z * z);
+        }
+        if (vertices.limit() == start) {
+            minX = minY = minZ = maxX = maxY = maxZ = 0.0f;
+        }
+        return new MeshData(vertices, indices, minX, minY, minZ, maxX, maxY, maxZ,
+                (float) Math.sqrt(maxDistanceSquared));
+    }
+
+    // The vertex bytes, positioned at the first vertex. Each call returns an
+    // independent view, so readers do not disturb each other.
+    public ByteBuffer getVertices() {
+        return vertices.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    public ByteBuffer getIndices() {
+        return indices.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    public int getVertexCount() {
+        return vertexCount;
+    }
+
+    public int getIndexCount() {
+        return indexCount;
+    }
+
+    public float getMinX() {
+        return minX;
+    }
+
+    public float getMinY() {
+        return minY;
+    }
+
+    public float getMinZ() {
+        return minZ;
+    }
+
+    public float getMaxX() {
+        return maxX;
+    }
+
+    public float getMaxY() {
+        return maxY;
+    }
+
+    public float getMaxZ() {
+        return maxZ;
+    }
+
+    // Radius of the smallest origin-centred sphere holding every vertex.
+    public float getBoundingRadius() {
+        return boundingRadius;
+    }
+}
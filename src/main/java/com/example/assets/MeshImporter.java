@@ -0,0 +1,101 @@
+package com.example.assets;
+
+import static org.lwjgl.assimp.Assimp.*;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.file.*;
+
+import org.lwjgl.PointerBuffer;
+import org.lwjgl.assimp.*;
+
+// Imports a model file with Assimp into one MeshData. Assimp triangulates,
+// welds identical vertices, drops degenerate triangles, flattens the node
+// hierarchy into model space and reorders triangles for the vertex cache, so
+// the result is ready to draw. Every triangle mesh in the scene is merged.
+// Colors come from the first vertex color set, else the material's diffuse
+// color, else white. This is the slow path; MeshAssets caches its output.
+public class MeshImporter {
+    private static final int FLAGS = aiProcess_Triangulate | aiProcess_JoinIdenticalVertices
+            | aiProcess_PreTransformVertices | aiProcess_SortByPType | aiProcess_FindDegenerates
+            | aiProcess_ImproveCacheLocality | aiProcess_OptimizeMeshes | aiProcess_ValidateDataStructure;
+
+    public static MeshData importFile(Path source) throws IOException {
+        AIScene scene = aiImportFile(source.toAbsolutePath().toString(), FLAGS);
+        if (scene == null || (scene.mFlags() & AI_SCENE_FLAGS_INCOMPLETE) != 0)
+            throw new IOException("Could not import " + source + ": " + aiGetErrorString());
+
+        try {
+            return merge(scene);
+        } finally {
+            aiReleaseImport(scene);
+        }
+    }
+
+    private static MeshData merge(AIScene scene) {
+        PointerBuffer meshes = scene.mMeshes();
+        int meshCount = scene.mNumMeshes();
+
+        int vertexCount = 0;
+        int indexCount = 0;
+        for (int i = 0; i < meshCount; i++) {
+            AIMesh mesh = AIMesh.create(meshes.get(i));
+            if ((mesh.mPrimitiveTypes() & aiPrimitiveType_TRIANGLE) == 0)
+                continue;
+            vertexCount += mesh.mNumVertices();
+            indexCount += mesh.mNumFaces() * 3;
+        }
+
+        ByteBuffer vertices = ByteBuffer.allocateDirect(vertexCount * MeshData.VERTEX_BYTES)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        ByteBuffer indices = ByteBuffer.allocateDirect(indexCount * Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        AIColor4D diffuse = AIColor4D.create();
+
+        int base = 0;
+        for (int i = 0; i < meshCount; i++) {
+            AIMesh mesh = AIMesh.create(meshes.get(i));
+            if ((mesh.mPrimitiveTypes() & aiPrimitiveType_TRIANGLE) == 0)
+                continue;
+
+            float red = 1.0f, green = 1.0f, blue = 1.0f;
+            AIColor4D.Buffer colors = mesh.mColors(0);
+            if (colors == null && mesh.mMaterialIndex() < scene.mNumMaterials()) {
+                AIMaterial material = AIMaterial.create(scene.mMaterials().get(mesh.mMaterialIndex()));
+                if (aiGetMaterialColor(material, AI_MATKEY_COLOR_DIFFUSE, aiTextureType_NONE, 0,
+                        diffuse) == aiReturn_SUCCESS) {
+                    red = diffuse.r();
+                    green = diffuse.g();
+                    blue = diffuse.b();
+                }
+            }
+
+            AIVector3D.Buffer positions = mesh.mVertices();
+            for (int v = 0, n = mesh.mNumVertices(); v < n; v++) {
+                AIVector3D position = positions.get(v);
+                vertices.putFloat(position.x()).putFloat(position.y()).putFloat(position.z());
+                if (colors != null) {
+                    AIColor4D color = colors.get(v);
+                    vertices.putFloat(color.r()).putFloat(color.g()).putFloat(color.b());
+                } else {
+                    vertices.putFloat(red).putFloat(green).putFloat(blue);
+                }
+            }
+
+            // SortByPType leaves only triangles in a triangle mesh, but a face
+            // Assimp could not triangulate is dropped rather than misread.
+            AIFace.Buffer faces = mesh.mFaces();
+            for (int f = 0, n = mesh.mNumFaces(); f < n; f++) {
+                AIFace face = faces.get(f);
+                if (face.mNumIndices() != 3)
+                    continue;
+                IntBuffer corners = face.mIndices();
+                indices.putInt(base + corners.get(0)).putInt(base + corners.get(1)).putInt(base + corners.get(2));
+            }
+            base += mesh.mNumVertices();
+        }
+
+        vertices.flip();
+        indices.flip();
+        return MeshData.withBounds(vertices, indices);
+    }
+}
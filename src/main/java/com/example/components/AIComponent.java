@@ -2,6 +2,8 @@ package com.example.components;
 
 import org.joml.*;
 
+import com.example.navigation.NavPath;
+
 public class AIComponent implements Component {
     public enum AIState {
         PATROL,
@@ -20,4 +22,14 @@ public class AIComponent implements Component {
     public float detectionTime = 1.0f;
     public float timeSinceDetection = 0.0f;
     public int targetPlayerEntity = -1;
+    // Simulation time not yet applied because AISystem skipped this agent at a
+    // reduced level of detail.
+    public float pendingTime = 0.0f;
+    // Route to the target, set by PathService. pathIndex is the next corner to
+    // walk to and pathGoalCell the cell last requested, so the agent only asks
+    // again when its target changes cell.
+    public NavPath path;
+    public int pathIndex = 0;
+    public int pathGoalCell = -1;
+    public boolean pathPending = false;
 }
@@ -6,6 +6,7 @@ public class BulletComponent implements Component {
     public Vector3f velocity;
     public Vector3f acceleration;
     public float lifeTime; // seconds
+    public int owner = -1; // entity that fired it; never hit by its own bullet
 
     public BulletComponent(Vector3f velocity, Vector3f acceleration, float lifeTime) {
         this.velocity = velocity;
@@ -1,11 +1,21 @@
 package com.example.components;
 
+import com.example.physics.CollisionLayer;
+
 public class ColliderComponent implements Component {
     public float width, height, depth;
+    // Decides what the collider can hit, through the PhysicsWorld's
+    // CollisionMatrix.
+    public CollisionLayer layer;
 
     public ColliderComponent(float width, float height, float depth) {
+        this(width, height, depth, CollisionLayer.STATIC_WORLD);
+    }
+
+    public ColliderComponent(float width, float height, float depth, CollisionLayer layer) {
         this.width = width;
         this.height = height;
         this.depth = depth;
+        this.layer = layer;
     }
 }
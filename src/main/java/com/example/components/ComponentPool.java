@@ -0,0 +1,96 @@
+package com.example.components;
+
+import java.util.*;
+
+// Sparse-set storage for a single component type. The sparse table maps an
+// entity's slot index to its dense position, and the dense arrays keep entity
+// handles and components packed so systems can sweep them without hashing.
+public class ComponentPool<T extends Component> {
+    private static final int ABSENT = -1;
+
+    private final Class<T> type;
+    private int[] sparse = new int[64];
+    private int[] dense = new int[16];
+    private Component[] components = new Component[16];
+    private int size;
+
+    public ComponentPool(Class<T> type) {
+        this.type = type;
+        Arrays.fill(sparse, ABSENT);
+    }
+
+    public Class<T> getType() {
+        return type;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int entityAt(int index) {
+        return dense[index];
+    }
+
+    @SuppressWarnings("unchecked")
+    public T componentAt(int index) {
+        return (T) components[index];
+    }
+
+    // The stored handle is compared as well as the slot, so a stale handle whose
+    // slot has been recycled does not see the new entity's component.
+    public boolean has(int entity) {
+        if (entity < 0)
+            return false;
+
+        int index = ECSRegistry.entityIndex(entity);
+        return index < sparse.length && sparse[index] != ABSENT && dense[sparse[index]] == entity;
+    }
+
+    @SuppressWarnings("unchecked")
+    public T get(int entity) {
+        if (!has(entity))
+            return null;
+        return (T) components[sparse[ECSRegistry.entityIndex(entity)]];
+    }
+
+    void put(int entity, T component) {
+        int index = ECSRegistry.entityIndex(entity);
+        if (has(entity)) {
+            components[sparse[index]] = component;
+            return;
+        }
+
+        if (index >= sparse.length) {
+            int oldLength = sparse.length;
+            sparse = Arrays.copyOf(sparse, Math.max(index + 1, oldLength * 2));
+            Arrays.fill(sparse, oldLength, sparse.length, ABSENT);
+        }
+        if (size == dense.length) {
+            dense = Arrays.copyOf(dense, size * 2);
+            components = Arrays.copyOf(components, size * 2);
+        }
+
+        sparse[index] = size;
+        dense[size] = entity;
+        components[size] = component;
+        size++;
+    }
+
+    boolean remove(int entity) {
+        if (!has(entity))
+            return false;
+
+        // Swap the last element into the freed slot to keep the arrays packed.
+        int denseIndex = sparse[ECSRegistry.entityIndex(entity)];
+        int last = --size;
+        int lastEntity = dense[last];
+
+        dense[denseIndex] = lastEntity;
+        components[denseIndex] = components[last];
+        sparse[ECSRegistry.entityIndex(lastEntity)] = denseIndex;
+
+        components[last] = null;
+        sparse[ECSRegistry.entityIndex(entity)] = ABSENT;
+        return true;
+    }
+}
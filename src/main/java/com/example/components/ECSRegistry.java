@@ -2,37 +2,163 @@ package com.example.components;
 
 import java.util.*;
 
-// ECS registry that maps entity IDs to component maps.
+// ECS registry that stores each component type in its own sparse-set pool.
+//
+// Entity IDs are generational handles: the low bits are a slot index that is
+// recycled through a free list, the high bits count how many times the slot has
+// been reused. A handle kept after its entity was removed no longer matches the
+// slot's generation, so it cannot alias whatever entity reuses the slot.
 public class ECSRegistry {
-    private Map<Integer, Map<Class<? extends Component>, Component>> entities = new HashMap<>();
-    private int nextEntityId = 0;
+    public static final int INDEX_BITS = 20;
+    public static final int INDEX_MASK = (1 << INDEX_BITS) - 1;
+    // Eleven generation bits keep every handle non-negative, so -1 stays free
+    // as the "no entity" marker.
+    public static final int GENERATION_MASK = (1 << 11) - 1;
+
+    private final Map<Class<? extends Component>, ComponentPool<?>> pools = new HashMap<>();
+    private final List<ComponentPool<?>> poolList = new ArrayList<>();
+    private boolean[] alive = new boolean[64];
+    private int[] generations = new int[64];
+    private int[] freeIndices = new int[64];
+    private int freeCount = 0;
+    private int entityCount = 0;
+    private int nextIndex = 0;
+    private int[] pendingRemovals = new int[16];
+    private int pendingRemovalCount = 0;
+
+    public static int entityIndex(int entity) {
+        return entity & INDEX_MASK;
+    }
+
+    public static int entityGeneration(int entity) {
+        return (entity >>> INDEX_BITS) & GENERATION_MASK;
+    }
 
     public int createEntity() {
-        int id = nextEntityId++;
-        entities.put(id, new HashMap<>());
-        return id;
+        int index;
+        if (freeCount > 0) {
+            index = freeIndices[--freeCount];
+        } else {
+            if (nextIndex > INDEX_MASK)
+                throw new IllegalStateException("Out of entity slots");
+
+            index = nextIndex++;
+            if (index >= alive.length) {
+                alive = Arrays.copyOf(alive, alive.length * 2);
+                generations = Arrays.copyOf(generations, generations.length * 2);
+            }
+        }
+        alive[index] = true;
+        entityCount++;
+        return (generations[index] << INDEX_BITS) | index;
+    }
+
+    public boolean isAlive(int entity) {
+        if (entity < 0)
+            return false;
+
+        int index = entityIndex(entity);
+        return index < nextIndex && alive[index] && generations[index] == entityGeneration(entity);
     }
 
+    public int getEntityCount() {
+        return entityCount;
+    }
+
+    @SuppressWarnings("unchecked")
     public <T extends Component> void addComponent(int entity, T component) {
-        Map<Class<? extends Component>, Component> comps = entities.get(entity);
-        if (comps != null) {
-            comps.put(component.getClass(), component);
-        }
+        if (!isAlive(entity))
+            return;
+
+        ComponentPool<T> pool = (ComponentPool<T>) pool(component.getClass());
+        pool.put(entity, component);
     }
 
     public <T extends Component> T getComponent(int entity, Class<T> compClass) {
-        Map<Class<? extends Component>, Component> comps = entities.get(entity);
-        if (comps != null) {
-            return compClass.cast(comps.get(compClass));
+        @SuppressWarnings("unchecked")
+        ComponentPool<T> pool = (ComponentPool<T>) pools.get(compClass);
+        if (pool != null) {
+            return pool.get(entity);
         }
         return null;
     }
 
-    public Map<Integer, Map<Class<? extends Component>, Component>> getEntities() {
-        return entities;
+    public boolean hasComponent(int entity, Class<? extends Component> compClass) {
+        ComponentPool<?> pool = pools.get(compClass);
+        return pool != null && pool.has(entity);
+    }
+
+    public void removeComponent(int entity, Class<? extends Component> compClass) {
+        ComponentPool<?> pool = pools.get(compClass);
+        if (pool != null) {
+            pool.remove(entity);
+        }
+    }
+
+    // Returns the pool for a component type, creating it on first use. Systems can
+    // hold on to it for direct lookups that skip the type map.
+    @SuppressWarnings("unchecked")
+    public <T extends Component> ComponentPool<T> pool(Class<T> compClass) {
+        ComponentPool<T> pool = (ComponentPool<T>) pools.get(compClass);
+        if (pool == null) {
+            pool = new ComponentPool<>(compClass);
+            pools.put(compClass, pool);
+            poolList.add(pool);
+        }
+        return pool;
+    }
+
+    @SafeVarargs
+    public final EntityQuery query(Class<? extends Component>... compClasses) {
+        ComponentPool<?>[] queryPools = new ComponentPool<?>[compClasses.length];
+        for (int i = 0; i < compClasses.length; i++) {
+            queryPools[i] = pool(compClasses[i]);
+        }
+        return new EntityQuery(queryPools);
     }
 
     public void removeEntity(int entityId) {
-        entities.remove(entityId);
+        if (!isAlive(entityId))
+            return;
+
+        for (int i = 0; i < poolList.size(); i++) {
+            poolList.get(i).remove(entityId);
+        }
+
+        int index = entityIndex(entityId);
+        alive[index] = false;
+        generations[index] = (generations[index] + 1) & GENERATION_MASK;
+        if (freeCount == freeIndices.length) {
+            freeIndices = Arrays.copyOf(freeIndices, freeCount * 2);
+        }
+        freeIndices[freeCount++] = index;
+        entityCount--;
+    }
+
+    // Queues an entity for removal instead of removing it now, so systems running
+    // concurrently can retire entities without disturbing each other's
+    // iteration. Whoever runs the systems drains the queue between ticks.
+    public synchronized void removeEntityLater(int entity) {
+        if (pendingRemovalCount == pendingRemovals.length) {
+            pendingRemovals = Arrays.copyOf(pendingRemovals, pendingRemovalCount * 2);
+        }
+        pendingRemovals[pendingRemovalCount++] = entity;
+    }
+
+    public synchronized int getPendingRemovalCount() {
+        return pendingRemovalCount;
+    }
+
+    public synchronized int getPendingRemoval(int index) {
+        return pendingRemovals[index];
+    }
+
+    public synchronized void clearPendingRemovals() {
+        pendingRemovalCount = 0;
+    }
+
+    // Number of slots ever handed out; every live entity index is below this.
+    public int getCapacity() {
+        return nextIndex;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,60 @@
+package com.example.components;
+
+import java.util.*;
+
+// Matches the entities that own every component type of the query. Systems keep
+// one instance around and call collect() each frame, so the entity buffer is
+// reused instead of reallocated.
+public class EntityQuery {
+    private final ComponentPool<?>[] pools;
+    private int[] entities = new int[16];
+    private int size;
+
+    EntityQuery(ComponentPool<?>[] pools) {
+        this.pools = pools;
+    }
+
+    // Gathers the matching entities and returns how many there are. The result is
+    // a snapshot, so entities may be removed while walking it.
+    public int collect() {
+        size = 0;
+        if (pools.length == 0)
+            return 0;
+
+        // Drive the scan from the smallest pool and probe the others.
+        ComponentPool<?> driver = pools[0];
+        for (ComponentPool<?> pool : pools) {
+            if (pool.size() < driver.size()) {
+                driver = pool;
+            }
+        }
+
+        if (entities.length < driver.size()) {
+            entities = Arrays.copyOf(entities, Math.max(driver.size(), entities.length * 2));
+        }
+
+        for (int i = 0; i < driver.size(); i++) {
+            int entity = driver.entityAt(i);
+            if (matches(entity)) {
+                entities[size++] = entity;
+            }
+        }
+        return size;
+    }
+
+    public boolean matches(int entity) {
+        for (ComponentPool<?> pool : pools) {
+            if (!pool.has(entity))
+                return false;
+        }
+        return true;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int entity(int index) {
+        return entities[index];
+    }
+}
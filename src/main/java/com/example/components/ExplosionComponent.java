@@ -8,4 +8,13 @@ public class ExplosionComponent implements Component {
         this.lifetime = lifetime;
         this.maxLifetime = lifetime;
     }
+
+    // The explosion grows as it ages and fades out as its lifetime runs down.
+    public float scale() {
+        return 1.0f + (maxLifetime - lifetime) * 2.0f;
+    }
+
+    public float alpha() {
+        return lifetime / maxLifetime;
+    }
 }
\ No newline at end of file
@@ -3,6 +3,8 @@ package com.example.components;
 public class TransformComponent implements Component {
     public float x, y, z;
     public float rotationX, rotationY, rotationZ;
+    // Position at the start of the current simulation tick, for interpolation.
+    public float prevX, prevY, prevZ;
 
     public TransformComponent(float x, float y, float z) {
         this.x = x;
@@ -11,5 +13,26 @@ public class TransformComponent implements Component {
         this.rotationX = 0;
         this.rotationY = 0;
         this.rotationZ = 0;
+        snapshot();
+    }
+
+    // Records the current position as the previous state. Called at the start of
+    // every tick, and after teleporting an entity so it does not slide there.
+    public void snapshot() {
+        prevX = x;
+        prevY = y;
+        prevZ = z;
+    }
+
+    public float interpolatedX(float alpha) {
+        return prevX + (x - prevX) * alpha;
+    }
+
+    public float interpolatedY(float alpha) {
+        return prevY + (y - prevY) * alpha;
+    }
+
+    public float interpolatedZ(float alpha) {
+        return prevZ + (z - prevZ) * alpha;
     }
 }
@@ -0,0 +1,158 @@
+package com.example.components;
+
+import java.util.*;
+
+// Opt-in struct-of-arrays transforms. For entities attached to the store, the
+// float columns here are the authoritative position, rotation and previous
+// position, indexed by entity slot (ECSRegistry.entityIndex), so sweeps over
+// them run on contiguous primitive arrays instead of one heap object each.
+//
+// Java cannot point a field at another storage, so an attached entity keeps its
+// TransformComponent as a view: publish() refreshes the views' fields from the
+// columns, and code that only reads transform.x keeps working unchanged. Code
+// that moves an attached entity must write the columns; a write to the view's
+// fields is overwritten by the next publish().
+public class TransformStore {
+    private static final int ABSENT = -1;
+
+    // Columns, indexed by entity slot. Public so sweeps can read them directly.
+    public float[] x = new float[64];
+    public float[] y = new float[64];
+    public float[] z = new float[64];
+    public float[] rotationX = new float[64];
+    public float[] rotationY = new float[64];
+    public float[] rotationZ = new float[64];
+    public float[] prevX = new float[64];
+    public float[] prevY = new float[64];
+    public float[] prevZ = new float[64];
+
+    // Handle attached at each slot, and its position in the attached list.
+    private int[] entities = new int[64];
+    private int[] rows = new int[64];
+    private TransformComponent[] views = new TransformComponent[64];
+    // Slots of every attached entity, packed for publish() and detach().
+    private int[] attached = new int[16];
+    private int count;
+    // Every attached slot is below this, so whole-column sweeps stop here.
+    private int highWater;
+
+    public TransformStore() {
+        Arrays.fill(entities, ABSENT);
+    }
+
+    // Moves an entity's transform into the columns, taking the view's current
+    // values. Attaching an entity that is already attached only swaps its view.
+    public void attach(int entity, TransformComponent view) {
+        int slot = ECSRegistry.entityIndex(entity);
+        ensureCapacity(slot + 1);
+
+        if (entities[slot] == ABSENT) {
+            if (count == attached.length) {
+                attached = Arrays.copyOf(attached, count * 2);
+            }
+            rows[slot] = count;
+            attached[count++] = slot;
+        }
+        entities[slot] = entity;
+        views[slot] = view;
+        highWater = Math.max(highWater, slot + 1);
+
+        x[slot] = view.x;
+        y[slot] = view.y;
+        z[slot] = view.z;
+        rotationX[slot] = view.rotationX;
+        rotationY[slot] = view.rotationY;
+        rotationZ[slot] = view.rotationZ;
+        prevX[slot] = view.prevX;
+        prevY[slot] = view.prevY;
+        prevZ[slot] = view.prevZ;
+    }
+
+    // Hands the transform back to its component, which keeps the last published
+    // values. Entities that are not attached are ignored.
+    public void detach(int entity) {
+        if (!contains(entity))
+            return;
+
+        int slot = ECSRegistry.entityIndex(entity);
+        int row = rows[slot];
+        int lastSlot = attached[--count];
+        attached[row] = lastSlot;
+        rows[lastSlot] = row;
+
+        entities[slot] = ABSENT;
+        views[slot] = null;
+    }
+
+    // The handle is compared as well as the slot, so a stale handle whose slot
+    // was recycled does not see the new entity's row.
+    public boolean contains(int entity) {
+        if (entity < 0)
+            return false;
+
+        int slot = ECSRegistry.entityIndex(entity);
+        return slot < entities.length && entities[slot] == entity;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public int getHighWater() {
+        return highWater;
+    }
+
+    public void setPosition(int entity, float x, float y, float z) {
+        int slot = ECSRegistry.entityIndex(entity);
+        this.x[slot] = x;
+        this.y[slot] = y;
+        this.z[slot] = z;
+    }
+
+    // Records every current position as the previous one, the column form of
+    // TransformComponent.snapshot(). Rows of detached slots are copied too,
+    // which is harmless and keeps the loop a plain array copy.
+    public void snapshot() {
+        System.arraycopy(x, 0, prevX, 0, highWater);
+        System.arraycopy(y, 0, prevY, 0, highWater);
+        System.arraycopy(z, 0, prevZ, 0, highWater);
+    }
+
+    // Copies the columns into every attached entity's view.
+    public void publish() {
+        for (int i = 0; i < count; i++) {
+            int slot = attached[i];
+            TransformComponent view = views[slot];
+            view.x = x[slot];
+            view.y = y[slot];
+            view.z = z[slot];
+            view.rotationX = rotationX[slot];
+            view.rotationY = rotationY[slot];
+            view.rotationZ = rotationZ[slot];
+            view.prevX = prevX[slot];
+            view.prevY = prevY[slot];
+            view.prevZ = prevZ[slot];
+        }
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= entities.length)
+            return;
+
+        int oldLength = entities.length;
+        int length = Math.max(capacity, oldLength * 2);
+        x = Arrays.copyOf(x, length);
+        y = Arrays.copyOf(y, length);
+        z = Arrays.copyOf(z, length);
+        rotationX = Arrays.copyOf(rotationX, length);
+        rotationY = Arrays.copyOf(rotationY, length);
+        rotationZ = Arrays.copyOf(rotationZ, length);
+        prevX = Arrays.copyOf(prevX, length);
+        prevY = Arrays.copyOf(prevY, length);
+        prevZ = Arrays.copyOf(prevZ, length);
+        entities = Arrays.copyOf(entities, length);
+        Arrays.fill(entities, oldLength, length, ABSENT);
+        rows = Arrays.copyOf(rows, length);
+        views = Arrays.copyOf(views, length);
+    }
+}
@@ -10,6 +10,9 @@ public class Camera {
     public Vector3f up;
     public Matrix4f projection;
     public Matrix4f view;
+    public float far;
+    // Scratch for the look-at point, so updating the view does not allocate.
+    private final Vector3f lookAtPoint = new Vector3f();
 
     public Camera(float fov, float aspect, float near, float far) {
         position = new Vector3f(0, 0, 0);
@@ -17,9 +20,10 @@ public class Camera {
         up = new Vector3f(0, 1, 0);
         projection = new Matrix4f().perspective((float) Math.toRadians(fov), aspect, near, far);
         view = new Matrix4f();
+        this.far = far;
     }
 
     public void updateView() {
-        view.identity().lookAt(position, new Vector3f(position).add(target), up);
+        view.identity().lookAt(position, position.add(target, lookAtPoint), up);
     }
 }
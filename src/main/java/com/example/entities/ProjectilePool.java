@@ -0,0 +1,266 @@
+package com.example.entities;
+
+import java.util.*;
+
+import org.joml.Vector3f;
+
+import com.bulletphysics.collision.dispatch.CollisionObject;
+import com.bulletphysics.collision.shapes.SphereShape;
+import com.bulletphysics.dynamics.RigidBody;
+import com.bulletphysics.dynamics.RigidBodyConstructionInfo;
+import com.bulletphysics.linearmath.Transform;
+import com.example.components.*;
+import com.example.physics.CollisionLayer;
+import com.example.physics.PhysicsWorld;
+import com.example.physics.TrackedMotionState;
+import com.example.rendering.Mesh;
+
+// Pre-allocated projectiles. Every slot owns its rigid body, motion state and
+// components up front, and all bodies share one collision shape. Spawning a
+// projectile only creates an ECS entity (which reuses a recycled slot) and
+// re-attaches the slot's components, so sustained fire does not allocate.
+// In-flight projectiles keep their transforms in a TransformStore.
+public class ProjectilePool {
+    public static final float RADIUS = 0.2f;
+    public static final float MASS = 1.0f;
+
+    // What spawn() does when every slot is in flight.
+    public enum OverflowPolicy {
+        // Reuse the projectile that has been alive the longest.
+        RECYCLE_OLDEST,
+        // Refuse the new projectile.
+        DROP,
+        // Allocate more slots, doubling the capacity.
+        GROW
+    }
+
+    private static class Projectile {
+        RigidBody body;
+        TrackedMotionState motionState;
+        TransformComponent transform;
+        MeshComponent mesh;
+        PhysicsComponent physics;
+        ColliderComponent collider;
+        BulletComponent bullet;
+        int entity = -1;
+        // Neighbours in the in-flight list, oldest first, or -1.
+        int older = -1, newer = -1;
+        // Where the body starts on its next launch. The reset runs through
+        // PhysicsWorld.submit(), since with a physics thread the body may only
+        // be touched there.
+        float launchX, launchY, launchZ;
+        float launchVelocityX, launchVelocityY, launchVelocityZ;
+        Runnable launch;
+    }
+
+    private final ECSRegistry ecs;
+    private final PhysicsWorld physicsWorld;
+    private final TransformStore transformStore;
+    private final Mesh mesh;
+    private final OverflowPolicy overflowPolicy;
+    private final SphereShape shape = new SphereShape(RADIUS);
+    private final javax.vecmath.Vector3f localInertia = new javax.vecmath.Vector3f(0, 0, 0);
+
+    private Projectile[] projectiles;
+    private int[] freeSlots;
+    private int freeCount;
+    // Slot of the projectile that owns each entity index, or -1.
+    private int[] slotByEntity = new int[64];
+    // In-flight slots in spawn order, linked through the projectiles, so the
+    // oldest one is found without a scan.
+    private int oldest = -1, newest = -1;
+
+    private final Transform scratchTransform = new Transform();
+    private final javax.vecmath.Vector3f scratchVelocity = new javax.vecmath.Vector3f();
+    private final javax.vecmath.Vector3f zero = new javax.vecmath.Vector3f(0, 0, 0);
+
+    public ProjectilePool(ECSRegistry ecs, PhysicsWorld physicsWorld, TransformStore transformStore, Mesh mesh,
+            int capacity, OverflowPolicy overflowPolicy) {
+        if (capacity <= 0)
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+
+        this.ecs = ecs;
+        this.physicsWorld = physicsWorld;
+        this.transformStore = transformStore;
+        this.mesh = mesh;
+        this.overflowPolicy = overflowPolicy;
+        shape.calculateLocalInertia(MASS, localInertia);
+
+        projectiles = new Projectile[0];
+        freeSlots = new int[0];
+        Arrays.fill(slotByEntity, -1);
+        allocate(capacity);
+    }
+
+    public int getCapacity() {
+        return projectiles.length;
+    }
+
+    public int getActiveCount() {
+        return projectiles.length - freeCount;
+    }
+
+    // Launches a projectile and returns its entity, or -1 if the pool is full and
+    // the overflow policy is DROP.
+    public int spawn(int owner, float x, float y, float z, float velocityX, float velocityY, float velocityZ,
+            float lifeTime) {
+        if (freeCount == 0) {
+            switch (overflowPolicy) {
+                case DROP -> {
+                    return -1;
+                }
+                case RECYCLE_OLDEST -> release(projectiles[oldest].entity);
+                case GROW -> allocate(projectiles.length);
+            }
+        }
+
+        int slot = freeSlots[--freeCount];
+        Projectile projectile = projectiles[slot];
+
+        projectile.transform.x = x;
+        projectile.transform.y = y;
+        projectile.transform.z = z;
+        projectile.transform.snapshot();
+        projectile.bullet.velocity.set(velocityX, velocityY, velocityZ);
+        projectile.bullet.acceleration.zero();
+        projectile.bullet.lifeTime = lifeTime;
+        projectile.bullet.owner = owner;
+
+        int entity = ecs.createEntity();
+        ecs.addComponent(entity, projectile.transform);
+        ecs.addComponent(entity, projectile.mesh);
+        ecs.addComponent(entity, projectile.physics);
+        ecs.addComponent(entity, projectile.collider);
+        ecs.addComponent(entity, projectile.bullet);
+        transformStore.attach(entity, projectile.transform);
+
+        // Tag before adding so the body's snapshots name the new entity.
+        PhysicsWorld.tagEntity(projectile.body, entity);
+        projectile.launchX = x;
+        projectile.launchY = y;
+        projectile.launchZ = z;
+        projectile.launchVelocityX = velocityX;
+        projectile.launchVelocityY = velocityY;
+        projectile.launchVelocityZ = velocityZ;
+        physicsWorld.submit(projectile.launch);
+        physicsWorld.addRigidBody(projectile.body, CollisionLayer.PROJECTILE);
+
+        projectile.entity = entity;
+        link(slot);
+        int index = ECSRegistry.entityIndex(entity);
+        if (index >= slotByEntity.length) {
+            int oldLength = slotByEntity.length;
+            slotByEntity = Arrays.copyOf(slotByEntity, Math.max(index + 1, oldLength * 2));
+            Arrays.fill(slotByEntity, oldLength, slotByEntity.length, -1);
+        }
+        slotByEntity[index] = slot;
+        return entity;
+    }
+
+    public boolean owns(int entity) {
+        return slotOf(entity) != -1;
+    }
+
+    // Returns a projectile to the pool after a hit or when its lifetime runs out.
+    // Entities that do not belong to the pool are ignored.
+    public void release(int entity) {
+        int slot = slotOf(entity);
+        if (slot == -1)
+            return;
+
+        Projectile projectile = projectiles[slot];
+        physicsWorld.removeRigidBody(projectile.body);
+        transformStore.detach(entity);
+        ecs.removeEntity(entity);
+
+        slotByEntity[ECSRegistry.entityIndex(entity)] = -1;
+        PhysicsWorld.tagEntity(projectile.body, PhysicsWorld.NO_ENTITY);
+        projectile.entity = -1;
+        unlink(slot);
+        freeSlots[freeCount++] = slot;
+    }
+
+    // Appends a slot to the in-flight list as its newest entry.
+    private void link(int slot) {
+        Projectile projectile = projectiles[slot];
+        projectile.older = newest;
+        projectile.newer = -1;
+        if (newest != -1) {
+            projectiles[newest].newer = slot;
+        } else {
+            oldest = slot;
+        }
+        newest = slot;
+    }
+
+    private void unlink(int slot) {
+        Projectile projectile = projectiles[slot];
+        if (projectile.older != -1) {
+            projectiles[projectile.older].newer = projectile.newer;
+        } else {
+            oldest = projectile.newer;
+        }
+        if (projectile.newer != -1) {
+            projectiles[projectile.newer].older = projectile.older;
+        } else {
+            newest = projectile.older;
+        }
+        projectile.older = -1;
+        projectile.newer = -1;
+    }
+
+    // Resets the body to its staged launch state. Runs wherever the physics
+    // world applies changes.
+    private void launch(Projectile projectile) {
+        scratchTransform.setIdentity();
+        scratchTransform.origin.set(projectile.launchX, projectile.launchY, projectile.launchZ);
+        projectile.motionState.setWorldTransform(scratchTransform);
+        projectile.body.setCenterOfMassTransform(scratchTransform);
+        projectile.body.clearForces();
+        projectile.body.setAngularVelocity(zero);
+        scratchVelocity.set(projectile.launchVelocityX, projectile.launchVelocityY, projectile.launchVelocityZ);
+        projectile.body.setLinearVelocity(scratchVelocity);
+        projectile.body.forceActivationState(CollisionObject.ACTIVE_TAG);
+    }
+
+    private int slotOf(int entity) {
+        if (entity < 0)
+            return -1;
+
+        int index = ECSRegistry.entityIndex(entity);
+        if (index >= slotByEntity.length)
+            return -1;
+
+        int slot = slotByEntity[index];
+        if (slot == -1 || projectiles[slot].entity != entity)
+            return -1;
+        return slot;
+    }
+
+    private void allocate(int count) {
+        int start = projectiles.length;
+        projectiles = Arrays.copyOf(projectiles, start + count);
+        freeSlots = Arrays.copyOf(freeSlots, start + count);
+
+        Transform identity = new Transform();
+        identity.setIdentity();
+        for (int i = start; i < projectiles.length; i++) {
+            Projectile projectile = new Projectile();
+            projectile.motionState = new TrackedMotionState(identity);
+            projectile.body = new RigidBody(
+                    new RigidBodyConstructionInfo(MASS, projectile.motionState, shape, localInertia));
+            projectile.transform = new TransformComponent(0.0f, 0.0f, 0.0f);
+            projectile.mesh = new MeshComponent(mesh);
+            projectile.physics = new PhysicsComponent(projectile.body);
+            projectile.collider = new ColliderComponent(RADIUS, RADIUS, RADIUS, CollisionLayer.PROJECTILE);
+            projectile.bullet = new BulletComponent(new Vector3f(), new Vector3f(), 0.0f);
+            projectile.launch = () -> launch(projectile);
+            projectiles[i] = projectile;
+        }
+
+        // Hand out the lowest slots first.
+        for (int i = projectiles.length - 1; i >= start; i--) {
+            freeSlots[freeCount++] = i;
+        }
+    }
+}
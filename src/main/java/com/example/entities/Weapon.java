@@ -1,14 +1,28 @@
 package com.example.entities;
 
-import com.example.components.*;
-import com.example.physics.*;
-import com.example.rendering.*;
-
 public abstract class Weapon {
+    public enum FireMode {
+        // Launches a physics projectile from the pool.
+        PROJECTILE,
+        // Queues an instant ray that is resolved with the rest of the tick's shots.
+        HITSCAN
+    }
+
     protected float damage;
     protected float bulletSpeed;
+    protected float bulletLifetime = 3.0f;
+    protected float range = 100.0f;
+    protected FireMode fireMode = FireMode.PROJECTILE;
+
+    public FireMode getFireMode() {
+        return fireMode;
+    }
+
+    public void setFireMode(FireMode fireMode) {
+        this.fireMode = fireMode;
+    }
 
-    public abstract void fire(ECSRegistry ecs, PhysicsWorld physicsWorld, Mesh bulletMesh,
+    public abstract void fire(int shooter,
             float startX, float startY, float startZ,
             float directionX, float directionY, float directionZ);
-}
\ No newline at end of file
+}
@@ -0,0 +1,139 @@
+package com.example.navigation;
+
+import com.bulletphysics.collision.broadphase.CollisionFilterGroups;
+import com.example.physics.*;
+
+// Walkable grid over the XZ plane, baked once from the static geometry in a
+// PhysicsWorld. Cells are numbered row by row: cell = z * width + x.
+public class NavGrid {
+    public static final int NO_CELL = -1;
+
+    private final float originX, originZ;
+    private final float cellSize;
+    private final int width, depth;
+    private final boolean[] blocked;
+
+    public NavGrid(float originX, float originZ, int width, int depth, float cellSize) {
+        if (width <= 0 || depth <= 0)
+            throw new IllegalArgumentException("Grid must have at least one cell: " + width + "x" + depth);
+        if (cellSize <= 0)
+            throw new IllegalArgumentException("Cell size must be positive: " + cellSize);
+
+        this.originX = originX;
+        this.originZ = originZ;
+        this.width = width;
+        this.depth = depth;
+        this.cellSize = cellSize;
+        this.blocked = new boolean[width * depth];
+    }
+
+    // Marks a cell blocked when static geometry crosses either of its diagonals
+    // at probeHeight, which should be about an agent's chest height. All probes
+    // are cast as one batch.
+    public static NavGrid bake(PhysicsWorld physicsWorld, float originX, float originZ, int width, int depth,
+            float cellSize, float probeHeight) {
+        NavGrid grid = new NavGrid(originX, originZ, width, depth, cellSize);
+
+        RayBatch probes = new RayBatch(width * depth * 2);
+        probes.filterMask = CollisionFilterGroups.STATIC_FILTER;
+        for (int z = 0; z < depth; z++) {
+            for (int x = 0; x < width; x++) {
+                float x0 = originX + x * cellSize, x1 = x0 + cellSize;
+                float z0 = originZ + z * cellSize, z1 = z0 + cellSize;
+                probes.add(x0, probeHeight, z0, x1, probeHeight, z1);
+                probes.add(x1, probeHeight, z0, x0, probeHeight, z1);
+            }
+        }
+        physicsWorld.raycast(probes);
+
+        for (int cell = 0; cell < grid.blocked.length; cell++) {
+            grid.blocked[cell] = probes.isHit(cell * 2) || probes.isHit(cell * 2 + 1);
+        }
+        return grid;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public int getCellCount() {
+        return blocked.length;
+    }
+
+    public float getCellSize() {
+        return cellSize;
+    }
+
+    // Cell containing the point, or NO_CELL outside the grid.
+    public int cellAt(float x, float z) {
+        int cx = (int) Math.floor((x - originX) / cellSize);
+        int cz = (int) Math.floor((z - originZ) / cellSize);
+        if (cx < 0 || cz < 0 || cx >= width || cz >= depth)
+            return NO_CELL;
+        return cz * width + cx;
+    }
+
+    public int cellX(int cell) {
+        return cell % width;
+    }
+
+    public int cellZ(int cell) {
+        return cell / width;
+    }
+
+    public float centerX(int cell) {
+        return originX + (cellX(cell) + 0.5f) * cellSize;
+    }
+
+    public float centerZ(int cell) {
+        return originZ + (cellZ(cell) + 0.5f) * cellSize;
+    }
+
+    public boolean isWalkable(int cell) {
+        return cell >= 0 && cell < blocked.length && !blocked[cell];
+    }
+
+    public void setBlocked(int cell, boolean isBlocked) {
+        blocked[cell] = isBlocked;
+    }
+
+    // True when every cell the straight line between the two cell centres
+    // passes through is walkable.
+    public boolean lineOfSight(int from, int to) {
+        int x = cellX(from), z = cellZ(from);
+        int endX = cellX(to), endZ = cellZ(to);
+        int dx = Math.abs(endX - x), dz = Math.abs(endZ - z);
+        int stepX = x < endX ? 1 : -1, stepZ = z < endZ ? 1 : -1;
+
+        // Walks every cell the segment touches, stepping in both axes at once
+        // only when it passes exactly through a corner.
+        int error = dx - dz;
+        dx *= 2;
+        dz *= 2;
+        while (true) {
+            if (blocked[z * width + x])
+                return false;
+            if (x == endX && z == endZ)
+                return true;
+
+            if (error > 0) {
+                x += stepX;
+                error -= dz;
+            } else if (error < 0) {
+                z += stepZ;
+                error += dx;
+            } else {
+                // Through a corner: both side cells must be open too.
+                if (blocked[z * width + x + stepX] || blocked[(z + stepZ) * width + x])
+                    return false;
+                x += stepX;
+                z += stepZ;
+                error += dx - dz;
+            }
+        }
+    }
+}
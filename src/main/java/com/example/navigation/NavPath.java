@@ -0,0 +1,40 @@
+package com.example.navigation;
+
+import java.util.*;
+
+// An immutable route through a NavGrid, stored as the cells of its corners:
+// consecutive cells have a clear line of sight between them. Paths are shared
+// through the PathCache, so nothing may modify one after it is built.
+public class NavPath {
+    private final int[] cells;
+
+    public NavPath(int[] cells) {
+        if (cells.length == 0)
+            throw new IllegalArgumentException("A path needs at least one cell");
+        this.cells = cells;
+    }
+
+    public int size() {
+        return cells.length;
+    }
+
+    public int cellAt(int index) {
+        return cells[index];
+    }
+
+    public int getStart() {
+        return cells[0];
+    }
+
+    public int getGoal() {
+        return cells[cells.length - 1];
+    }
+
+    // This path continued to a goal in sight of its current one, for targets
+    // that moved a short way since the path was found.
+    public NavPath extendedTo(int goal) {
+        int[] extended = Arrays.copyOf(cells, cells.length + 1);
+        extended[cells.length] = goal;
+        return new NavPath(extended);
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.navigation;
+
+import java.util.*;
+
+// Least-recently-used cache of paths keyed by start and goal cell, shared by
+// every agent so groups heading the same way search once.
+public class PathCache {
+    private final LinkedHashMap<Long, NavPath> paths;
+    private long hits;
+    private long misses;
+
+    public PathCache(int capacity) {
+        if (capacity <= 0)
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+
+        this.paths = new LinkedHashMap<>(capacity * 2, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, NavPath> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    // Returns the cached path, or null. A null result is not cached, so
+    // unreachable goals are searched again.
+    public NavPath get(int start, int goal) {
+        NavPath path = paths.get(key(start, goal));
+        if (path != null) {
+            hits++;
+        } else {
+            misses++;
+        }
+        return path;
+    }
+
+    public void put(NavPath path) {
+        paths.put(key(path.getStart(), path.getGoal()), path);
+    }
+
+    public void clear() {
+        paths.clear();
+    }
+
+    public int size() {
+        return paths.size();
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    private static long key(int start, int goal) {
+        return ((long) start << 32) | (goal & 0xffffffffL);
+    }
+}
@@ -0,0 +1,179 @@
+package com.example.navigation;
+
+import java.util.*;
+
+// A* over a NavGrid with 8-way movement. Diagonal steps may not cut the corner
+// of a blocked cell. Search state lives in arrays sized to the grid and is
+// invalidated by bumping a stamp, so a search allocates only the path it
+// returns. One PathFinder must not be used by two threads at once.
+public class PathFinder {
+    private static final float DIAGONAL_COST = (float) Math.sqrt(2.0);
+    private static final int[] STEP_X = { 1, -1, 0, 0, 1, 1, -1, -1 };
+    private static final int[] STEP_Z = { 0, 0, 1, -1, 1, -1, 1, -1 };
+
+    private final NavGrid grid;
+    private final float[] costFromStart;
+    private final int[] cameFrom;
+    private final int[] openStamp;
+    private final int[] closedStamp;
+    private int stamp;
+
+    // Binary min-heap on estimated total cost. Cells whose cost improves are
+    // pushed again and stale entries skipped when popped.
+    private int[] heapCell = new int[256];
+    private float[] heapCost = new float[256];
+    private int heapSize;
+
+    private int[] route = new int[256];
+    private int expanded;
+
+    public PathFinder(NavGrid grid) {
+        this.grid = grid;
+        int cells = grid.getCellCount();
+        this.costFromStart = new float[cells];
+        this.cameFrom = new int[cells];
+        this.openStamp = new int[cells];
+        this.closedStamp = new int[cells];
+    }
+
+    // Returns the shortest path between the two cells with every corner that has
+    // line of sight to the one before it removed, or null if the goal is
+    // blocked or unreachable. The start cell may be blocked, since an agent
+    // can be pushed slightly into geometry.
+    public NavPath find(int start, int goal) {
+        expanded = 0;
+        if (start == NavGrid.NO_CELL || !grid.isWalkable(goal))
+            return null;
+        if (start == goal)
+            return new NavPath(new int[] { goal });
+
+        stamp++;
+        heapSize = 0;
+        costFromStart[start] = 0;
+        cameFrom[start] = NavGrid.NO_CELL;
+        openStamp[start] = stamp;
+        push(start, heuristic(start, goal));
+
+        int width = grid.getWidth(), depth = grid.getDepth();
+        while (heapSize > 0) {
+            int cell = pop();
+            if (closedStamp[cell] == stamp)
+                continue;
+            if (cell == goal)
+                return smooth(start, goal);
+
+            closedStamp[cell] = stamp;
+            expanded++;
+
+            int x = grid.cellX(cell), z = grid.cellZ(cell);
+            for (int d = 0; d < 8; d++) {
+                int nx = x + STEP_X[d], nz = z + STEP_Z[d];
+                if (nx < 0 || nz < 0 || nx >= width || nz >= depth)
+                    continue;
+
+                int next = nz * width + nx;
+                if (!grid.isWalkable(next) || closedStamp[next] == stamp)
+                    continue;
+
+                float step = 1.0f;
+                if (d >= 4) {
+                    if (!grid.isWalkable(z * width + nx) || !grid.isWalkable(nz * width + x))
+                        continue;
+                    step = DIAGONAL_COST;
+                }
+
+                float cost = costFromStart[cell] + step;
+                if (openStamp[next] == stamp && cost >= costFromStart[next])
+                    continue;
+
+                openStamp[next] = stamp;
+                costFromStart[next] = cost;
+                cameFrom[next] = cell;
+                push(next, cost + heuristic(next, goal));
+            }
+        }
+        return null;
+    }
+
+    // Cells closed by the last find(), a measure of how much work it did.
+    public int getExpandedCount() {
+        return expanded;
+    }
+
+    // Octile distance, exact on an open 8-way grid.
+    private float heuristic(int cell, int goal) {
+        int dx = Math.abs(grid.cellX(cell) - grid.cellX(goal));
+        int dz = Math.abs(grid.cellZ(cell) - grid.cellZ(goal));
+        return Math.max(dx, dz) + (DIAGONAL_COST - 1.0f) * Math.min(dx, dz);
+    }
+
+    // Walks cameFrom back from the goal, keeping only the cells where the route
+    // has to turn to stay in sight of the last kept one.
+    private NavPath smooth(int start, int goal) {
+        int length = 0;
+        for (int cell = goal; cell != NavGrid.NO_CELL; cell = cameFrom[cell]) {
+            if (length == route.length) {
+                route = Arrays.copyOf(route, length * 2);
+            }
+            route[length++] = cell;
+        }
+
+        // route runs goal -> start; build the corners start -> goal.
+        int[] corners = new int[length];
+        int count = 0;
+        int anchor = length - 1;
+        corners[count++] = route[anchor];
+        while (anchor > 0) {
+            int next = anchor - 1;
+            while (next > 0 && grid.lineOfSight(route[anchor], route[next - 1])) {
+                next--;
+            }
+            corners[count++] = route[next];
+            anchor = next;
+        }
+        return new NavPath(Arrays.copyOf(corners, count));
+    }
+
+    private void push(int cell, float cost) {
+        if (heapSize == heapCell.length) {
+            heapCell = Arrays.copyOf(heapCell, heapSize * 2);
+            heapCost = Arrays.copyOf(heapCost, heapSize * 2);
+        }
+
+        int i = heapSize++;
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (heapCost[parent] <= cost)
+                break;
+            heapCell[i] = heapCell[parent];
+            heapCost[i] = heapCost[parent];
+            i = parent;
+        }
+        heapCell[i] = cell;
+        heapCost[i] = cost;
+    }
+
+    private int pop() {
+        int top = heapCell[0];
+        int lastCell = heapCell[--heapSize];
+        float lastCost = heapCost[heapSize];
+
+        int i = 0;
+        while (true) {
+            int child = i * 2 + 1;
+            if (child >= heapSize)
+                break;
+            if (child + 1 < heapSize && heapCost[child + 1] < heapCost[child]) {
+                child++;
+            }
+            if (heapCost[child] >= lastCost)
+                break;
+            heapCell[i] = heapCell[child];
+            heapCost[i] = heapCost[child];
+            i = child;
+        }
+        heapCell[i] = lastCell;
+        heapCost[i] = lastCost;
+        return top;
+    }
+}
@@ -0,0 +1,164 @@
+package com.example.navigation;
+
+import com.example.components.*;
+
+// Serves paths to AI agents. Requests are queued and resolved by process()
+// within a time budget, so many agents re-pathing on the same tick spread their
+// searches over the following ticks instead of stalling one. Results land in
+// the agent's AIComponent: path, pathIndex and pathPending. Not thread-safe;
+// AISystem requests and processes on one thread.
+public class PathService {
+    // A target that moved at most this many cells, still in sight of the old
+    // goal, extends the agent's path instead of triggering a new search.
+    private static final int REUSE_CELLS = 3;
+    // Extensions stop here so a target that keeps moving cannot grow a path
+    // without bound; past it the agent searches afresh.
+    private static final int MAX_EXTENDED_LENGTH = 32;
+
+    private final NavGrid grid;
+    private final PathFinder finder;
+    private final PathCache cache;
+
+    // Ring buffer of pending requests.
+    private AIComponent[] queuedAgent = new AIComponent[64];
+    private int[] queuedStart = new int[64];
+    private int[] queuedGoal = new int[64];
+    private int queueHead;
+    private int queueSize;
+
+    private int searches;
+    private int reused;
+
+    public PathService(NavGrid grid, int cacheCapacity) {
+        this.grid = grid;
+        this.finder = new PathFinder(grid);
+        this.cache = new PathCache(cacheCapacity);
+    }
+
+    public NavGrid getGrid() {
+        return grid;
+    }
+
+    public PathCache getCache() {
+        return cache;
+    }
+
+    // Asks for a path from the agent's position to the goal. A short move of the
+    // goal reuses the agent's current path at once; anything else is queued.
+    // An agent has at most one request queued; asking again replaces its goal.
+    public void request(AIComponent ai, float fromX, float fromZ, float goalX, float goalZ) {
+        int start = grid.cellAt(fromX, fromZ);
+        int goal = grid.cellAt(goalX, goalZ);
+        ai.pathGoalCell = goal;
+
+        NavPath current = ai.path;
+        if (current != null && !ai.pathPending && canExtend(current, goal)) {
+            ai.path = current.extendedTo(goal);
+            reused++;
+            return;
+        }
+
+        if (ai.pathPending) {
+            for (int i = 0; i < queueSize; i++) {
+                int slot = (queueHead + i) % queuedAgent.length;
+                if (queuedAgent[slot] == ai) {
+                    queuedStart[slot] = start;
+                    queuedGoal[slot] = goal;
+                    return;
+                }
+            }
+        }
+
+        if (queueSize == queuedAgent.length) {
+            grow();
+        }
+        int slot = (queueHead + queueSize++) % queuedAgent.length;
+        queuedAgent[slot] = ai;
+        queuedStart[slot] = start;
+        queuedGoal[slot] = goal;
+        ai.pathPending = true;
+    }
+
+    // Resolves queued requests, oldest first, until the budget runs out. At
+    // least one is resolved per call so the queue always drains.
+    public void process(long budgetNanos) {
+        long deadline = System.nanoTime() + budgetNanos;
+        searches = 0;
+        reused = 0;
+        while (queueSize > 0) {
+            int slot = queueHead;
+            AIComponent ai = queuedAgent[slot];
+            int start = queuedStart[slot];
+            int goal = queuedGoal[slot];
+            queuedAgent[slot] = null;
+            queueHead = (queueHead + 1) % queuedAgent.length;
+            queueSize--;
+
+            // Corner 0 is the cell the agent asked from, so it walks on from the
+            // next one.
+            ai.path = findPath(start, goal);
+            ai.pathIndex = 1;
+            ai.pathPending = false;
+
+            if (System.nanoTime() >= deadline)
+                break;
+        }
+    }
+
+    public int getQueuedCount() {
+        return queueSize;
+    }
+
+    // A* searches run by the last process(), not counting cache hits.
+    public int getSearchCount() {
+        return searches;
+    }
+
+    // Requests answered by extending an existing path since the last process().
+    public int getReusedCount() {
+        return reused;
+    }
+
+    private NavPath findPath(int start, int goal) {
+        if (start == NavGrid.NO_CELL || goal == NavGrid.NO_CELL)
+            return null;
+
+        NavPath path = cache.get(start, goal);
+        if (path == null) {
+            path = finder.find(start, goal);
+            searches++;
+            if (path != null) {
+                cache.put(path);
+            }
+        }
+        return path;
+    }
+
+    private boolean canExtend(NavPath path, int goal) {
+        int last = path.getGoal();
+        if (path.size() >= MAX_EXTENDED_LENGTH || goal == NavGrid.NO_CELL || goal == last
+                || !grid.isWalkable(goal))
+            return false;
+
+        int dx = Math.abs(grid.cellX(goal) - grid.cellX(last));
+        int dz = Math.abs(grid.cellZ(goal) - grid.cellZ(last));
+        return Math.max(dx, dz) <= REUSE_CELLS && grid.lineOfSight(last, goal);
+    }
+
+    private void grow() {
+        int capacity = queuedAgent.length * 2;
+        AIComponent[] agents = new AIComponent[capacity];
+        int[] starts = new int[capacity];
+        int[] goals = new int[capacity];
+        for (int i = 0; i < queueSize; i++) {
+            int slot = (queueHead + i) % queuedAgent.length;
+            agents[i] = queuedAgent[slot];
+            starts[i] = queuedStart[slot];
+            goals[i] = queuedGoal[slot];
+        }
+        queuedAgent = agents;
+        queuedStart = starts;
+        queuedGoal = goals;
+        queueHead = 0;
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.physics;
+
+import com.bulletphysics.collision.broadphase.CollisionFilterGroups;
+
+// What kind of thing a collider is, for deciding which pairs may touch. Each
+// layer is one bit of a JBullet collision group. The static world keeps
+// JBullet's own static bit, so rays filtered with STATIC_FILTER still hit the
+// level, and no layer uses the default bit, which is left to bodies added
+// without one.
+public enum CollisionLayer {
+    STATIC_WORLD(CollisionFilterGroups.STATIC_FILTER),
+    PLAYER(1 << 6),
+    ENEMY(1 << 7),
+    PROJECTILE(1 << 8),
+    EFFECT(1 << 9);
+
+    public final short bit;
+
+    CollisionLayer(int bit) {
+        this.bit = (short) bit;
+    }
+}
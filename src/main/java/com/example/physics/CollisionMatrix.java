@@ -0,0 +1,55 @@
+package com.example.physics;
+
+import com.bulletphysics.collision.broadphase.CollisionFilterGroups;
+
+// Which collision layers interact. Pairs are symmetric, and every layer also
+// collides with bodies added without a layer. PhysicsWorld reads a body's mask
+// when the body is added, so changes only reach bodies added afterwards; the
+// AABB passes read the matrix every tick.
+public class CollisionMatrix {
+    private static final CollisionLayer[] LAYERS = CollisionLayer.values();
+
+    private final short[] masks = new short[LAYERS.length];
+
+    // Starts with every pair colliding.
+    public CollisionMatrix() {
+        for (CollisionLayer layer : LAYERS) {
+            masks[layer.ordinal()] = CollisionFilterGroups.ALL_FILTER;
+        }
+    }
+
+    // The game's defaults: projectiles ignore each other, effects only touch
+    // the static world, and static geometry never pairs with itself, as in
+    // JBullet's own default groups.
+    public static CollisionMatrix defaults() {
+        CollisionMatrix matrix = new CollisionMatrix();
+        matrix.set(CollisionLayer.STATIC_WORLD, CollisionLayer.STATIC_WORLD, false);
+        matrix.set(CollisionLayer.PROJECTILE, CollisionLayer.PROJECTILE, false);
+        for (CollisionLayer layer : LAYERS) {
+            if (layer != CollisionLayer.STATIC_WORLD) {
+                matrix.set(CollisionLayer.EFFECT, layer, false);
+            }
+        }
+        return matrix;
+    }
+
+    public CollisionMatrix set(CollisionLayer a, CollisionLayer b, boolean collide) {
+        if (collide) {
+            masks[a.ordinal()] |= b.bit;
+            masks[b.ordinal()] |= a.bit;
+        } else {
+            masks[a.ordinal()] &= ~b.bit;
+            masks[b.ordinal()] &= ~a.bit;
+        }
+        return this;
+    }
+
+    public boolean collides(CollisionLayer a, CollisionLayer b) {
+        return (masks[a.ordinal()] & b.bit) != 0;
+    }
+
+    // The groups a body on this layer collides with, as a JBullet mask.
+    public short maskOf(CollisionLayer layer) {
+        return masks[layer.ordinal()];
+    }
+}
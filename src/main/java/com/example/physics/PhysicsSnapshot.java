@@ -0,0 +1,114 @@
+package com.example.physics;
+
+import java.util.*;
+import java.util.concurrent.atomic.*;
+
+// Body positions published after each physics step, triple buffered so the
+// stepping thread never waits for the reader and the reader always sees one
+// complete step without taking a lock. The writer fills its back frame and
+// swaps it with the shared middle frame; the reader swaps a freshly published
+// middle frame with its front one. Meant for one writer thread and one reader
+// at a time.
+public class PhysicsSnapshot {
+    // Set in the middle index when the writer published a frame the reader has
+    // not taken yet.
+    private static final int FRESH = 4;
+
+    // Positions and owning entities per body slot, plus the slots whose body
+    // moved or joined the world since the last frame the reader took. Readers
+    // that only apply movement can walk the moved list instead of every body.
+    public static class Frame {
+        private float[] positions = new float[0];
+        private int[] entities = new int[0];
+        private int slotCount;
+        private int[] moved = new int[64];
+        private int movedCount;
+        private long step;
+
+        public int getSlotCount() {
+            return slotCount;
+        }
+
+        // Steps taken by the world when this frame was written.
+        public long getStep() {
+            return step;
+        }
+
+        // Entity owning the body in the slot, or PhysicsWorld.NO_ENTITY if the
+        // slot is empty or its body was never tagged.
+        public int getEntity(int slot) {
+            return entities[slot];
+        }
+
+        public float getX(int slot) {
+            return positions[slot * 3];
+        }
+
+        public float getY(int slot) {
+            return positions[slot * 3 + 1];
+        }
+
+        public float getZ(int slot) {
+            return positions[slot * 3 + 2];
+        }
+
+        public int getMovedCount() {
+            return movedCount;
+        }
+
+        public int getMovedSlot(int i) {
+            return moved[i];
+        }
+
+        void copy(float[] positions, int[] entities, int slots) {
+            if (this.entities.length < slots) {
+                int capacity = Math.max(slots, this.entities.length * 2);
+                this.positions = new float[capacity * 3];
+                this.entities = new int[capacity];
+            }
+            System.arraycopy(positions, 0, this.positions, 0, slots * 3);
+            System.arraycopy(entities, 0, this.entities, 0, slots);
+            slotCount = slots;
+            movedCount = 0;
+        }
+
+        void addMoved(int slot) {
+            if (movedCount == moved.length) {
+                moved = Arrays.copyOf(moved, movedCount * 2);
+            }
+            moved[movedCount++] = slot;
+        }
+    }
+
+    private final Frame[] frames = { new Frame(), new Frame(), new Frame() };
+    private final AtomicInteger middle = new AtomicInteger(1);
+    private int back = 0;
+    private int front = 2;
+
+    // The frame the writer fills next.
+    Frame beginWrite() {
+        return frames[back];
+    }
+
+    // Whether the reader took the last published frame. If not, the next
+    // publish replaces it unseen, so its moved slots must be carried into the
+    // next frame. A reader taking it right after this returns false only sees
+    // those slots twice.
+    boolean wasTaken() {
+        return (middle.get() & FRESH) == 0;
+    }
+
+    void publish(long step) {
+        frames[back].step = step;
+        back = middle.getAndSet(back | FRESH) & 3;
+    }
+
+    // The most recently published frame. It stays valid and unchanged until
+    // the next call.
+    public Frame latest() {
+        if ((middle.get() & FRESH) != 0) {
+            front = middle.getAndSet(front) & 3;
+        }
+        return frames[front];
+    }
+}
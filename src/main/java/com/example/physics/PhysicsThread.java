@@ -0,0 +1,60 @@
+package com.example.physics;
+
+import java.util.concurrent.locks.*;
+
+// Steps a PhysicsWorld at a fixed rate on its own thread. Each step first
+// applies the commands queued since the last one, then publishes a snapshot.
+// If the thread falls more than a few steps behind it drops the backlog rather
+// than trying to catch up.
+class PhysicsThread extends Thread {
+    private static final int MAX_BACKLOG_STEPS = 5;
+
+    private final PhysicsWorld world;
+    private final float stepSeconds;
+    private volatile boolean running = true;
+    private volatile Throwable failure;
+
+    PhysicsThread(PhysicsWorld world, float stepSeconds) {
+        super("physics");
+        this.world = world;
+        this.stepSeconds = stepSeconds;
+        setDaemon(true);
+    }
+
+    @Override
+    public void run() {
+        long stepNanos = (long) (stepSeconds * 1_000_000_000L);
+        long next = System.nanoTime();
+        try {
+            while (running) {
+                world.applyCommands();
+                world.step(stepSeconds);
+
+                next += stepNanos;
+                long wait = next - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                } else if (-wait > MAX_BACKLOG_STEPS * stepNanos) {
+                    next = System.nanoTime();
+                }
+            }
+        } catch (Throwable e) {
+            failure = e;
+        }
+    }
+
+    // Why the thread stopped on its own, or null while it runs normally.
+    Throwable getFailure() {
+        return failure;
+    }
+
+    void shutdown() {
+        running = false;
+        LockSupport.unpark(this);
+        try {
+            join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
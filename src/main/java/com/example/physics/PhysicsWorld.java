@@ -1,41 +1,614 @@
 package com.example.physics;
 
+import java.util.*;
+import java.util.concurrent.locks.*;
+
 import javax.vecmath.*;
 
 import com.bulletphysics.collision.broadphase.*;
 import com.bulletphysics.collision.dispatch.*;
 import com.bulletphysics.dynamics.*;
 import com.bulletphysics.dynamics.constraintsolver.*;
+import com.bulletphysics.linearmath.Transform;
 
+// Wraps the JBullet world. It steps either when the caller asks, or on its own
+// PhysicsThread after startThread(). Either way, body positions are read from
+// the snapshot published after each step. Changes to the world (adding and
+// removing bodies, or anything passed to submit()) are applied right away when
+// the caller steps, and queued for the start of the next step otherwise. Ray
+// queries share the world with readers on any thread and wait while a step or
+// a command is being applied.
 public class PhysicsWorld {
+    // Entity reported for bodies that were never tagged with one.
+    public static final int NO_ENTITY = -1;
+
     private DiscreteDynamicsWorld dynamicsWorld;
 
+    // Ray queries reuse one callback and pair of endpoints per thread, since
+    // systems that only read the world may cast rays concurrently.
+    private static class RayScratch {
+        final Vector3f from = new Vector3f();
+        final Vector3f to = new Vector3f();
+        final CollisionWorld.ClosestRayResultCallback callback = new CollisionWorld.ClosestRayResultCallback(from, to);
+    }
+
+    private final ThreadLocal<RayScratch> rayScratch = ThreadLocal.withInitial(RayScratch::new);
+
+    // Stored as a body's user pointer and reused when the body is retagged or
+    // re-added, so pooled bodies can change entities without allocating. slot
+    // locates the body in snapshots while it is in the world.
+    private static class BodyTag {
+        int entity = NO_ENTITY;
+        int slot = -1;
+    }
+
+    private static final int ADD = 0;
+    private static final int REMOVE = 1;
+    private static final int RUN = 2;
+
+    // World changes waiting for the stepping thread, as parallel arrays so
+    // queueing one does not allocate. Callers fill the pending set; the
+    // stepping thread swaps it for the applying set before each step.
+    private static class CommandList {
+        int count;
+        int[] op = new int[64];
+        Object[] target = new Object[64];
+        int[] slot = new int[64];
+        int[] entity = new int[64];
+        int[] filter = new int[64];
+
+        void add(int op, Object target, int slot, int entity, int filter) {
+            if (count == this.op.length) {
+                int capacity = count * 2;
+                this.op = Arrays.copyOf(this.op, capacity);
+                this.target = Arrays.copyOf(this.target, capacity);
+                this.slot = Arrays.copyOf(this.slot, capacity);
+                this.entity = Arrays.copyOf(this.entity, capacity);
+                this.filter = Arrays.copyOf(this.filter, capacity);
+            }
+            this.op[count] = op;
+            this.target[count] = target;
+            this.slot[count] = slot;
+            this.entity[count] = entity;
+            this.filter[count] = filter;
+            count++;
+        }
+    }
+
+    private final ReentrantReadWriteLock worldLock = new ReentrantReadWriteLock();
+    private final Object commandLock = new Object();
+    private CommandList pendingCommands = new CommandList();
+    private CommandList applyingCommands = new CommandList();
+    private volatile PhysicsThread thread;
+
+    // Snapshot slots are handed out by callers when they add a body. The
+    // stepping side keeps the current position and entity of every slot, and
+    // publishes a copy after each step.
+    private int slotCount;
+    private int[] freeSlots = new int[64];
+    private int freeSlotCount;
+    private RigidBody[] slotBodies = new RigidBody[64];
+    private int[] slotEntities = new int[64];
+    private float[] slotPositions = new float[64 * 3];
+    private int slotHighWater;
+    private final PhysicsSnapshot snapshot = new PhysicsSnapshot();
+    private long stepCount;
+
+    // Bodies whose motion state cannot report movement are read back every
+    // step, as all bodies used to be.
+    private boolean[] slotPolled = new boolean[64];
+    private int polledCount;
+    private final Transform pollTransform = new Transform();
+
+    // Slots that moved in the current step, and slots that moved in earlier
+    // steps whose frames the reader may not have taken yet. Each list has a
+    // stamp per slot so a slot is listed once.
+    private int[] stepMoved = new int[64];
+    private int stepMovedCount;
+    private int[] stepMark = new int[64];
+    private int stepStamp = 1;
+    private int[] olderMoved = new int[64];
+    private int olderMovedCount;
+    private int[] olderMark = new int[64];
+    private int olderStamp = 1;
+
+    // Optional direct-mapped cache of ray results, valid until the world next
+    // changes. Each slot holds the ray's six coordinates and filter mask.
+    private int cacheEpoch = 1;
+    private float[] cacheRays;
+    private int[] cacheKeyMask;
+    private int[] cacheSlotEpoch;
+    private boolean[] cacheHit;
+    private float[] cacheFraction;
+    private int[] cacheEntity;
+    private long cacheHits;
+
+    private CollisionMatrix collisionMatrix = CollisionMatrix.defaults();
+
+    // How candidate pairs are found. DBVT adapts to any world size. AXIS_SWEEP
+    // needs fixed world bounds, and is cheap when most bodies move little.
+    public enum Broadphase {
+        DBVT, AXIS_SWEEP
+    }
+
     public PhysicsWorld() {
+        this(Broadphase.DBVT, 0.0f);
+    }
+
+    // worldHalfExtent bounds the world in every direction for AXIS_SWEEP, and
+    // is ignored by DBVT.
+    public PhysicsWorld(Broadphase type, float worldHalfExtent) {
         DefaultCollisionConfiguration collisionConfiguration = new DefaultCollisionConfiguration();
         CollisionDispatcher dispatcher = new CollisionDispatcher(collisionConfiguration);
-        DbvtBroadphase broadphase = new DbvtBroadphase();
+        BroadphaseInterface broadphase = switch (type) {
+            case DBVT -> new DbvtBroadphase();
+            case AXIS_SWEEP -> {
+                if (worldHalfExtent <= 0)
+                    throw new IllegalArgumentException("World half extent must be positive: " + worldHalfExtent);
+                yield new AxisSweep3(new Vector3f(-worldHalfExtent, -worldHalfExtent, -worldHalfExtent),
+                        new Vector3f(worldHalfExtent, worldHalfExtent, worldHalfExtent));
+            }
+        };
         SequentialImpulseConstraintSolver solver = new SequentialImpulseConstraintSolver();
         dynamicsWorld = new DiscreteDynamicsWorld(dispatcher, broadphase, solver, collisionConfiguration);
         dynamicsWorld.setGravity(new javax.vecmath.Vector3f(0, -9.8f, 0));
     }
 
-    public void addRigidBody(com.bulletphysics.dynamics.RigidBody body) {
-        dynamicsWorld.addRigidBody(body);
+    // Layers each body may touch. Bodies take their mask from the matrix when
+    // they are added.
+    public CollisionMatrix getCollisionMatrix() {
+        return collisionMatrix;
+    }
+
+    public void setCollisionMatrix(CollisionMatrix collisionMatrix) {
+        this.collisionMatrix = collisionMatrix;
     }
 
-    public void removeRigidBody(com.bulletphysics.dynamics.RigidBody body) {
-        dynamicsWorld.removeRigidBody(body);
+    // Adds the body in the group JBullet would pick, colliding with every layer.
+    public void addRigidBody(RigidBody body) {
+        if (body.isStaticOrKinematicObject()) {
+            addRigidBody(body, CollisionFilterGroups.STATIC_FILTER,
+                    (short) (CollisionFilterGroups.ALL_FILTER ^ CollisionFilterGroups.STATIC_FILTER));
+        } else {
+            addRigidBody(body, CollisionFilterGroups.DEFAULT_FILTER, CollisionFilterGroups.ALL_FILTER);
+        }
     }
 
+    // Adds the body on a collision layer. The broadphase never pairs it with
+    // bodies on layers the collision matrix keeps apart.
+    public void addRigidBody(RigidBody body, CollisionLayer layer) {
+        addRigidBody(body, layer.bit, collisionMatrix.maskOf(layer));
+    }
+
+    // Adds the body and gives it a snapshot slot. Call from the thread that
+    // owns the game state; with a physics thread the body joins the world at
+    // the start of the next step.
+    private void addRigidBody(RigidBody body, short group, short mask) {
+        BodyTag tag = tagOf(body);
+        if (tag.slot != -1)
+            throw new IllegalStateException("Body is already in the world");
+
+        tag.slot = freeSlotCount > 0 ? freeSlots[--freeSlotCount] : slotCount++;
+        command(ADD, body, tag.slot, tag.entity, group << 16 | mask & 0xFFFF);
+    }
+
+    public void removeRigidBody(RigidBody body) {
+        BodyTag tag = tagOf(body);
+        if (tag.slot == -1)
+            return;
+
+        if (freeSlotCount == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, freeSlotCount * 2);
+        }
+        freeSlots[freeSlotCount++] = tag.slot;
+        command(REMOVE, body, tag.slot, 0, 0);
+        tag.slot = -1;
+    }
+
+    // Runs the task with exclusive access to the world: now, or before the
+    // next step when the world steps on its own thread. Use it for anything
+    // that touches a body in the world, such as resetting or pushing it.
+    public void submit(Runnable task) {
+        command(RUN, task, -1, 0, 0);
+    }
+
+    // Records which entity owns a body, for ray queries and snapshots to report.
+    // Tag a body before adding it; snapshots take the entity from the add.
+    public static void tagEntity(CollisionObject body, int entity) {
+        tagOf(body).entity = entity;
+    }
+
+    public static int entityOf(CollisionObject body) {
+        if (body != null && body.getUserPointer() instanceof BodyTag tag)
+            return tag.entity;
+        return NO_ENTITY;
+    }
+
+    // Where the body's position is in snapshots, or -1 while the body is not
+    // in the world.
+    public static int snapshotSlotOf(CollisionObject body) {
+        if (body.getUserPointer() instanceof BodyTag tag)
+            return tag.slot;
+        return -1;
+    }
+
+    private static BodyTag tagOf(CollisionObject body) {
+        if (body.getUserPointer() instanceof BodyTag tag)
+            return tag;
+
+        BodyTag tag = new BodyTag();
+        body.setUserPointer(tag);
+        return tag;
+    }
+
+    // Callers step at a fixed rate, so take exactly one internal step of that
+    // size instead of letting JBullet split a long frame into many substeps.
     public void stepSimulation(float dt) {
-        dynamicsWorld.stepSimulation(dt, 10);
+        if (thread != null)
+            throw new IllegalStateException("The world is stepped by its physics thread");
+        step(dt);
+    }
+
+    // Steps the world every stepSeconds on a thread of its own until
+    // stopThread(). From then on changes are queued and positions should only
+    // be read from getLatestSnapshot(). Start and stop from the thread that owns
+    // the game state.
+    public void startThread(float stepSeconds) {
+        if (stepSeconds <= 0)
+            throw new IllegalArgumentException("Step must be positive: " + stepSeconds);
+        if (thread != null)
+            throw new IllegalStateException("Physics thread already running");
+
+        thread = new PhysicsThread(this, stepSeconds);
+        thread.start();
+    }
+
+    // Stops the physics thread after its current step and applies any changes
+    // it had not reached.
+    public void stopThread() {
+        if (thread == null)
+            return;
+
+        thread.shutdown();
+        thread = null;
+        applyCommands();
+    }
+
+    public boolean isThreaded() {
+        return thread != null;
+    }
+
+    // Positions as of the latest completed step. Read it from one thread at a
+    // time; the frame stays unchanged until the next call.
+    public PhysicsSnapshot.Frame getLatestSnapshot() {
+        PhysicsThread current = thread;
+        if (current != null && current.getFailure() != null)
+            throw new IllegalStateException("Physics thread failed", current.getFailure());
+        return snapshot.latest();
+    }
+
+    // filter packs a body's collision group into the high half and its mask
+    // into the low half.
+    private void command(int op, Object target, int slot, int entity, int filter) {
+        if (thread == null) {
+            worldLock.writeLock().lock();
+            try {
+                apply(op, target, slot, entity, filter);
+            } finally {
+                worldLock.writeLock().unlock();
+            }
+            return;
+        }
+
+        synchronized (commandLock) {
+            pendingCommands.add(op, target, slot, entity, filter);
+        }
+    }
+
+    // Applies queued changes in the order they were made. Called by the
+    // stepping thread before each step.
+    void applyCommands() {
+        CommandList commands;
+        synchronized (commandLock) {
+            commands = pendingCommands;
+            pendingCommands = applyingCommands;
+            applyingCommands = commands;
+        }
+        if (commands.count == 0)
+            return;
+
+        worldLock.writeLock().lock();
+        try {
+            for (int i = 0; i < commands.count; i++) {
+                apply(commands.op[i], commands.target[i], commands.slot[i], commands.entity[i], commands.filter[i]);
+                commands.target[i] = null;
+            }
+        } finally {
+            worldLock.writeLock().unlock();
+        }
+        commands.count = 0;
+    }
+
+    private void apply(int op, Object target, int slot, int entity, int filter) {
+        switch (op) {
+            case ADD -> {
+                RigidBody body = (RigidBody) target;
+                dynamicsWorld.addRigidBody(body, (short) (filter >> 16), (short) filter);
+                ensureSlotCapacity(slot + 1);
+                slotBodies[slot] = body;
+                slotEntities[slot] = entity;
+                slotHighWater = Math.max(slotHighWater, slot + 1);
+
+                // Publish where the body starts, then let it report its own
+                // movement if it can.
+                if (body.getMotionState() instanceof TrackedMotionState tracked) {
+                    tracked.bind(this, slot);
+                    markMoved(slot, tracked.getX(), tracked.getY(), tracked.getZ());
+                } else {
+                    body.getMotionState().getWorldTransform(pollTransform);
+                    markMoved(slot, pollTransform.origin.x, pollTransform.origin.y, pollTransform.origin.z);
+                    if (!body.isStaticObject()) {
+                        slotPolled[slot] = true;
+                        polledCount++;
+                    }
+                }
+            }
+            case REMOVE -> {
+                RigidBody body = (RigidBody) target;
+                dynamicsWorld.removeRigidBody(body);
+                if (slotBodies[slot] == body) {
+                    if (body.getMotionState() instanceof TrackedMotionState tracked) {
+                        tracked.bind(null, -1);
+                    }
+                    if (slotPolled[slot]) {
+                        slotPolled[slot] = false;
+                        polledCount--;
+                    }
+                    slotBodies[slot] = null;
+                    slotEntities[slot] = NO_ENTITY;
+                }
+            }
+            case RUN -> ((Runnable) target).run();
+        }
+        invalidateRaycastCache();
+    }
+
+    // Records a body's new position for the next snapshot. Called on the
+    // stepping side, mostly by TrackedMotionState during a step.
+    void markMoved(int slot, float x, float y, float z) {
+        slotPositions[slot * 3] = x;
+        slotPositions[slot * 3 + 1] = y;
+        slotPositions[slot * 3 + 2] = z;
+
+        if (stepMark[slot] == stepStamp)
+            return;
+        stepMark[slot] = stepStamp;
+        if (stepMovedCount == stepMoved.length) {
+            stepMoved = Arrays.copyOf(stepMoved, stepMovedCount * 2);
+        }
+        stepMoved[stepMovedCount++] = slot;
+    }
+
+    private void ensureSlotCapacity(int slots) {
+        if (slots <= slotBodies.length)
+            return;
+
+        int capacity = Math.max(slots, slotBodies.length * 2);
+        int oldLength = slotBodies.length;
+        slotBodies = Arrays.copyOf(slotBodies, capacity);
+        slotEntities = Arrays.copyOf(slotEntities, capacity);
+        Arrays.fill(slotEntities, oldLength, capacity, NO_ENTITY);
+        slotPositions = Arrays.copyOf(slotPositions, capacity * 3);
+        slotPolled = Arrays.copyOf(slotPolled, capacity);
+        stepMark = Arrays.copyOf(stepMark, capacity);
+        olderMark = Arrays.copyOf(olderMark, capacity);
+    }
+
+    // Takes one step and publishes the resulting positions along with every
+    // slot that moved since the last frame the reader took.
+    void step(float dt) {
+        worldLock.writeLock().lock();
+        try {
+            dynamicsWorld.stepSimulation(dt, 1, dt);
+            stepCount++;
+            // Inside the lock, so no ray cast after the step can see a result
+            // cached before it.
+            invalidateRaycastCache();
+
+            if (polledCount > 0) {
+                for (int slot = 0; slot < slotHighWater; slot++) {
+                    if (!slotPolled[slot])
+                        continue;
+                    slotBodies[slot].getMotionState().getWorldTransform(pollTransform);
+                    Vector3f origin = pollTransform.origin;
+                    int o = slot * 3;
+                    if (origin.x != slotPositions[o] || origin.y != slotPositions[o + 1]
+                            || origin.z != slotPositions[o + 2]) {
+                        markMoved(slot, origin.x, origin.y, origin.z);
+                    }
+                }
+            }
+
+            // Movement the reader has seen no longer needs carrying forward.
+            if (snapshot.wasTaken()) {
+                olderMovedCount = 0;
+                olderStamp++;
+            }
+
+            PhysicsSnapshot.Frame frame = snapshot.beginWrite();
+            frame.copy(slotPositions, slotEntities, slotHighWater);
+            for (int i = 0; i < olderMovedCount; i++) {
+                frame.addMoved(olderMoved[i]);
+            }
+            for (int i = 0; i < stepMovedCount; i++) {
+                if (olderMark[stepMoved[i]] != olderStamp) {
+                    frame.addMoved(stepMoved[i]);
+                }
+            }
+        } finally {
+            worldLock.writeLock().unlock();
+        }
+        snapshot.publish(stepCount);
+
+        for (int i = 0; i < stepMovedCount; i++) {
+            int slot = stepMoved[i];
+            if (olderMark[slot] != olderStamp) {
+                olderMark[slot] = olderStamp;
+                if (olderMovedCount == olderMoved.length) {
+                    olderMoved = Arrays.copyOf(olderMoved, olderMovedCount * 2);
+                }
+                olderMoved[olderMovedCount++] = slot;
+            }
+        }
+        stepMovedCount = 0;
+        stepStamp++;
     }
 
     public boolean raycast(Vector3f from, Vector3f to) {
-        CollisionWorld.ClosestRayResultCallback callback = new CollisionWorld.ClosestRayResultCallback(from, to);
+        worldLock.readLock().lock();
+        try {
+            return castRay(from.x, from.y, from.z, to.x, to.y, to.z, (short) -1).hasHit();
+        } finally {
+            worldLock.readLock().unlock();
+        }
+    }
+
+    // Returns the fraction along from -> to of the closest static body, or 1 if
+    // the segment is clear. Dynamic bodies such as bullets are ignored.
+    public float raycastStatic(Vector3f from, Vector3f to) {
+        worldLock.readLock().lock();
+        try {
+            CollisionWorld.ClosestRayResultCallback callback = castRay(from.x, from.y, from.z, to.x, to.y, to.z,
+                    CollisionFilterGroups.STATIC_FILTER);
+            return callback.hasHit() ? callback.closestHitFraction : 1.0f;
+        } finally {
+            worldLock.readLock().unlock();
+        }
+    }
+
+    // Casts every ray in the batch with its filter mask and writes the results
+    // back into it. Nothing is allocated per ray.
+    public void raycast(RayBatch batch) {
+        worldLock.readLock().lock();
+        try {
+            castBatch(batch);
+        } finally {
+            worldLock.readLock().unlock();
+        }
+    }
+
+    private void castBatch(RayBatch batch) {
+        float[] from = batch.getFrom();
+        float[] to = batch.getTo();
+        short mask = batch.filterMask;
+
+        for (int ray = 0, n = batch.size(); ray < n; ray++) {
+            int o = ray * 3;
+            if (cacheRays != null && lookupCached(batch, ray, from, to, o, mask))
+                continue;
+
+            CollisionWorld.ClosestRayResultCallback callback = castRay(from[o], from[o + 1], from[o + 2],
+                    to[o], to[o + 1], to[o + 2], mask);
+            boolean hit = callback.hasHit();
+            float fraction = hit ? callback.closestHitFraction : 1.0f;
+            int entity = hit ? entityOf(callback.collisionObject) : NO_ENTITY;
+            batch.setResult(ray, hit, fraction, entity);
+
+            if (cacheRays != null) {
+                storeCached(from, to, o, mask, hit, fraction, entity);
+            }
+        }
+    }
+
+    // Keeps up to slots batched ray results until the world next steps or a
+    // body is added or removed, so identical queries within a tick are cast
+    // once. 0 disables the cache.
+    public synchronized void setRaycastCache(int slots) {
+        if (slots < 0 || (slots & (slots - 1)) != 0)
+            throw new IllegalArgumentException("Cache slots must be 0 or a power of two: " + slots);
+
+        if (slots == 0) {
+            cacheRays = null;
+            return;
+        }
+        cacheRays = new float[slots * 6];
+        cacheKeyMask = new int[slots];
+        cacheSlotEpoch = new int[slots];
+        cacheHit = new boolean[slots];
+        cacheFraction = new float[slots];
+        cacheEntity = new int[slots];
+    }
+
+    // Batched rays answered from the cache since it was enabled.
+    public synchronized long getRaycastCacheHits() {
+        return cacheHits;
+    }
+
+    private synchronized void invalidateRaycastCache() {
+        cacheEpoch++;
+    }
+
+    private CollisionWorld.ClosestRayResultCallback castRay(float fromX, float fromY, float fromZ,
+            float toX, float toY, float toZ, short mask) {
+        RayScratch scratch = rayScratch.get();
+        scratch.from.set(fromX, fromY, fromZ);
+        scratch.to.set(toX, toY, toZ);
+
+        CollisionWorld.ClosestRayResultCallback callback = scratch.callback;
+        callback.rayFromWorld.set(scratch.from);
+        callback.rayToWorld.set(scratch.to);
+        callback.closestHitFraction = 1.0f;
+        callback.collisionObject = null;
+        callback.collisionFilterMask = mask;
+
+        dynamicsWorld.rayTest(scratch.from, scratch.to, callback);
+        return callback;
+    }
+
+    private int cacheSlot(float[] from, float[] to, int o, short mask) {
+        int hash = mask;
+        for (int i = 0; i < 3; i++) {
+            hash = hash * 31 + Float.floatToIntBits(from[o + i]);
+            hash = hash * 31 + Float.floatToIntBits(to[o + i]);
+        }
+        hash ^= hash >>> 16;
+        return hash & (cacheKeyMask.length - 1);
+    }
+
+    private synchronized boolean lookupCached(RayBatch batch, int ray, float[] from, float[] to, int o, short mask) {
+        if (cacheRays == null)
+            return false;
+
+        int slot = cacheSlot(from, to, o, mask);
+        if (cacheSlotEpoch[slot] != cacheEpoch || cacheKeyMask[slot] != mask)
+            return false;
+
+        int k = slot * 6;
+        for (int i = 0; i < 3; i++) {
+            if (cacheRays[k + i] != from[o + i] || cacheRays[k + 3 + i] != to[o + i])
+                return false;
+        }
+
+        batch.setResult(ray, cacheHit[slot], cacheFraction[slot], cacheEntity[slot]);
+        cacheHits++;
+        return true;
+    }
 
-        dynamicsWorld.rayTest(from, to, callback);
+    private synchronized void storeCached(float[] from, float[] to, int o, short mask, boolean hit, float fraction,
+            int entity) {
+        if (cacheRays == null)
+            return;
 
-        return callback.hasHit();
+        int slot = cacheSlot(from, to, o, mask);
+        int k = slot * 6;
+        for (int i = 0; i < 3; i++) {
+            cacheRays[k + i] = from[o + i];
+            cacheRays[k + 3 + i] = to[o + i];
+        }
+        cacheKeyMask[slot] = mask;
+        cacheSlotEpoch[slot] = cacheEpoch;
+        cacheHit[slot] = hit;
+        cacheFraction[slot] = fraction;
+        cacheEntity[slot] = entity;
     }
 }
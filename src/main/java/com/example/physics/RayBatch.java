@@ -0,0 +1,92 @@
+package com.example.physics;
+
+import java.util.*;
+
+// A caller-owned batch of ray queries and their results, laid out as flat
+// arrays so a batch can be refilled every tick without allocating. Add rays,
+// pass the batch to PhysicsWorld.raycast(RayBatch), then read the results by
+// the index add() returned.
+public class RayBatch {
+    // Collision groups the rays hit; CollisionFilterGroups.STATIC_FILTER
+    // restricts them to static geometry.
+    public short filterMask = -1;
+
+    private int count;
+    private float[] from;
+    private float[] to;
+    private boolean[] hit;
+    private float[] fraction;
+    private int[] entity;
+
+    public RayBatch(int capacity) {
+        if (capacity <= 0)
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+
+        from = new float[capacity * 3];
+        to = new float[capacity * 3];
+        hit = new boolean[capacity];
+        fraction = new float[capacity];
+        entity = new int[capacity];
+    }
+
+    public void clear() {
+        count = 0;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public int add(float fromX, float fromY, float fromZ, float toX, float toY, float toZ) {
+        if (count == hit.length) {
+            int capacity = hit.length * 2;
+            from = Arrays.copyOf(from, capacity * 3);
+            to = Arrays.copyOf(to, capacity * 3);
+            hit = Arrays.copyOf(hit, capacity);
+            fraction = Arrays.copyOf(fraction, capacity);
+            entity = Arrays.copyOf(entity, capacity);
+        }
+
+        int ray = count++;
+        from[ray * 3] = fromX;
+        from[ray * 3 + 1] = fromY;
+        from[ray * 3 + 2] = fromZ;
+        to[ray * 3] = toX;
+        to[ray * 3 + 1] = toY;
+        to[ray * 3 + 2] = toZ;
+        hit[ray] = false;
+        fraction[ray] = 1.0f;
+        entity[ray] = PhysicsWorld.NO_ENTITY;
+        return ray;
+    }
+
+    // Origins and ends, three floats per ray.
+    public float[] getFrom() {
+        return from;
+    }
+
+    public float[] getTo() {
+        return to;
+    }
+
+    public boolean isHit(int ray) {
+        return hit[ray];
+    }
+
+    // Fraction along from -> to of the closest hit, or 1 if the ray is clear.
+    public float getFraction(int ray) {
+        return fraction[ray];
+    }
+
+    // Entity owning the closest body hit, or PhysicsWorld.NO_ENTITY if the ray
+    // is clear or the body belongs to no entity.
+    public int getEntity(int ray) {
+        return entity[ray];
+    }
+
+    void setResult(int ray, boolean hit, float fraction, int entity) {
+        this.hit[ray] = hit;
+        this.fraction[ray] = fraction;
+        this.entity[ray] = entity;
+    }
+}
@@ -0,0 +1,280 @@
+package com.example.physics;
+
+import java.util.*;
+
+// Uniform-grid broadphase over axis-aligned boxes. Every box is registered in
+// each cell it overlaps, and cells live in an open-addressing hash table keyed by
+// their integer coordinates, so the grid is unbounded and only pays for
+// occupied cells.
+//
+// The grid is meant to be rebuilt every frame: clear() invalidates all cells by
+// bumping a stamp instead of wiping the table, and every array is reused, so a
+// steady-state rebuild does not allocate.
+public class SpatialHashGrid {
+    private static final int EMPTY = -1;
+
+    private final float inverseCellSize;
+
+    // Inserted boxes, numbered in insertion order.
+    private int itemCount;
+    private int[] itemEntity = new int[64];
+    private short[] itemGroup = new short[64];
+    private float[] itemMinX = new float[64], itemMinY = new float[64], itemMinZ = new float[64];
+    private float[] itemMaxX = new float[64], itemMaxY = new float[64], itemMaxZ = new float[64];
+    private int[] itemQueryStamp = new int[64];
+    private int queryStamp;
+
+    // Cell table; a slot is occupied when its stamp matches the current build.
+    private int[] cellX = new int[256], cellY = new int[256], cellZ = new int[256];
+    private int[] cellHead = new int[256];
+    private int[] cellStamp = new int[256];
+    private int cellCount;
+    private int buildStamp = 1;
+
+    // Singly linked per-cell entry lists.
+    private int[] entryItem = new int[256];
+    private int[] entryNext = new int[256];
+    private int entryCount;
+
+    private int[] results = new int[64];
+    private int resultCount;
+
+    public SpatialHashGrid(float cellSize) {
+        if (cellSize <= 0)
+            throw new IllegalArgumentException("Cell size must be positive: " + cellSize);
+        this.inverseCellSize = 1.0f / cellSize;
+    }
+
+    public void clear() {
+        itemCount = 0;
+        entryCount = 0;
+        cellCount = 0;
+        buildStamp++;
+    }
+
+    public int size() {
+        return itemCount;
+    }
+
+    public int entityAt(int item) {
+        return itemEntity[item];
+    }
+
+    // Adds a box and returns its item number.
+    public int insert(int entity, float minX, float minY, float minZ, float maxX, float maxY, float maxZ) {
+        return insert(entity, (short) -1, minX, minY, minZ, maxX, maxY, maxZ);
+    }
+
+    // Adds a box in the given collision groups, usually a CollisionLayer bit.
+    public int insert(int entity, short group, float minX, float minY, float minZ, float maxX, float maxY,
+            float maxZ) {
+        if (itemCount == itemEntity.length) {
+            growItems();
+        }
+
+        int item = itemCount++;
+        itemEntity[item] = entity;
+        itemGroup[item] = group;
+        itemMinX[item] = minX;
+        itemMinY[item] = minY;
+        itemMinZ[item] = minZ;
+        itemMaxX[item] = maxX;
+        itemMaxY[item] = maxY;
+        itemMaxZ[item] = maxZ;
+        itemQueryStamp[item] = queryStamp;
+
+        int x0 = cell(minX), x1 = cell(maxX);
+        int y0 = cell(minY), y1 = cell(maxY);
+        int z0 = cell(minZ), z1 = cell(maxZ);
+        for (int x = x0; x <= x1; x++) {
+            for (int y = y0; y <= y1; y++) {
+                for (int z = z0; z <= z1; z++) {
+                    addEntry(findOrCreateCell(x, y, z), item);
+                }
+            }
+        }
+        return item;
+    }
+
+    // Collects every item whose box overlaps the query box, in insertion order.
+    // Touching boxes count as overlapping. Returns the number of results.
+    public int query(float minX, float minY, float minZ, float maxX, float maxY, float maxZ) {
+        resultCount = 0;
+        queryStamp++;
+
+        int x0 = cell(minX), x1 = cell(maxX);
+        int y0 = cell(minY), y1 = cell(maxY);
+        int z0 = cell(minZ), z1 = cell(maxZ);
+        for (int x = x0; x <= x1; x++) {
+            for (int y = y0; y <= y1; y++) {
+                for (int z = z0; z <= z1; z++) {
+                    int slot = findCell(x, y, z);
+                    if (slot == EMPTY)
+                        continue;
+
+                    for (int entry = cellHead[slot]; entry != EMPTY; entry = entryNext[entry]) {
+                        int item = entryItem[entry];
+                        if (itemQueryStamp[item] == queryStamp)
+                            continue;
+                        itemQueryStamp[item] = queryStamp;
+
+                        if (overlaps(item, minX, minY, minZ, maxX, maxY, maxZ)) {
+                            if (resultCount == results.length) {
+                                results = Arrays.copyOf(results, resultCount * 2);
+                            }
+                            results[resultCount++] = item;
+                        }
+                    }
+                }
+            }
+        }
+
+        Arrays.sort(results, 0, resultCount);
+        return resultCount;
+    }
+
+    public int result(int index) {
+        return results[index];
+    }
+
+    // Returns the lowest-numbered item overlapping the query box, or -1. Picking
+    // by insertion order keeps the answer identical to a linear scan over the
+    // same boxes. Items belonging to excludeEntity are skipped.
+    public int firstOverlap(int excludeEntity, float minX, float minY, float minZ, float maxX, float maxY,
+            float maxZ) {
+        return firstOverlap((short) -1, excludeEntity, excludeEntity, minX, minY, minZ, maxX, maxY, maxZ);
+    }
+
+    // As above, but only items in a group the mask covers count, and items of
+    // either excluded entity are skipped, e.g. the querying box itself and its
+    // owner.
+    public int firstOverlap(short mask, int excludeSelf, int excludeOwner, float minX, float minY, float minZ,
+            float maxX, float maxY, float maxZ) {
+        int first = EMPTY;
+        queryStamp++;
+
+        int x0 = cell(minX), x1 = cell(maxX);
+        int y0 = cell(minY), y1 = cell(maxY);
+        int z0 = cell(minZ), z1 = cell(maxZ);
+        for (int x = x0; x <= x1; x++) {
+            for (int y = y0; y <= y1; y++) {
+                for (int z = z0; z <= z1; z++) {
+                    int slot = findCell(x, y, z);
+                    if (slot == EMPTY)
+                        continue;
+
+                    for (int entry = cellHead[slot]; entry != EMPTY; entry = entryNext[entry]) {
+                        int item = entryItem[entry];
+                        if (itemQueryStamp[item] == queryStamp)
+                            continue;
+                        itemQueryStamp[item] = queryStamp;
+
+                        if ((first == EMPTY || item < first) && (itemGroup[item] & mask) != 0
+                                && itemEntity[item] != excludeSelf && itemEntity[item] != excludeOwner
+                                && overlaps(item, minX, minY, minZ, maxX, maxY, maxZ)) {
+                            first = item;
+                        }
+                    }
+                }
+            }
+        }
+        return first;
+    }
+
+    private boolean overlaps(int item, float minX, float minY, float minZ, float maxX, float maxY, float maxZ) {
+        return (minX <= itemMaxX[item] && maxX >= itemMinX[item]) &&
+                (minY <= itemMaxY[item] && maxY >= itemMinY[item]) &&
+                (minZ <= itemMaxZ[item] && maxZ >= itemMinZ[item]);
+    }
+
+    private int cell(float coordinate) {
+        return (int) Math.floor(coordinate * inverseCellSize);
+    }
+
+    private static int hash(int x, int y, int z) {
+        int h = x * 73856093 ^ y * 19349663 ^ z * 83492791;
+        return h ^ (h >>> 16);
+    }
+
+    private int findCell(int x, int y, int z) {
+        int mask = cellStamp.length - 1;
+        for (int slot = hash(x, y, z) & mask;; slot = (slot + 1) & mask) {
+            if (cellStamp[slot] != buildStamp)
+                return EMPTY;
+            if (cellX[slot] == x && cellY[slot] == y && cellZ[slot] == z)
+                return slot;
+        }
+    }
+
+    private int findOrCreateCell(int x, int y, int z) {
+        // Keep the load factor at or below one half so probe chains stay short.
+        if ((cellCount + 1) * 2 > cellStamp.length) {
+            growCells();
+        }
+
+        int mask = cellStamp.length - 1;
+        for (int slot = hash(x, y, z) & mask;; slot = (slot + 1) & mask) {
+            if (cellStamp[slot] != buildStamp) {
+                cellStamp[slot] = buildStamp;
+                cellX[slot] = x;
+                cellY[slot] = y;
+                cellZ[slot] = z;
+                cellHead[slot] = EMPTY;
+                cellCount++;
+                return slot;
+            }
+            if (cellX[slot] == x && cellY[slot] == y && cellZ[slot] == z)
+                return slot;
+        }
+    }
+
+    private void addEntry(int slot, int item) {
+        if (entryCount == entryItem.length) {
+            entryItem = Arrays.copyOf(entryItem, entryCount * 2);
+            entryNext = Arrays.copyOf(entryNext, entryCount * 2);
+        }
+        entryItem[entryCount] = item;
+        entryNext[entryCount] = cellHead[slot];
+        cellHead[slot] = entryCount;
+        entryCount++;
+    }
+
+    private void growCells() {
+        int[] oldX = cellX, oldY = cellY, oldZ = cellZ, oldHead = cellHead, oldStamp = cellStamp;
+        int length = oldStamp.length * 2;
+        cellX = new int[length];
+        cellY = new int[length];
+        cellZ = new int[length];
+        cellHead = new int[length];
+        cellStamp = new int[length];
+
+        int mask = length - 1;
+        for (int i = 0; i < oldStamp.length; i++) {
+            if (oldStamp[i] != buildStamp)
+                continue;
+
+            int slot = hash(oldX[i], oldY[i], oldZ[i]) & mask;
+            while (cellStamp[slot] == buildStamp) {
+                slot = (slot + 1) & mask;
+            }
+            cellStamp[slot] = buildStamp;
+            cellX[slot] = oldX[i];
+            cellY[slot] = oldY[i];
+            cellZ[slot] = oldZ[i];
+            cellHead[slot] = oldHead[i];
+        }
+    }
+
+    private void growItems() {
+        int length = itemEntity.length * 2;
+        itemEntity = Arrays.copyOf(itemEntity, length);
+        itemGroup = Arrays.copyOf(itemGroup, length);
+        itemMinX = Arrays.copyOf(itemMinX, length);
+        itemMinY = Arrays.copyOf(itemMinY, length);
+        itemMinZ = Arrays.copyOf(itemMinZ, length);
+        itemMaxX = Arrays.copyOf(itemMaxX, length);
+        itemMaxY = Arrays.copyOf(itemMaxY, length);
+        itemMaxZ = Arrays.copyOf(itemMaxZ, length);
+        itemQueryStamp = Arrays.copyOf(itemQueryStamp, length);
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.physics;
+
+import java.nio.*;
+import java.util.*;
+
+import com.bulletphysics.collision.shapes.*;
+import com.bulletphysics.dynamics.*;
+import com.bulletphysics.linearmath.Transform;
+
+// The level's static colliders, collected at load and baked into a single
+// body whose shape is a BVH over every box's triangles. One body keeps the
+// broadphase free of static clutter however many boxes the map has, and the
+// BVH only tests the triangles near whatever touches it. Boxes are axis
+// aligned, given by center and half extents.
+public class StaticGeometry {
+    private static final int VERTICES_PER_BOX = 8;
+    // Two triangles per face, as corner indices; corner bits are x, y, z.
+    private static final int[] BOX_TRIANGLES = {
+            0, 2, 3, 3, 1, 0, // -x
+            4, 5, 7, 7, 6, 4, // +x
+            0, 1, 5, 5, 4, 0, // -y
+            2, 6, 7, 7, 3, 2, // +y
+            0, 4, 6, 6, 2, 0, // -z
+            1, 3, 7, 7, 5, 1, // +z
+    };
+
+    private float[] boxes = new float[6 * 16];
+    private int boxCount;
+
+    public void addBox(float centerX, float centerY, float centerZ, float halfX, float halfY, float halfZ) {
+        if (halfX <= 0 || halfY <= 0 || halfZ <= 0)
+            throw new IllegalArgumentException("Box half extents must be positive");
+
+        if ((boxCount + 1) * 6 > boxes.length) {
+            boxes = Arrays.copyOf(boxes, boxes.length * 2);
+        }
+        int o = boxCount++ * 6;
+        boxes[o] = centerX;
+        boxes[o + 1] = centerY;
+        boxes[o + 2] = centerZ;
+        boxes[o + 3] = halfX;
+        boxes[o + 4] = halfY;
+        boxes[o + 5] = halfZ;
+    }
+
+    public int getBoxCount() {
+        return boxCount;
+    }
+
+    // Builds the body and adds it to the world on the static layer. The body
+    // belongs to no entity. Call once the level's boxes are all in.
+    public RigidBody bake(PhysicsWorld world) {
+        if (boxCount == 0)
+            throw new IllegalStateException("No static geometry to bake");
+
+        int triangleCount = boxCount * BOX_TRIANGLES.length / 3;
+        ByteBuffer indices = ByteBuffer.allocateDirect(triangleCount * 3 * 4).order(ByteOrder.nativeOrder());
+        ByteBuffer vertices = ByteBuffer.allocateDirect(boxCount * VERTICES_PER_BOX * 3 * 4)
+                .order(ByteOrder.nativeOrder());
+
+        for (int box = 0; box < boxCount; box++) {
+            int o = box * 6;
+            for (int corner = 0; corner < VERTICES_PER_BOX; corner++) {
+                vertices.putFloat(boxes[o] + ((corner & 4) != 0 ? boxes[o + 3] : -boxes[o + 3]));
+                vertices.putFloat(boxes[o + 1] + ((corner & 2) != 0 ? boxes[o + 4] : -boxes[o + 4]));
+                vertices.putFloat(boxes[o + 2] + ((corner & 1) != 0 ? boxes[o + 5] : -boxes[o + 5]));
+            }
+            int base = box * VERTICES_PER_BOX;
+            for (int corner : BOX_TRIANGLES) {
+                indices.putInt(base + corner);
+            }
+        }
+        indices.flip();
+        vertices.flip();
+
+        TriangleIndexVertexArray mesh = new TriangleIndexVertexArray(triangleCount, indices, 3 * 4,
+                boxCount * VERTICES_PER_BOX, vertices, 3 * 4);
+        BvhTriangleMeshShape shape = new BvhTriangleMeshShape(mesh, true);
+
+        Transform identity = new Transform();
+        identity.setIdentity();
+        RigidBody body = new RigidBody(new RigidBodyConstructionInfo(0.0f, new TrackedMotionState(identity), shape));
+        world.addRigidBody(body, CollisionLayer.STATIC_WORLD);
+        return body;
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.physics;
+
+import com.bulletphysics.linearmath.*;
+
+// Motion state that reports movement to the PhysicsWorld it is in. JBullet only
+// writes motion states back for dynamic bodies it simulated, so static and
+// untouched bodies never show up. A write that leaves the position unchanged is
+// ignored too. Only moved bodies end up in a snapshot's moved list, and
+// write-back costs nothing per body at rest.
+public class TrackedMotionState extends MotionState {
+    private final Transform worldTransform = new Transform();
+    private PhysicsWorld world;
+    private int slot = -1;
+
+    public TrackedMotionState(Transform startTransform) {
+        worldTransform.set(startTransform);
+    }
+
+    @Override
+    public Transform getWorldTransform(Transform out) {
+        out.set(worldTransform);
+        return out;
+    }
+
+    @Override
+    public void setWorldTransform(Transform transform) {
+        float x = transform.origin.x, y = transform.origin.y, z = transform.origin.z;
+        boolean moved = x != worldTransform.origin.x || y != worldTransform.origin.y
+                || z != worldTransform.origin.z;
+        worldTransform.set(transform);
+
+        if (moved && world != null) {
+            world.markMoved(slot, x, y, z);
+        }
+    }
+
+    // Called by the world on its stepping thread as the body joins or leaves.
+    void bind(PhysicsWorld world, int slot) {
+        this.world = world;
+        this.slot = slot;
+    }
+
+    float getX() {
+        return worldTransform.origin.x;
+    }
+
+    float getY() {
+        return worldTransform.origin.y;
+    }
+
+    float getZ() {
+        return worldTransform.origin.z;
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.rendering;
+
+import java.nio.ByteBuffer;
+
+import static org.lwjgl.opengl.GL15.*;
+import static org.lwjgl.opengl.GL30.glBindBufferBase;
+import static org.lwjgl.opengl.GL31.GL_UNIFORM_BUFFER;
+import org.lwjgl.system.MemoryUtil;
+
+import com.example.entities.Camera;
+
+// Uniform buffer holding the camera's view and projection matrices. It is
+// uploaded once per frame and every program that declares the block reads it:
+//
+//   layout (std140) uniform Camera {
+//       mat4 view;
+//       mat4 projection;
+//   };
+//
+// ShaderProgram binds that block to BINDING when it links.
+public class CameraUniformBuffer {
+    public static final String BLOCK_NAME = "Camera";
+    public static final int BINDING = 0;
+
+    private static final int MATRIX_BYTES = 16 * Float.BYTES;
+    private static final int SIZE = 2 * MATRIX_BYTES;
+
+    private final int uboId;
+    private final ByteBuffer data;
+
+    public CameraUniformBuffer() {
+        data = MemoryUtil.memAlloc(SIZE);
+        uboId = glGenBuffers();
+        glBindBuffer(GL_UNIFORM_BUFFER, uboId);
+        glBufferData(GL_UNIFORM_BUFFER, SIZE, GL_DYNAMIC_DRAW);
+        glBindBuffer(GL_UNIFORM_BUFFER, 0);
+        glBindBufferBase(GL_UNIFORM_BUFFER, BINDING, uboId);
+    }
+
+    public void update(Camera camera) {
+        camera.view.get(0, data);
+        camera.projection.get(MATRIX_BYTES, data);
+
+        glBindBuffer(GL_UNIFORM_BUFFER, uboId);
+        glBufferSubData(GL_UNIFORM_BUFFER, 0, data);
+        glBindBuffer(GL_UNIFORM_BUFFER, 0);
+    }
+
+    public void cleanup() {
+        glDeleteBuffers(uboId);
+        MemoryUtil.memFree(data);
+    }
+}
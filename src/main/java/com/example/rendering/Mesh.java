@@ -6,16 +6,32 @@ import static org.lwjgl.opengl.GL11.*;
 import static org.lwjgl.opengl.GL15.*;
 import static org.lwjgl.opengl.GL20.*;
 import static org.lwjgl.opengl.GL30.*;
+import static org.lwjgl.opengl.GL31.glDrawElementsInstanced;
+import static org.lwjgl.opengl.GL33.glVertexAttribDivisor;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import org.lwjgl.system.*;
 
+import com.example.assets.MeshData;
+
 public class Mesh {
+    // Per-instance attributes read by instanced draws: the model matrix takes
+    // four consecutive locations, one per column.
+    public static final int INSTANCE_MODEL_LOCATION = 2;
+    public static final int INSTANCE_ALPHA_LOCATION = 6;
+
+    private static final AtomicInteger nextSortId = new AtomicInteger();
+
     private int vaoId;
     private int vboId;
     private int eboId;
     private int vertexCount;
+    private float boundingRadius;
+    private final int sortId = nextSortId.getAndIncrement();
+    private int instanceVboId;
 
     public Mesh(float[] vertices, int[] indices) {
-        vertexCount = indices.length;
+        this(indices.length, boundingRadius(vertices));
         vaoId = glGenVertexArrays();
         glBindVertexArray(vaoId);
 
@@ -33,6 +49,30 @@ public class Mesh {
         glBufferData(GL_ELEMENT_ARRAY_BUFFER, indicesBuffer, GL_STATIC_DRAW);
         MemoryUtil.memFree(indicesBuffer);
 
+        bindVertexAttributes();
+    }
+
+    // Uploads loaded geometry. The data's buffers go to GL as they are, so a
+    // memory-mapped mesh cache is read straight from the page cache.
+    public Mesh(MeshData data) {
+        this(data.getIndexCount(), data.getBoundingRadius());
+        vaoId = glGenVertexArrays();
+        glBindVertexArray(vaoId);
+
+        vboId = glGenBuffers();
+        glBindBuffer(GL_ARRAY_BUFFER, vboId);
+        glBufferData(GL_ARRAY_BUFFER, data.getVertices(), GL_STATIC_DRAW);
+
+        eboId = glGenBuffers();
+        glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, eboId);
+        glBufferData(GL_ELEMENT_ARRAY_BUFFER, data.getIndices(), GL_STATIC_DRAW);
+
+        bindVertexAttributes();
+    }
+
+    // Interleaved position and color, then unbinds, leaving the element buffer
+    // recorded in the VAO.
+    private void bindVertexAttributes() {
         int stride = (3 + 3) * Float.BYTES;
         glVertexAttribPointer(0, 3, GL_FLOAT, false, stride, 0);
         glEnableVertexAttribArray(0);
@@ -43,13 +83,94 @@ public class Mesh {
         glBindVertexArray(0);
     }
 
+    private Mesh(int vertexCount, float boundingRadius) {
+        this.vertexCount = vertexCount;
+        this.boundingRadius = boundingRadius;
+    }
+
+    // Radius of the smallest origin-centred sphere holding every vertex position,
+    // with vertices laid out as interleaved position and color.
+    private static float boundingRadius(float[] vertices) {
+        float maxDistanceSquared = 0.0f;
+        for (int i = 0; i + 2 < vertices.length; i += 6) {
+            float x = vertices[i], y = vertices[i + 1], z = vertices[i + 2];
+            maxDistanceSquared = Math.max(maxDistanceSquared, x * x + y * y + z * z);
+        }
+        return (float) Math.sqrt(maxDistanceSquared);
+    }
+
+    // Creates a mesh that keeps its size but never touches GL, for headless
+    // simulation. Drawing and cleaning it up do nothing.
+    public static Mesh headless(float[] vertices, int[] indices) {
+        return new Mesh(indices.length, boundingRadius(vertices));
+    }
+
+    public static Mesh headless(MeshData data) {
+        return new Mesh(data.getIndexCount(), data.getBoundingRadius());
+    }
+
+    public boolean isUploaded() {
+        return vaoId != 0;
+    }
+
+    public int getVertexCount() {
+        return vertexCount;
+    }
+
+    // Small number identifying the mesh in render sort keys.
+    public int getSortId() {
+        return sortId;
+    }
+
+    // Bounds in model space; rotation never moves a vertex outside this radius.
+    public float getBoundingRadius() {
+        return boundingRadius;
+    }
+
     public void draw() {
+        if (vaoId == 0)
+            return;
+
         glBindVertexArray(vaoId);
         glDrawElements(GL_TRIANGLES, vertexCount, GL_UNSIGNED_INT, 0);
         glBindVertexArray(0);
     }
 
+    // Draws instanceCount copies of the mesh, reading per-instance data laid out
+    // as RenderCommandBuffer packs it from instanceVbo. The VAO records the instance
+    // attributes the first time it is drawn from a given buffer.
+    public void drawInstanced(int instanceVbo, int instanceCount) {
+        if (vaoId == 0 || instanceCount == 0)
+            return;
+
+        glBindVertexArray(vaoId);
+        if (instanceVboId != instanceVbo) {
+            bindInstanceAttributes(instanceVbo);
+            instanceVboId = instanceVbo;
+        }
+        glDrawElementsInstanced(GL_TRIANGLES, vertexCount, GL_UNSIGNED_INT, 0, instanceCount);
+        glBindVertexArray(0);
+    }
+
+    private void bindInstanceAttributes(int instanceVbo) {
+        int stride = RenderCommandBuffer.FLOATS_PER_INSTANCE * Float.BYTES;
+        glBindBuffer(GL_ARRAY_BUFFER, instanceVbo);
+        for (int column = 0; column < 4; column++) {
+            int location = INSTANCE_MODEL_LOCATION + column;
+            glVertexAttribPointer(location, 4, GL_FLOAT, false, stride, column * 4L * Float.BYTES);
+            glEnableVertexAttribArray(location);
+            glVertexAttribDivisor(location, 1);
+        }
+        glVertexAttribPointer(INSTANCE_ALPHA_LOCATION, 1, GL_FLOAT, false, stride,
+                (long) RenderCommandBuffer.MATRIX_FLOATS * Float.BYTES);
+        glEnableVertexAttribArray(INSTANCE_ALPHA_LOCATION);
+        glVertexAttribDivisor(INSTANCE_ALPHA_LOCATION, 1);
+    }
+
     public void cleanup() {
+        if (vaoId == 0)
+            return;
+
         glDisableVertexAttribArray(0);
         glBindBuffer(GL_ARRAY_BUFFER, 0);
         glDeleteBuffers(vboId);
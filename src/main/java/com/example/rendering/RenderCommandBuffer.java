@@ -0,0 +1,161 @@
+package com.example.rendering;
+
+import java.util.Arrays;
+
+// One frame's draws as compact commands: a sort key, the shader and mesh, and
+// the packed instance data (a column-major model matrix followed by alpha).
+// Filling the buffer never touches GL, so scene traversal can run anywhere,
+// including on worker threads that each fill their own buffer before append()
+// merges them.
+//
+// sort() orders commands for submission. Keys are laid out so that
+//   opaque:      pass | shader | mesh | depth     groups state changes, then front to back
+//   transparent: pass | inverted depth | shader | mesh   back to front for blending
+// and consecutive commands with the same pass, shader and mesh can be drawn as
+// one instanced call.
+public class RenderCommandBuffer {
+    public static final int MATRIX_FLOATS = 16;
+    public static final int FLOATS_PER_INSTANCE = MATRIX_FLOATS + 1;
+
+    public static final int PASS_OPAQUE = 0;
+    public static final int PASS_TRANSPARENT = 1;
+
+    private static final int DEPTH_BITS = 24;
+    private static final int MESH_BITS = 12;
+    private static final int SHADER_BITS = 6;
+    private static final long DEPTH_MAX = (1L << DEPTH_BITS) - 1;
+    private static final long MESH_MASK = (1L << MESH_BITS) - 1;
+    private static final long SHADER_MASK = (1L << SHADER_BITS) - 1;
+    private static final int PASS_SHIFT = DEPTH_BITS + MESH_BITS + SHADER_BITS;
+
+    // Sorting packs the command number under the key, which leaves 20 bits.
+    private static final int INDEX_BITS = 63 - (PASS_SHIFT + 1);
+    private static final long INDEX_MASK = (1L << INDEX_BITS) - 1;
+
+    private final float maxDepth;
+    private long[] keys = new long[64];
+    private long[] order = new long[64];
+    private int[] passes = new int[64];
+    private ShaderProgram[] shaders = new ShaderProgram[64];
+    private Mesh[] meshes = new Mesh[64];
+    private float[] instanceData = new float[64 * FLOATS_PER_INSTANCE];
+    private int count;
+    private int matrixRebuilds;
+
+    // Depths are clamped to [0, maxDepth], normally the camera's far plane.
+    public RenderCommandBuffer(float maxDepth) {
+        if (maxDepth <= 0)
+            throw new IllegalArgumentException("Max depth must be positive: " + maxDepth);
+        this.maxDepth = maxDepth;
+    }
+
+    public void clear() {
+        Arrays.fill(shaders, 0, count, null);
+        Arrays.fill(meshes, 0, count, null);
+        count = 0;
+        matrixRebuilds = 0;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    // Queues one instance. depth is the distance from the camera; the model
+    // matrix is read from matrices starting at matrixOffset.
+    public void add(int pass, ShaderProgram shader, Mesh mesh, float depth, float[] matrices, int matrixOffset,
+            float alpha) {
+        int command = reserve();
+        passes[command] = pass;
+        shaders[command] = shader;
+        meshes[command] = mesh;
+        keys[command] = key(pass, shader.getSortId(), mesh.getSortId(), depth);
+
+        int offset = command * FLOATS_PER_INSTANCE;
+        System.arraycopy(matrices, matrixOffset, instanceData, offset, MATRIX_FLOATS);
+        instanceData[offset + MATRIX_FLOATS] = alpha;
+    }
+
+    // Moves every command of another buffer to the end of this one.
+    public void append(RenderCommandBuffer other) {
+        for (int i = 0; i < other.count; i++) {
+            int command = reserve();
+            passes[command] = other.passes[i];
+            shaders[command] = other.shaders[i];
+            meshes[command] = other.meshes[i];
+            keys[command] = other.keys[i];
+            System.arraycopy(other.instanceData, i * FLOATS_PER_INSTANCE, instanceData,
+                    command * FLOATS_PER_INSTANCE, FLOATS_PER_INSTANCE);
+        }
+        matrixRebuilds += other.matrixRebuilds;
+        other.clear();
+    }
+
+    public void sort() {
+        for (int i = 0; i < count; i++) {
+            order[i] = (keys[i] << INDEX_BITS) | i;
+        }
+        Arrays.sort(order, 0, count);
+    }
+
+    // Command number at a position in sorted order; valid after sort().
+    public int commandAt(int position) {
+        return (int) (order[position] & INDEX_MASK);
+    }
+
+    // Whether two commands can share one instanced draw.
+    public boolean sameBatch(int a, int b) {
+        return passes[a] == passes[b] && shaders[a] == shaders[b] && meshes[a] == meshes[b];
+    }
+
+    public int getPass(int command) {
+        return passes[command];
+    }
+
+    public ShaderProgram getShader(int command) {
+        return shaders[command];
+    }
+
+    public Mesh getMesh(int command) {
+        return meshes[command];
+    }
+
+    // Packed instances, FLOATS_PER_INSTANCE floats per command, in command order.
+    public float[] getInstanceData() {
+        return instanceData;
+    }
+
+    public void noteMatrixRebuild() {
+        matrixRebuilds++;
+    }
+
+    public int getMatrixRebuilds() {
+        return matrixRebuilds;
+    }
+
+    private long key(int pass, int shaderId, int meshId, float depth) {
+        long quantized = (long) (Math.min(Math.max(depth / maxDepth, 0.0f), 1.0f) * DEPTH_MAX);
+        long shader = shaderId & SHADER_MASK;
+        long mesh = meshId & MESH_MASK;
+        if (pass == PASS_OPAQUE) {
+            return (shader << (MESH_BITS + DEPTH_BITS)) | (mesh << DEPTH_BITS) | quantized;
+        }
+        return ((long) pass << PASS_SHIFT) | ((DEPTH_MAX - quantized) << (SHADER_BITS + MESH_BITS))
+                | (shader << MESH_BITS) | mesh;
+    }
+
+    private int reserve() {
+        if (count == keys.length) {
+            if (count > INDEX_MASK)
+                throw new IllegalStateException("Too many render commands: " + count);
+
+            int length = count * 2;
+            keys = Arrays.copyOf(keys, length);
+            order = Arrays.copyOf(order, length);
+            passes = Arrays.copyOf(passes, length);
+            shaders = Arrays.copyOf(shaders, length);
+            meshes = Arrays.copyOf(meshes, length);
+            instanceData = Arrays.copyOf(instanceData, length * FLOATS_PER_INSTANCE);
+        }
+        return count++;
+    }
+}
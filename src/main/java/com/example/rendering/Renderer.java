@@ -1,57 +1,232 @@
 package com.example.rendering;
 
-import java.util.*;
+import java.lang.Math;
+import java.nio.FloatBuffer;
 
 import org.joml.*;
 import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL15.*;
+import org.lwjgl.system.MemoryUtil;
 
 import com.example.components.*;
 import com.example.entities.*;
 
+// Renders in two phases. buildCommands() walks the ECS, culls, and records one
+// command per visible entity without touching GL; submit() sorts the commands
+// and issues one instanced draw per run of commands sharing a pass, shader and
+// mesh.
 public class Renderer {
     private ShaderProgram shader;
     private Camera camera;
     private ECSRegistry ecs;
+    private ComponentPool<TransformComponent> transforms;
+    private ComponentPool<MeshComponent> meshes;
+    private ComponentPool<ExplosionComponent> explosions;
+    private ComponentPool<ColliderComponent> colliders;
+    private EntityQuery renderQuery;
+
+    private final RenderCommandBuffer commands;
+    private final WorldMatrixCache worldMatrices = new WorldMatrixCache();
+    private final Matrix4f viewProjection = new Matrix4f();
+    private final FrustumIntersection frustum = new FrustumIntersection();
+    // Every run of instances is streamed through the same instance buffer.
+    private final int instanceVbo;
+    private FloatBuffer instanceBuffer;
+    private int drawCalls;
+    private int matrixRebuilds;
+    private int entitiesTested;
+    private int entitiesDrawn;
 
     public Renderer(ShaderProgram shader, Camera camera, ECSRegistry ecs) {
         this.shader = shader;
         this.camera = camera;
         this.ecs = ecs;
+        this.transforms = ecs.pool(TransformComponent.class);
+        this.meshes = ecs.pool(MeshComponent.class);
+        this.explosions = ecs.pool(ExplosionComponent.class);
+        this.colliders = ecs.pool(ColliderComponent.class);
+        this.renderQuery = ecs.query(TransformComponent.class, MeshComponent.class);
+        this.commands = new RenderCommandBuffer(camera.far);
+
+        this.instanceVbo = glGenBuffers();
+        this.instanceBuffer = MemoryUtil.memAllocFloat(256 * RenderCommandBuffer.FLOATS_PER_INSTANCE);
     }
 
-    public void render() {
+    // Draws the scene blended between the last two simulation ticks;
+    // interpolation is the fraction of a tick elapsed since the latest one. The
+    // camera's matrices come from the shared CameraUniformBuffer, which must be
+    // updated for this frame first.
+    public void render(float interpolation) {
         glClear(GL_COLOR_BUFFER_BIT | GL_DEPTH_BUFFER_BIT);
-        shader.use();
-        camera.updateView();
-        shader.setUniformMat4("view", camera.view);
-        shader.setUniformMat4("projection", camera.projection);
-
-        // Renders entities by iterating over all entities that have Transform and Mesh
-        // components.
-        for (Map<Class<? extends Component>, Component> comps : ecs.getEntities().values()) {
-            TransformComponent transform = (TransformComponent) comps.get(TransformComponent.class);
-            MeshComponent meshComp = (MeshComponent) comps.get(MeshComponent.class);
-
-            if (transform != null && meshComp != null) {
-                Matrix4f model = new Matrix4f()
-                        .translation(transform.x, transform.y, transform.z)
-                        .rotateXYZ(transform.rotationX, transform.rotationY, transform.rotationZ);
-
-                // For explosion entities, it scales the model and sets alpha based on remaining
-                // lifetime.
-                float alpha = 1.0f;
-                if (comps.containsKey(ExplosionComponent.class)) {
-                    ExplosionComponent explosion = (ExplosionComponent) comps.get(ExplosionComponent.class);
-                    float scaleFactor = 1.0f + (explosion.maxLifetime - explosion.lifetime) * 2.0f;
-                    model.scale(scaleFactor);
-                    alpha = explosion.lifetime / explosion.maxLifetime;
-                }
-
-                shader.setUniformMat4("model", model);
-                shader.setUniform1f("alpha", alpha);
-
-                meshComp.mesh.draw();
+
+        int count = beginFrame();
+        commands.clear();
+        buildCommands(commands, 0, count, interpolation);
+
+        entitiesTested = count;
+        entitiesDrawn = commands.size();
+        matrixRebuilds = commands.getMatrixRebuilds();
+
+        submit(commands);
+    }
+
+    // Prepares culling and the matrix cache for this frame's camera and returns
+    // the number of renderable entities, to be split into ranges for
+    // buildCommands().
+    public int beginFrame() {
+        camera.projection.mul(camera.view, viewProjection);
+        frustum.set(viewProjection);
+
+        int count = renderQuery.collect();
+        worldMatrices.ensureCapacity(ecs.getCapacity());
+        return count;
+    }
+
+    // Records a command for every visible entity in [start, end) of the frame's
+    // renderable entities. It only reads components and writes the matrix slots
+    // of the entities in its range, so after beginFrame() disjoint ranges can be
+    // built on worker threads into separate buffers and append()ed together.
+    public void buildCommands(RenderCommandBuffer out, int start, int end, float interpolation) {
+        Vector3f eye = camera.position;
+        for (int i = start; i < end; i++) {
+            int entity = renderQuery.entity(i);
+            TransformComponent transform = transforms.get(entity);
+            MeshComponent meshComp = meshes.get(entity);
+
+            // For explosion entities, it scales the model and sets alpha based on remaining
+            // lifetime. They are the only blended geometry.
+            int pass = RenderCommandBuffer.PASS_OPAQUE;
+            float scale = 1.0f;
+            float alpha = 1.0f;
+            ExplosionComponent explosion = explosions.get(entity);
+            if (explosion != null) {
+                pass = RenderCommandBuffer.PASS_TRANSPARENT;
+                scale = explosion.scale();
+                alpha = explosion.alpha();
+            }
+
+            float x = transform.interpolatedX(interpolation);
+            float y = transform.interpolatedY(interpolation);
+            float z = transform.interpolatedZ(interpolation);
+
+            // Skip anything entirely outside the view frustum before it costs a
+            // matrix or a command.
+            if (!frustum.testSphere(x, y, z, boundingRadius(entity, meshComp.mesh, scale)))
+                continue;
+
+            // The cached matrix is reused unless the entity moved, turned or scaled.
+            if (worldMatrices.update(entity, x, y, z,
+                    transform.rotationX, transform.rotationY, transform.rotationZ, scale)) {
+                out.noteMatrixRebuild();
             }
+
+            float dx = x - eye.x, dy = y - eye.y, dz = z - eye.z;
+            float depth = (float) Math.sqrt(dx * dx + dy * dy + dz * dz);
+            out.add(pass, shader, meshComp.mesh, depth, worldMatrices.getMatrices(),
+                    WorldMatrixCache.offsetOf(entity), alpha);
         }
     }
+
+    // Sorts the commands and draws them. Transparent commands come last and do
+    // not write depth, so overlapping explosions blend with each other.
+    public void submit(RenderCommandBuffer commands) {
+        commands.sort();
+
+        drawCalls = 0;
+        ShaderProgram currentShader = null;
+        int currentPass = RenderCommandBuffer.PASS_OPAQUE;
+        float[] data = commands.getInstanceData();
+
+        glBindBuffer(GL_ARRAY_BUFFER, instanceVbo);
+        for (int start = 0, n = commands.size(); start < n;) {
+            int first = commands.commandAt(start);
+            int end = start + 1;
+            while (end < n && commands.sameBatch(first, commands.commandAt(end))) {
+                end++;
+            }
+
+            int pass = commands.getPass(first);
+            if (pass != currentPass) {
+                glDepthMask(pass == RenderCommandBuffer.PASS_OPAQUE);
+                currentPass = pass;
+            }
+            ShaderProgram program = commands.getShader(first);
+            if (program != currentShader) {
+                program.use();
+                currentShader = program;
+            }
+
+            int instances = end - start;
+            ensureInstanceCapacity(instances * RenderCommandBuffer.FLOATS_PER_INSTANCE);
+            instanceBuffer.clear();
+            for (int i = start; i < end; i++) {
+                instanceBuffer.put(data, commands.commandAt(i) * RenderCommandBuffer.FLOATS_PER_INSTANCE,
+                        RenderCommandBuffer.FLOATS_PER_INSTANCE);
+            }
+            instanceBuffer.flip();
+
+            // Respecifying the whole store lets the driver hand out fresh memory
+            // instead of waiting on the previous run's draw.
+            glBufferData(GL_ARRAY_BUFFER, instanceBuffer, GL_STREAM_DRAW);
+            commands.getMesh(first).drawInstanced(instanceVbo, instances);
+            drawCalls++;
+            start = end;
+        }
+        glBindBuffer(GL_ARRAY_BUFFER, 0);
+
+        if (currentPass != RenderCommandBuffer.PASS_OPAQUE) {
+            glDepthMask(true);
+        }
+    }
+
+    private void ensureInstanceCapacity(int floats) {
+        if (floats <= instanceBuffer.capacity())
+            return;
+
+        int capacity = instanceBuffer.capacity() * 2;
+        while (capacity < floats) {
+            capacity *= 2;
+        }
+        instanceBuffer = MemoryUtil.memRealloc(instanceBuffer, capacity);
+    }
+
+    // Conservative bounding sphere around the entity's position: the larger of
+    // the scaled mesh bounds and the sphere around its collider box, since the
+    // two are sized independently.
+    private float boundingRadius(int entity, Mesh mesh, float scale) {
+        float radius = mesh.getBoundingRadius() * scale;
+        ColliderComponent collider = colliders.get(entity);
+        if (collider != null) {
+            float halfDiagonal = 0.5f * (float) Math.sqrt(collider.width * collider.width +
+                    collider.height * collider.height + collider.depth * collider.depth);
+            radius = Math.max(radius, halfDiagonal);
+        }
+        return radius;
+    }
+
+    // Entities with a mesh checked against the frustum by the last render().
+    public int getEntitiesTested() {
+        return entitiesTested;
+    }
+
+    // Entities that passed culling and were submitted in the last render().
+    public int getEntitiesDrawn() {
+        return entitiesDrawn;
+    }
+
+    // Instanced draw calls issued by the last render(), one per run of commands
+    // sharing a pass, shader and mesh.
+    public int getDrawCalls() {
+        return drawCalls;
+    }
+
+    // World matrices rebuilt by the last render(); the rest came from the cache.
+    public int getMatrixRebuilds() {
+        return matrixRebuilds;
+    }
+
+    public void cleanup() {
+        glDeleteBuffers(instanceVbo);
+        MemoryUtil.memFree(instanceBuffer);
+    }
 }
@@ -1,13 +1,18 @@
 package com.example.rendering;
 
 import java.nio.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.joml.*;
 import static org.lwjgl.opengl.GL20.*;
 import org.lwjgl.system.*;
 
 public class ShaderProgram {
+    private static final AtomicInteger nextSortId = new AtomicInteger();
+
+    private final int sortId = nextSortId.getAndIncrement();
     private int programId;
+    private UniformTable uniforms;
 
     public ShaderProgram(String vertexSource, String fragmentSource) throws Exception {
         int vertexShaderId = createShader(vertexSource, GL_VERTEX_SHADER);
@@ -36,6 +41,20 @@ public class ShaderProgram {
         glDetachShader(programId, fragmentShaderId);
         glDeleteShader(vertexShaderId);
         glDeleteShader(fragmentShaderId);
+
+        resolveUniforms(UniformIntrospector.GL);
+    }
+
+    // Wraps a program that is already linked, reading its uniforms through the
+    // given introspector. Tests pass a fake one to build programs without GL.
+    ShaderProgram(int programId, UniformIntrospector gl) {
+        this.programId = programId;
+        resolveUniforms(gl);
+    }
+
+    private void resolveUniforms(UniformIntrospector gl) {
+        uniforms = new UniformTable(gl, programId);
+        uniforms.bindBlock(CameraUniformBuffer.BLOCK_NAME, CameraUniformBuffer.BINDING);
     }
 
     private int createShader(String source, int shaderType) throws Exception {
@@ -57,12 +76,26 @@ public class ShaderProgram {
         return shaderId;
     }
 
+    // Small number identifying the program in render sort keys.
+    public int getSortId() {
+        return sortId;
+    }
+
     public void use() {
         glUseProgram(programId);
     }
 
-    public void setUniformMat4(String name, Matrix4f matrix) {
-        int location = glGetUniformLocation(programId, name);
+    // Location of an active uniform, resolved when the program was linked, or
+    // UniformTable.MISSING. Look it up once and pass it to the setters below.
+    public int getUniformLocation(String name) {
+        return uniforms.location(name);
+    }
+
+    public UniformTable getUniforms() {
+        return uniforms;
+    }
+
+    public void setUniformMat4(int location, Matrix4f matrix) {
         try (MemoryStack stack = MemoryStack.stackPush()) {
             FloatBuffer fb = stack.mallocFloat(16);
             matrix.get(fb);
@@ -70,11 +103,18 @@ public class ShaderProgram {
         }
     }
 
-    public void setUniform1f(String name, float value) {
-        int location = glGetUniformLocation(programId, name);
+    public void setUniformMat4(String name, Matrix4f matrix) {
+        setUniformMat4(uniforms.location(name), matrix);
+    }
+
+    public void setUniform1f(int location, float value) {
         glUniform1f(location, value);
     }
 
+    public void setUniform1f(String name, float value) {
+        setUniform1f(uniforms.location(name), value);
+    }
+
     public void cleanup() {
         if (programId != 0) {
             glDeleteProgram(programId);
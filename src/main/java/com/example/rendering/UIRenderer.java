@@ -1,7 +1,5 @@
 package com.example.rendering;
 
-import java.util.*;
-
 import static org.lwjgl.opengl.GL11.*;
 import static org.lwjgl.opengl.GL30.*;
 
@@ -9,13 +7,22 @@ import com.example.components.*;
 
 public class UIRenderer {
     private ShaderProgram uiShader;
+    private ComponentPool<UIComponent> uiComponents;
+
+    public UIRenderer(ECSRegistry ecs) throws Exception {
+        this.uiComponents = ecs.pool(UIComponent.class);
 
-    public UIRenderer() throws Exception {
-        // UI vertex shader (in NDC)
+        // UI vertex shader (in NDC). The x axis is divided by the camera's aspect
+        // ratio, read from the shared Camera block, so shapes keep their proportions.
         String vertexSource = "#version 330 core\n" +
                 "layout (location = 0) in vec2 aPos;\n" +
+                "layout (std140) uniform Camera {\n" +
+                "    mat4 view;\n" +
+                "    mat4 projection;\n" +
+                "};\n" +
                 "void main() {\n" +
-                "    gl_Position = vec4(aPos, 0.0, 1.0);\n" +
+                "    float inverseAspect = projection[0][0] / projection[1][1];\n" +
+                "    gl_Position = vec4(aPos.x * inverseAspect, aPos.y, 0.0, 1.0);\n" +
                 "}\n";
         // UI fragment shader (solid white)
         String fragmentSource = "#version 330 core\n" +
@@ -26,19 +33,17 @@ public class UIRenderer {
         uiShader = new ShaderProgram(vertexSource, fragmentSource);
     }
 
-    // Render all UI entities provided by the ECS
-    public void render(Iterable<Map<Class<? extends Component>, Component>> uiEntities) {
+    // Render all UI entities in the ECS
+    public void render() {
         // Disable depth testing so UI appears on top
         glDisable(GL_DEPTH_TEST);
         uiShader.use();
 
-        for (Map<Class<? extends Component>, Component> comps : uiEntities) {
-            UIComponent uiComp = (UIComponent) comps.get(UIComponent.class);
-            if (uiComp != null) {
-                glBindVertexArray(uiComp.vaoId);
-                // Draw using GL_LINES if your crosshair is defined as lines
-                glDrawArrays(GL_LINES, 0, uiComp.vertexCount);
-            }
+        for (int i = 0; i < uiComponents.size(); i++) {
+            UIComponent uiComp = uiComponents.componentAt(i);
+            glBindVertexArray(uiComp.vaoId);
+            // Draw using GL_LINES if your crosshair is defined as lines
+            glDrawArrays(GL_LINES, 0, uiComp.vertexCount);
         }
         glBindVertexArray(0);
         glEnable(GL_DEPTH_TEST);
@@ -0,0 +1,55 @@
+package com.example.rendering;
+
+import java.nio.IntBuffer;
+
+import static org.lwjgl.opengl.GL20.*;
+import static org.lwjgl.opengl.GL31.*;
+import org.lwjgl.system.MemoryStack;
+
+// The GL queries used to resolve a linked program's uniforms. UniformTable goes
+// through this interface, so the name-to-location mapping can be built against a
+// fake program without a GL context.
+public interface UniformIntrospector {
+    int getActiveUniformCount(int programId);
+
+    String getActiveUniformName(int programId, int index);
+
+    int getUniformLocation(int programId, String name);
+
+    // Returns -1 if the program has no block with that name.
+    int getUniformBlockIndex(int programId, String blockName);
+
+    void setUniformBlockBinding(int programId, int blockIndex, int bindingPoint);
+
+    UniformIntrospector GL = new UniformIntrospector() {
+        @Override
+        public int getActiveUniformCount(int programId) {
+            return glGetProgrami(programId, GL_ACTIVE_UNIFORMS);
+        }
+
+        @Override
+        public String getActiveUniformName(int programId, int index) {
+            try (MemoryStack stack = MemoryStack.stackPush()) {
+                IntBuffer size = stack.mallocInt(1);
+                IntBuffer type = stack.mallocInt(1);
+                return glGetActiveUniform(programId, index, size, type);
+            }
+        }
+
+        @Override
+        public int getUniformLocation(int programId, String name) {
+            return glGetUniformLocation(programId, name);
+        }
+
+        @Override
+        public int getUniformBlockIndex(int programId, String blockName) {
+            int index = glGetUniformBlockIndex(programId, blockName);
+            return index == GL_INVALID_INDEX ? -1 : index;
+        }
+
+        @Override
+        public void setUniformBlockBinding(int programId, int blockIndex, int bindingPoint) {
+            glUniformBlockBinding(programId, blockIndex, bindingPoint);
+        }
+    };
+}
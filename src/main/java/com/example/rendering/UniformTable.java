@@ -0,0 +1,61 @@
+package com.example.rendering;
+
+import java.util.*;
+
+// Locations of a linked program's active uniforms, read once right after
+// linking. Lookups by name hit this table instead of the driver, and callers on
+// hot paths can resolve a location once and keep the int.
+//
+// Uniforms that live in a uniform block have no location and are left out;
+// array uniforms are reachable both as "name" and "name[0]".
+public class UniformTable {
+    public static final int MISSING = -1;
+
+    private final Map<String, Integer> locations = new HashMap<>();
+    private final UniformIntrospector gl;
+    private final int programId;
+
+    public UniformTable(UniformIntrospector gl, int programId) {
+        this.gl = gl;
+        this.programId = programId;
+
+        int count = gl.getActiveUniformCount(programId);
+        for (int i = 0; i < count; i++) {
+            String name = gl.getActiveUniformName(programId, i);
+            int location = gl.getUniformLocation(programId, name);
+            if (location < 0)
+                continue;
+
+            locations.put(name, location);
+            if (name.endsWith("[0]")) {
+                locations.put(name.substring(0, name.length() - 3), location);
+            }
+        }
+    }
+
+    // Returns the uniform's location, or MISSING if the program has no such
+    // active uniform (GL ignores uploads to -1, so it is safe to pass on).
+    public int location(String name) {
+        Integer location = locations.get(name);
+        return location != null ? location : MISSING;
+    }
+
+    public boolean has(String name) {
+        return locations.containsKey(name);
+    }
+
+    public int size() {
+        return locations.size();
+    }
+
+    // Points the named uniform block at a binding point. Returns false if the
+    // program does not declare the block.
+    public boolean bindBlock(String blockName, int bindingPoint) {
+        int blockIndex = gl.getUniformBlockIndex(programId, blockName);
+        if (blockIndex < 0)
+            return false;
+
+        gl.setUniformBlockBinding(programId, blockIndex, bindingPoint);
+        return true;
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.rendering;
+
+import java.util.Arrays;
+
+import org.joml.Matrix4f;
+
+import com.example.components.ECSRegistry;
+
+// Per-entity world matrices, kept between frames and indexed by entity slot.
+// Each slot remembers the position, rotation and scale its matrix was built
+// from; update() compares the new inputs against them and only rebuilds when
+// something changed, so entities that stand still cost a few float compares.
+//
+// Matrices are stored column-major, 16 floats per slot, in one shared array.
+public class WorldMatrixCache {
+    private static final int INPUTS = 7;
+
+    // Scratch per thread, since disjoint ranges may be updated concurrently.
+    private final ThreadLocal<Matrix4f> scratch = ThreadLocal.withInitial(Matrix4f::new);
+    private int[] entities = new int[0];
+    private float[] inputs = new float[0];
+    private float[] matrices = new float[0];
+
+    // Makes room for entity slots below the given count. Call before updating
+    // from several threads: updates for different entities touch disjoint slots
+    // and are safe to run concurrently once no growth is needed.
+    public void ensureCapacity(int slots) {
+        if (slots > entities.length) {
+            grow(slots);
+        }
+    }
+
+    // Offset of an entity's matrix in getMatrices().
+    public static int offsetOf(int entity) {
+        return ECSRegistry.entityIndex(entity) * RenderCommandBuffer.MATRIX_FLOATS;
+    }
+
+    // Rebuilds the entity's matrix if its transform changed since the last call.
+    // Returns whether it was rebuilt.
+    public boolean update(int entity, float x, float y, float z, float rotationX, float rotationY, float rotationZ,
+            float scale) {
+        int slot = ECSRegistry.entityIndex(entity);
+        if (slot >= entities.length) {
+            grow(slot + 1);
+        }
+
+        int in = slot * INPUTS;
+        int offset = slot * RenderCommandBuffer.MATRIX_FLOATS;
+        if (entities[slot] == entity &&
+                inputs[in] == x && inputs[in + 1] == y && inputs[in + 2] == z &&
+                inputs[in + 3] == rotationX && inputs[in + 4] == rotationY && inputs[in + 5] == rotationZ &&
+                inputs[in + 6] == scale) {
+            return false;
+        }
+
+        entities[slot] = entity;
+        inputs[in] = x;
+        inputs[in + 1] = y;
+        inputs[in + 2] = z;
+        inputs[in + 3] = rotationX;
+        inputs[in + 4] = rotationY;
+        inputs[in + 5] = rotationZ;
+        inputs[in + 6] = scale;
+
+        scratch.get().translation(x, y, z).rotateXYZ(rotationX, rotationY, rotationZ).scale(scale)
+                .get(matrices, offset);
+        return true;
+    }
+
+    public float[] getMatrices() {
+        return matrices;
+    }
+
+    private void grow(int minSlots) {
+        int oldSlots = entities.length;
+        int slots = Math.max(minSlots, Math.max(64, oldSlots * 2));
+        entities = Arrays.copyOf(entities, slots);
+        // -1 is never a live handle, so fresh slots always miss.
+        Arrays.fill(entities, oldSlots, slots, -1);
+        inputs = Arrays.copyOf(inputs, slots * INPUTS);
+        matrices = Arrays.copyOf(matrices, slots * RenderCommandBuffer.MATRIX_FLOATS);
+    }
+}
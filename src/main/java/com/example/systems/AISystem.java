@@ -1,158 +1,535 @@
 package com.example.systems;
 
 import java.util.*;
+import java.util.concurrent.*;
 
-import javax.vecmath.*;
-
+import com.bulletphysics.collision.broadphase.CollisionFilterGroups;
 import com.example.components.AIComponent.AIState;
 import com.example.components.*;
-import com.example.input.*;
+import com.example.navigation.*;
 import com.example.physics.*;
 
+// Updates AI agents in three phases.
+//
+// Select: agents are sorted into level-of-detail tiers by distance to the
+// player. Agents close enough to see or reach the player update every tick.
+// Agents further out update round-robin, about once every REDUCED_INTERVAL
+// ticks, and catch up with the simulation time they missed. Beyond that they
+// are frozen. An optional per-tick time budget caps how many reduced agents
+// run, using the measured cost of recent updates.
+//
+// Decide: the selected agents are split into fixed-size chunks that may run in
+// parallel on a ForkJoin pool. Each agent computes its next position, facing
+// and state from the world as it stood at the start of the update, and writes
+// the result into its chunk's command buffer; no component is modified in this
+// phase.
+//
+// With a PathService attached, agents in combat follow grid paths around static
+// geometry; path requests are issued while applying and resolved within a time
+// budget at the start of a later update.
+//
+// Apply: on the calling thread, the line-of-sight rays requested by agents that
+// have the player in range and in view are cast as one batch against static
+// geometry, then chunk buffers are applied in agent order. Because decisions
+// only read pre-update state and are applied in a fixed order, parallel and
+// serial runs give identical results, as long as no time budget makes the
+// selection timing-dependent.
 public class AISystem {
+    private static final int CHUNK_SIZE = 256;
+    private static final float DEFAULT_FULL_DISTANCE = 40.0f;
+    private static final float DEFAULT_FROZEN_DISTANCE = 150.0f;
+    private static final int REDUCED_INTERVAL = 4;
+    // Longest step a skipped agent catches up in one update; time beyond it is
+    // dropped rather than moving the agent through walls in one jump.
+    private static final float MAX_CATCH_UP = 0.5f;
+
+    private static final byte TIER_FULL = 0;
+    private static final byte TIER_REDUCED = 1;
+    private static final byte TIER_FROZEN = 2;
+
     private final ECSRegistry ecs;
     private final PhysicsWorld physicsWorld;
+    private final ComponentPool<AIComponent> agents;
+    private final ComponentPool<TransformComponent> transforms;
+    private final ComponentPool<HealthComponent> healths;
+    private final ForkJoinPool pool;
     private int playerEntity;
 
-    public AISystem(ECSRegistry ecs, PhysicsWorld physicsWorld) {
+    // Player position for this update; the player is not moved by AI.
+    private boolean playerPresent;
+    private float playerX, playerY, playerZ;
+
+    private float fullDistanceSq = DEFAULT_FULL_DISTANCE * DEFAULT_FULL_DISTANCE;
+    private float frozenDistanceSq = DEFAULT_FROZEN_DISTANCE * DEFAULT_FROZEN_DISTANCE;
+    private long tickBudgetNanos;
+    private double nanosPerAgent;
+    private int reducedCursor;
+
+    // Dense AI pool indices chosen for this update, with the time step each one
+    // simulates.
+    private byte[] tiers = new byte[CHUNK_SIZE];
+    private int[] selected = new int[CHUNK_SIZE];
+    private float[] selectedDeltaTime = new float[CHUNK_SIZE];
+    private int selectedCount;
+    private int reducedCount;
+    private int frozenCount;
+
+    private final List<AgentCommands> chunks = new ArrayList<>();
+    private final RayBatch sightRays = new RayBatch(64);
+    private PathService navigation;
+    private long pathBudgetNanos;
+
+    // One chunk's decisions, one row per agent that acted this update.
+    private static class AgentCommands {
+        static final int CHECK_SIGHT = 1;
+        static final int REQUEST_PATH = 2;
+
+        int count;
+        final AIComponent[] ai = new AIComponent[CHUNK_SIZE];
+        final TransformComponent[] transform = new TransformComponent[CHUNK_SIZE];
+        final int[] entity = new int[CHUNK_SIZE];
+        final float[] x = new float[CHUNK_SIZE], y = new float[CHUNK_SIZE], z = new float[CHUNK_SIZE];
+        final float[] rotationY = new float[CHUNK_SIZE];
+        final AIState[] state = new AIState[CHUNK_SIZE];
+        final int[] waypoint = new int[CHUNK_SIZE];
+        final int[] target = new int[CHUNK_SIZE];
+        final float[] timeSinceDetection = new float[CHUNK_SIZE];
+        final int[] pathIndex = new int[CHUNK_SIZE];
+        final int[] flags = new int[CHUNK_SIZE];
+
+        void clear() {
+            Arrays.fill(ai, 0, count, null);
+            Arrays.fill(transform, 0, count, null);
+            Arrays.fill(state, 0, count, null);
+            count = 0;
+        }
+    }
+
+    public AISystem(ECSRegistry ecs, PhysicsWorld physicsWorld, int playerEntity) {
+        this(ecs, physicsWorld, playerEntity, null);
+    }
+
+    // A null pool decides every chunk on the calling thread.
+    public AISystem(ECSRegistry ecs, PhysicsWorld physicsWorld, int playerEntity, ForkJoinPool pool) {
         this.ecs = ecs;
         this.physicsWorld = physicsWorld;
-        findPlayerEntity();
+        this.playerEntity = playerEntity;
+        this.pool = pool;
+        this.agents = ecs.pool(AIComponent.class);
+        this.transforms = ecs.pool(TransformComponent.class);
+        this.healths = ecs.pool(HealthComponent.class);
+        this.sightRays.filterMask = CollisionFilterGroups.STATIC_FILTER;
     }
 
-    private void findPlayerEntity() {
-        for (Map.Entry<Integer, Map<Class<? extends Component>, Component>> entry : ecs.getEntities().entrySet()) {
-            if (entry.getValue().containsKey(PlayerController.class)) {
-                playerEntity = entry.getKey();
-                break;
+    // Agents within fullDistance of the player update every tick; agents beyond
+    // frozenDistance do not update at all. Float.MAX_VALUE for both disables
+    // level of detail.
+    public void setLevelOfDetail(float fullDistance, float frozenDistance) {
+        if (fullDistance < 0 || frozenDistance < fullDistance)
+            throw new IllegalArgumentException("Need 0 <= fullDistance <= frozenDistance");
+        this.fullDistanceSq = fullDistance >= Float.MAX_VALUE ? Float.MAX_VALUE : fullDistance * fullDistance;
+        this.frozenDistanceSq = frozenDistance >= Float.MAX_VALUE ? Float.MAX_VALUE : frozenDistance * frozenDistance;
+    }
+
+    // Routes combat movement through the service's grid; a null service moves
+    // agents straight at their target. budgetNanos bounds the path searches
+    // resolved per update.
+    public void setNavigation(PathService navigation, long budgetNanos) {
+        if (budgetNanos < 0)
+            throw new IllegalArgumentException("Path budget must not be negative: " + budgetNanos);
+        this.navigation = navigation;
+        this.pathBudgetNanos = budgetNanos;
+    }
+
+    // Target time for one update; reduced-tier agents are skipped once the
+    // full-tier ones are expected to use it up, though at least one still runs
+    // so the round-robin keeps moving. 0 means no budget.
+    public void setTickBudget(long nanos) {
+        if (nanos < 0)
+            throw new IllegalArgumentException("Tick budget must not be negative: " + nanos);
+        this.tickBudgetNanos = nanos;
+    }
+
+    public void update(float deltaTime) {
+        TransformComponent playerTransform = transforms.get(playerEntity);
+        playerPresent = playerTransform != null;
+        if (playerPresent) {
+            playerX = playerTransform.x;
+            playerY = playerTransform.y;
+            playerZ = playerTransform.z;
+        }
+
+        if (navigation != null) {
+            navigation.process(pathBudgetNanos);
+        }
+
+        selectAgents(deltaTime);
+        if (selectedCount == 0)
+            return;
+
+        long start = System.nanoTime();
+        int chunkCount = (selectedCount + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        while (chunks.size() < chunkCount) {
+            chunks.add(new AgentCommands());
+        }
+
+        if (pool == null || chunkCount <= 1) {
+            decideChunks(0, chunkCount);
+        } else {
+            pool.invoke(new DecideTask(0, chunkCount));
+        }
+
+        castSightRays(chunkCount);
+        for (int c = 0, ray = 0; c < chunkCount; c++) {
+            ray = apply(chunks.get(c), ray);
+        }
+
+        double sample = (double) (System.nanoTime() - start) / selectedCount;
+        nanosPerAgent = nanosPerAgent == 0 ? sample : nanosPerAgent * 0.9 + sample * 0.1;
+    }
+
+    private void selectAgents(float deltaTime) {
+        int agentCount = agents.size();
+        if (tiers.length < agentCount) {
+            int capacity = Math.max(agentCount, tiers.length * 2);
+            tiers = new byte[capacity];
+            selected = new int[capacity];
+            selectedDeltaTime = new float[capacity];
+        }
+
+        selectedCount = 0;
+        reducedCount = 0;
+        frozenCount = 0;
+        for (int i = 0; i < agentCount; i++) {
+            AIComponent ai = agents.componentAt(i);
+            float distanceSq = 0;
+            TransformComponent transform = transforms.get(agents.entityAt(i));
+            if (transform != null && playerPresent) {
+                float dx = playerX - transform.x, dy = playerY - transform.y, dz = playerZ - transform.z;
+                distanceSq = dx * dx + dy * dy + dz * dz;
             }
+
+            if (distanceSq <= fullDistanceSq) {
+                tiers[i] = TIER_FULL;
+                ai.pendingTime += deltaTime;
+                select(i, ai);
+            } else if (distanceSq <= frozenDistanceSq) {
+                tiers[i] = TIER_REDUCED;
+                ai.pendingTime += deltaTime;
+                reducedCount++;
+            } else {
+                // Frozen agents resume from where they stopped, not with a jump.
+                tiers[i] = TIER_FROZEN;
+                ai.pendingTime = 0;
+                frozenCount++;
+            }
+        }
+
+        if (reducedCount == 0)
+            return;
+
+        int quota = (reducedCount + REDUCED_INTERVAL - 1) / REDUCED_INTERVAL;
+        if (tickBudgetNanos > 0 && nanosPerAgent > 0) {
+            double spare = tickBudgetNanos - selectedCount * nanosPerAgent;
+            quota = Math.max(1, Math.min(quota, (int) (spare / nanosPerAgent)));
+        }
+
+        // Continue the round-robin where the last update stopped. Removals
+        // reorder the dense arrays, which at worst makes an agent wait a turn.
+        int i = reducedCursor < agentCount ? reducedCursor : 0;
+        for (int visited = 0; visited < agentCount && quota > 0; visited++) {
+            if (tiers[i] == TIER_REDUCED) {
+                select(i, agents.componentAt(i));
+                quota--;
+            }
+            i = i + 1 < agentCount ? i + 1 : 0;
         }
+        reducedCursor = i;
     }
 
-    public void update(float deltaTime) {
-        TransformComponent playerTransform = ecs.getComponent(playerEntity, TransformComponent.class);
+    private void select(int index, AIComponent ai) {
+        selected[selectedCount] = index;
+        selectedDeltaTime[selectedCount] = Math.min(ai.pendingTime, MAX_CATCH_UP);
+        selectedCount++;
+        ai.pendingTime = 0;
+    }
+
+    private class DecideTask extends RecursiveAction {
+        private final int firstChunk, endChunk;
+
+        DecideTask(int firstChunk, int endChunk) {
+            this.firstChunk = firstChunk;
+            this.endChunk = endChunk;
+        }
 
-        for (Map.Entry<Integer, Map<Class<? extends Component>, Component>> entry : ecs.getEntities().entrySet()) {
-            int entity = entry.getKey();
-            AIComponent ai = ecs.getComponent(entity, AIComponent.class);
-            if (ai == null)
-                continue;
+        @Override
+        protected void compute() {
+            if (endChunk - firstChunk <= 1) {
+                decideChunks(firstChunk, endChunk);
+                return;
+            }
+            int middle = (firstChunk + endChunk) >>> 1;
+            invokeAll(new DecideTask(firstChunk, middle), new DecideTask(middle, endChunk));
+        }
+    }
 
-            TransformComponent transform = ecs.getComponent(entity, TransformComponent.class);
-            HealthComponent health = ecs.getComponent(entity, HealthComponent.class);
+    private void decideChunks(int firstChunk, int endChunk) {
+        for (int c = firstChunk; c < endChunk; c++) {
+            AgentCommands commands = chunks.get(c);
+            commands.clear();
 
-            if (health != null && health.health <= 0)
-                continue;
+            int end = Math.min((c + 1) * CHUNK_SIZE, selectedCount);
+            for (int k = c * CHUNK_SIZE; k < end; k++) {
+                int index = selected[k];
+                decide(agents.entityAt(index), agents.componentAt(index), commands, selectedDeltaTime[k]);
+            }
+        }
+    }
 
-            // Update AI state
-            switch (ai.currentState) {
-                case PATROL -> {
-                    handlePatrolState(entity, ai, transform, deltaTime);
-                    checkPlayerDetection(entity, ai, transform, playerTransform);
-                }
-                case DETECT -> {
-                    System.out.println(entity + ": Detected");
+    // Computes one agent's next state into commands, reading but never writing
+    // components.
+    private void decide(int entity, AIComponent ai, AgentCommands commands, float deltaTime) {
+        TransformComponent transform = transforms.get(entity);
+        if (transform == null)
+            return;
 
-                    handleDetectionState(ai, deltaTime);
-                    checkPlayerDetection(entity, ai, transform, playerTransform);
-                }
-                case COMBAT -> {
-                    System.out.println(entity + ": Fighting");
+        HealthComponent health = healths.get(entity);
+        if (health != null && health.health <= 0)
+            return;
+
+        int row = commands.count++;
+        commands.ai[row] = ai;
+        commands.transform[row] = transform;
+        commands.entity[row] = entity;
+        commands.x[row] = transform.x;
+        commands.y[row] = transform.y;
+        commands.z[row] = transform.z;
+        commands.rotationY[row] = transform.rotationY;
+        commands.state[row] = ai.currentState;
+        commands.waypoint[row] = ai.currentWaypoint;
+        commands.target[row] = ai.targetPlayerEntity;
+        commands.timeSinceDetection[row] = ai.timeSinceDetection;
+        commands.pathIndex[row] = ai.pathIndex;
+        commands.flags[row] = 0;
+
+        // A removed target fails the generation check even if its slot has been
+        // reused, so the agent drops it instead of chasing the new entity.
+        if (commands.target[row] != -1 && !ecs.isAlive(commands.target[row])) {
+            commands.target[row] = -1;
+            commands.state[row] = AIState.PATROL;
+        }
 
-                    handleCombatState(entity, ai, transform, playerTransform, deltaTime);
+        // Update AI state
+        switch (commands.state[row]) {
+            case PATROL -> {
+                handlePatrolState(ai, commands, row, deltaTime);
+                checkPlayerDetection(ai, commands, row);
+            }
+            case DETECT -> handleDetectionState(ai, commands, row, deltaTime);
+            case COMBAT -> {
+                TransformComponent targetTransform = transforms.get(commands.target[row]);
+                if (targetTransform != null) {
+                    handleCombatState(ai, commands, row, targetTransform, deltaTime);
                 }
             }
         }
     }
 
-    private void handlePatrolState(int entity, AIComponent ai, TransformComponent transform, float deltaTime) {
+    private void handlePatrolState(AIComponent ai, AgentCommands commands, int row, float deltaTime) {
         if (ai.waypoints == null || ai.waypoints.length == 0)
             return;
 
-        org.joml.Vector3f target = ai.waypoints[ai.currentWaypoint];
-        Vector3f direction = new Vector3f(target.x - transform.x, target.y - transform.y, target.z - transform.z);
+        float x = commands.x[row], y = commands.y[row], z = commands.z[row];
+        org.joml.Vector3f target = ai.waypoints[commands.waypoint[row]];
+        float dx = target.x - x, dy = target.y - y, dz = target.z - z;
+        float length = (float) Math.sqrt(dx * dx + dy * dy + dz * dz);
 
-        if (direction.length() < 0.5f) {
-            ai.currentWaypoint = (ai.currentWaypoint + 1) % ai.waypoints.length;
-            target = ai.waypoints[ai.currentWaypoint];
-            direction.set(target.x - transform.x, target.y - transform.y, target.z - transform.z);
+        if (length < 0.5f) {
+            commands.waypoint[row] = (commands.waypoint[row] + 1) % ai.waypoints.length;
+            target = ai.waypoints[commands.waypoint[row]];
+            dx = target.x - x;
+            dy = target.y - y;
+            dz = target.z - z;
+            length = (float) Math.sqrt(dx * dx + dy * dy + dz * dz);
         }
 
-        direction.normalize();
-        transform.x += direction.x * ai.patrolSpeed * deltaTime;
-        transform.y += direction.y * ai.patrolSpeed * deltaTime;
-        transform.z += direction.z * ai.patrolSpeed * deltaTime;
+        dx /= length;
+        dy /= length;
+        dz /= length;
+        commands.x[row] = x + dx * ai.patrolSpeed * deltaTime;
+        commands.y[row] = y + dy * ai.patrolSpeed * deltaTime;
+        commands.z[row] = z + dz * ai.patrolSpeed * deltaTime;
 
         // Update rotation to face movement direction
-        float yaw = (float) Math.toDegrees(Math.atan2(direction.x, direction.z));
-        transform.rotationY = yaw;
+        commands.rotationY[row] = (float) Math.toDegrees(Math.atan2(dx, dz));
     }
 
-    private void checkPlayerDetection(int entity, AIComponent ai, TransformComponent transform,
-            TransformComponent playerTransform) {
+    // Requests a line-of-sight check when the player is within range and inside
+    // the agent's field of view. The raycast itself runs when commands are
+    // applied.
+    private void checkPlayerDetection(AIComponent ai, AgentCommands commands, int row) {
+        if (!playerPresent)
+            return;
+
         // Calculate distance to player
-        Vector3f toPlayer = new Vector3f(
-                playerTransform.x - transform.x,
-                playerTransform.y - transform.y,
-                playerTransform.z - transform.z);
-        float distance = toPlayer.length();
+        float dx = playerX - commands.x[row];
+        float dy = playerY - commands.y[row];
+        float dz = playerZ - commands.z[row];
+        float distance = (float) Math.sqrt(dx * dx + dy * dy + dz * dz);
 
         if (distance > ai.detectionRange)
             return;
 
         // Calculate angle to player
-        Vector3f forward = new Vector3f(
-                (float) Math.sin(Math.toRadians(transform.rotationY)),
-                0,
-                (float) Math.cos(Math.toRadians(transform.rotationY)));
-        toPlayer.normalize();
-        float dot = toPlayer.dot(forward);
+        double yaw = Math.toRadians(commands.rotationY[row]);
+        float forwardX = (float) Math.sin(yaw);
+        float forwardZ = (float) Math.cos(yaw);
+        float dot = (dx * forwardX + dz * forwardZ) / distance;
         float angle = (float) Math.toDegrees(Math.acos(dot));
 
         if (angle <= ai.fieldOfView / 2) {
-            if (physicsWorld.raycast(
-                    new Vector3f(transform.x, transform.y + 1f, transform.z),
-                    new Vector3f(playerTransform.x, playerTransform.y + 1f, playerTransform.z))) {
-                ai.targetPlayerEntity = playerEntity;
-                ai.currentState = AIState.DETECT;
-                ai.timeSinceDetection = 0;
-            }
+            commands.flags[row] |= AgentCommands.CHECK_SIGHT;
         }
     }
 
-    private void handleDetectionState(AIComponent ai, float deltaTime) {
-        ai.timeSinceDetection += deltaTime;
-        if (ai.timeSinceDetection >= ai.detectionTime) {
-            ai.currentState = AIState.COMBAT;
+    private void handleDetectionState(AIComponent ai, AgentCommands commands, int row, float deltaTime) {
+        commands.timeSinceDetection[row] += deltaTime;
+        if (commands.timeSinceDetection[row] >= ai.detectionTime) {
+            commands.state[row] = AIState.COMBAT;
         }
     }
 
-    private void handleCombatState(int entity, AIComponent ai, TransformComponent transform,
-            TransformComponent playerTransform, float deltaTime) {
+    private void handleCombatState(AIComponent ai, AgentCommands commands, int row,
+            TransformComponent targetTransform, float deltaTime) {
         // Move towards player
-        Vector3f toPlayer = new Vector3f(
-                playerTransform.x - transform.x,
-                playerTransform.y - transform.y,
-                playerTransform.z - transform.z);
+        float dx = targetTransform.x - commands.x[row];
+        float dy = targetTransform.y - commands.y[row];
+        float dz = targetTransform.z - commands.z[row];
 
-        float distance = toPlayer.length();
+        float distance = (float) Math.sqrt(dx * dx + dy * dy + dz * dz);
         if (distance > ai.combatRange) {
-            toPlayer.normalize();
-            transform.x += toPlayer.x * ai.combatSpeed * deltaTime;
-            transform.z += toPlayer.z * ai.combatSpeed * deltaTime;
+            if (!moveAlongPath(ai, commands, row, targetTransform, deltaTime)) {
+                commands.x[row] += dx / distance * ai.combatSpeed * deltaTime;
+                commands.z[row] += dz / distance * ai.combatSpeed * deltaTime;
+            }
         }
 
         // Face player
-        float yaw = (float) Math.toDegrees(Math.atan2(toPlayer.x, toPlayer.z));
-        transform.rotationY = yaw;
-
-        // Attack logic
-        // Weapon enemyWeapon = ecs.getComponent(entity, Weapon.class);
-        // if (enemyWeapon != null) {
-        // Vector3f fireDirection = new Vector3f(toPlayer).normalize();
-        // enemyWeapon.fire(ecs, physicsWorld, bulletMesh,
-        // transform.x, transform.y + 1f, transform.z,
-        // fireDirection.x, fireDirection.y, fireDirection.z);
-        // }
-    }
-}
\ No newline at end of file
+        commands.rotationY[row] = (float) Math.toDegrees(Math.atan2(dx, dz));
+    }
+
+    // Steps towards the next corner of the agent's path and returns true, or
+    // returns false when the agent has no path or is past its last corner and
+    // should head straight for the target. Asks for a new path whenever the
+    // target has left the cell the agent last requested.
+    private boolean moveAlongPath(AIComponent ai, AgentCommands commands, int row,
+            TransformComponent targetTransform, float deltaTime) {
+        if (navigation == null)
+            return false;
+
+        NavGrid grid = navigation.getGrid();
+        if (grid.cellAt(targetTransform.x, targetTransform.z) != ai.pathGoalCell) {
+            commands.flags[row] |= AgentCommands.REQUEST_PATH;
+        }
+
+        NavPath path = ai.path;
+        if (path == null)
+            return false;
+
+        // The last corner is the target's own cell, where the agent heads for
+        // the target itself.
+        float x = commands.x[row], z = commands.z[row];
+        float arrived = grid.getCellSize() * 0.25f;
+        int index = commands.pathIndex[row];
+        while (index < path.size() - 1) {
+            int corner = path.cellAt(index);
+            float dx = grid.centerX(corner) - x, dz = grid.centerZ(corner) - z;
+            if (dx * dx + dz * dz > arrived * arrived)
+                break;
+            index++;
+        }
+        commands.pathIndex[row] = index;
+        if (index >= path.size() - 1)
+            return false;
+
+        int corner = path.cellAt(index);
+        float dx = grid.centerX(corner) - x, dz = grid.centerZ(corner) - z;
+        float length = (float) Math.sqrt(dx * dx + dz * dz);
+        float step = Math.min(ai.combatSpeed * deltaTime, length);
+        commands.x[row] = x + dx / length * step;
+        commands.z[row] = z + dz / length * step;
+        return true;
+    }
+
+    // Casts every requested line-of-sight ray in chunk and agent order, the
+    // order apply() consumes the results in.
+    private void castSightRays(int chunkCount) {
+        sightRays.clear();
+        for (int c = 0; c < chunkCount; c++) {
+            AgentCommands commands = chunks.get(c);
+            for (int row = 0; row < commands.count; row++) {
+                if ((commands.flags[row] & AgentCommands.CHECK_SIGHT) != 0) {
+                    sightRays.add(commands.x[row], commands.y[row] + 1f, commands.z[row],
+                            playerX, playerY + 1f, playerZ);
+                }
+            }
+        }
+        if (sightRays.size() > 0) {
+            physicsWorld.raycast(sightRays);
+        }
+    }
+
+    // Writes one chunk's decisions back to the components, in agent order, and
+    // returns the index of the next unconsumed sight ray.
+    private int apply(AgentCommands commands, int ray) {
+        for (int row = 0; row < commands.count; row++) {
+            AIComponent ai = commands.ai[row];
+            TransformComponent transform = commands.transform[row];
+
+            transform.x = commands.x[row];
+            transform.y = commands.y[row];
+            transform.z = commands.z[row];
+            transform.rotationY = commands.rotationY[row];
+            ai.currentState = commands.state[row];
+            ai.currentWaypoint = commands.waypoint[row];
+            ai.targetPlayerEntity = commands.target[row];
+            ai.timeSinceDetection = commands.timeSinceDetection[row];
+            ai.pathIndex = commands.pathIndex[row];
+
+            if ((commands.flags[row] & AgentCommands.REQUEST_PATH) != 0) {
+                TransformComponent target = transforms.get(ai.targetPlayerEntity);
+                if (target != null) {
+                    navigation.request(ai, transform.x, transform.z, target.x, target.z);
+                }
+            }
+
+            // A patrolling agent spots the player when no static geometry blocks
+            // the ray. Agents already detecting or fighting keep their state and
+            // timer, so detection runs its course into combat.
+            if ((commands.flags[row] & AgentCommands.CHECK_SIGHT) != 0) {
+                if (!sightRays.isHit(ray++) && ai.currentState == AIState.PATROL) {
+                    ai.targetPlayerEntity = playerEntity;
+                    ai.currentState = AIState.DETECT;
+                    ai.timeSinceDetection = 0;
+                }
+            }
+        }
+        commands.clear();
+        return ray;
+    }
+
+    // Agents updated by the last update(), at any tier.
+    public int getUpdatedCount() {
+        return selectedCount;
+    }
+
+    // Agents in the reduced tier during the last update(), updated or not.
+    public int getReducedCount() {
+        return reducedCount;
+    }
+
+    // Agents beyond the frozen distance during the last update().
+    public int getFrozenCount() {
+        return frozenCount;
+    }
+}
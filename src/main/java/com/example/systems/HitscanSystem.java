@@ -0,0 +1,215 @@
+package com.example.systems;
+
+import java.util.*;
+
+import javax.vecmath.*;
+
+import com.example.components.*;
+import com.example.physics.*;
+
+// Resolves instant-hit shots. Weapons queue rays during the tick and resolve()
+// handles all of them in one batch: collider bounds are gathered once into flat
+// arrays, every ray is clipped against static physics geometry, and the nearest
+// collider along the remaining segment takes the damage. Shots count as
+// projectiles, so only colliders whose layer the physics world's collision
+// matrix lets projectiles hit are targets. Killed entities are queued for
+// removal with ECSRegistry.removeEntityLater().
+public class HitscanSystem {
+    private final ECSRegistry ecs;
+    private final PhysicsWorld physicsWorld;
+    private final ComponentPool<TransformComponent> transforms;
+    private final ComponentPool<ColliderComponent> colliders;
+    private final ComponentPool<HealthComponent> healths;
+    private final ComponentPool<BulletComponent> bullets;
+    private final EntityQuery colliderQuery;
+
+    // Queued shots.
+    private int shotCount;
+    private int[] shotShooter = new int[16];
+    private float[] shotDamage = new float[16];
+    private float[] shotOriginX = new float[16], shotOriginY = new float[16], shotOriginZ = new float[16];
+    private float[] shotDirX = new float[16], shotDirY = new float[16], shotDirZ = new float[16];
+    private float[] shotRange = new float[16];
+
+    // Collider bounds gathered once per batch.
+    private int targetCount;
+    private int[] targetEntity = new int[16];
+    private float[] targetMinX = new float[16], targetMinY = new float[16], targetMinZ = new float[16];
+    private float[] targetMaxX = new float[16], targetMaxY = new float[16], targetMaxZ = new float[16];
+
+    private final Vector3f rayFrom = new Vector3f();
+    private final Vector3f rayTo = new Vector3f();
+
+    public HitscanSystem(ECSRegistry ecs, PhysicsWorld physicsWorld) {
+        this.ecs = ecs;
+        this.physicsWorld = physicsWorld;
+        this.transforms = ecs.pool(TransformComponent.class);
+        this.colliders = ecs.pool(ColliderComponent.class);
+        this.healths = ecs.pool(HealthComponent.class);
+        this.bullets = ecs.pool(BulletComponent.class);
+        this.colliderQuery = ecs.query(TransformComponent.class, ColliderComponent.class);
+    }
+
+    public int getQueuedShots() {
+        return shotCount;
+    }
+
+    // Queues a shot for the next resolve(). The direction does not need to be
+    // normalized.
+    public void queue(int shooter, float originX, float originY, float originZ,
+            float directionX, float directionY, float directionZ, float range, float damage) {
+        float length = (float) Math.sqrt(directionX * directionX + directionY * directionY + directionZ * directionZ);
+        if (length == 0)
+            return;
+
+        if (shotCount == shotShooter.length) {
+            growShots();
+        }
+
+        int shot = shotCount++;
+        shotShooter[shot] = shooter;
+        shotDamage[shot] = damage;
+        shotOriginX[shot] = originX;
+        shotOriginY[shot] = originY;
+        shotOriginZ[shot] = originZ;
+        shotDirX[shot] = directionX / length;
+        shotDirY[shot] = directionY / length;
+        shotDirZ[shot] = directionZ / length;
+        shotRange[shot] = range;
+    }
+
+    public void resolve() {
+        if (shotCount == 0)
+            return;
+
+        gatherTargets();
+
+        for (int shot = 0; shot < shotCount; shot++) {
+            float ox = shotOriginX[shot], oy = shotOriginY[shot], oz = shotOriginZ[shot];
+            float dx = shotDirX[shot], dy = shotDirY[shot], dz = shotDirZ[shot];
+            float range = shotRange[shot];
+
+            // Walls stop the ray, so only colliders in front of the first static
+            // hit can be damaged.
+            rayFrom.set(ox, oy, oz);
+            rayTo.set(ox + dx * range, oy + dy * range, oz + dz * range);
+            float maxDistance = range * physicsWorld.raycastStatic(rayFrom, rayTo);
+
+            int target = nearestTarget(shotShooter[shot], ox, oy, oz, dx, dy, dz, maxDistance);
+            if (target == -1)
+                continue;
+
+            HealthComponent health = healths.get(targetEntity[target]);
+            if (health != null && health.health > 0) {
+                health.health -= (int) shotDamage[shot];
+                if (health.health <= 0) {
+                    ecs.removeEntityLater(targetEntity[target]);
+                }
+            }
+        }
+        shotCount = 0;
+    }
+
+    private void gatherTargets() {
+        int count = colliderQuery.collect();
+        if (targetEntity.length < count) {
+            growTargets(count);
+        }
+
+        CollisionMatrix matrix = physicsWorld.getCollisionMatrix();
+        targetCount = 0;
+        for (int i = 0; i < count; i++) {
+            int entity = colliderQuery.entity(i);
+            if (bullets.has(entity))
+                continue;
+
+            ColliderComponent collider = colliders.get(entity);
+            if (!matrix.collides(CollisionLayer.PROJECTILE, collider.layer))
+                continue;
+
+            TransformComponent transform = transforms.get(entity);
+            int target = targetCount++;
+            targetEntity[target] = entity;
+            targetMinX[target] = transform.x - collider.width / 2;
+            targetMinY[target] = transform.y - collider.height / 2;
+            targetMinZ[target] = transform.z - collider.depth / 2;
+            targetMaxX[target] = transform.x + collider.width / 2;
+            targetMaxY[target] = transform.y + collider.height / 2;
+            targetMaxZ[target] = transform.z + collider.depth / 2;
+        }
+    }
+
+    // Slab test of one ray against every gathered box. Returns the nearest box
+    // entered within maxDistance, or -1.
+    //
+    // An axis the ray does not move along has no slab crossing: the ray is
+    // inside that slab for its whole length or never. Such axes are tested on
+    // the origin instead of through 1/d, which would give 0 * infinity = NaN
+    // for an origin on the box's face plane and lose the hit.
+    private int nearestTarget(int shooter, float ox, float oy, float oz, float dx, float dy, float dz,
+            float maxDistance) {
+        float invX = 1.0f / dx, invY = 1.0f / dy, invZ = 1.0f / dz;
+        int nearest = -1;
+        float nearestDistance = maxDistance;
+
+        for (int target = 0; target < targetCount; target++) {
+            if (targetEntity[target] == shooter)
+                continue;
+
+            float tMin = Float.NEGATIVE_INFINITY, tMax = Float.POSITIVE_INFINITY;
+            if (dx != 0) {
+                float t1 = (targetMinX[target] - ox) * invX, t2 = (targetMaxX[target] - ox) * invX;
+                tMin = Math.min(t1, t2);
+                tMax = Math.max(t1, t2);
+            } else if (ox < targetMinX[target] || ox > targetMaxX[target]) {
+                continue;
+            }
+            if (dy != 0) {
+                float t1 = (targetMinY[target] - oy) * invY, t2 = (targetMaxY[target] - oy) * invY;
+                tMin = Math.max(tMin, Math.min(t1, t2));
+                tMax = Math.min(tMax, Math.max(t1, t2));
+            } else if (oy < targetMinY[target] || oy > targetMaxY[target]) {
+                continue;
+            }
+            if (dz != 0) {
+                float t1 = (targetMinZ[target] - oz) * invZ, t2 = (targetMaxZ[target] - oz) * invZ;
+                tMin = Math.max(tMin, Math.min(t1, t2));
+                tMax = Math.min(tMax, Math.max(t1, t2));
+            } else if (oz < targetMinZ[target] || oz > targetMaxZ[target]) {
+                continue;
+            }
+
+            // A ray starting inside a box hits it at distance zero.
+            float entry = Math.max(tMin, 0.0f);
+            if (tMax >= entry && entry <= nearestDistance) {
+                nearest = target;
+                nearestDistance = entry;
+            }
+        }
+        return nearest;
+    }
+
+    private void growShots() {
+        int length = shotShooter.length * 2;
+        shotShooter = Arrays.copyOf(shotShooter, length);
+        shotDamage = Arrays.copyOf(shotDamage, length);
+        shotOriginX = Arrays.copyOf(shotOriginX, length);
+        shotOriginY = Arrays.copyOf(shotOriginY, length);
+        shotOriginZ = Arrays.copyOf(shotOriginZ, length);
+        shotDirX = Arrays.copyOf(shotDirX, length);
+        shotDirY = Arrays.copyOf(shotDirY, length);
+        shotDirZ = Arrays.copyOf(shotDirZ, length);
+        shotRange = Arrays.copyOf(shotRange, length);
+    }
+
+    private void growTargets(int capacity) {
+        int length = Math.max(capacity, targetEntity.length * 2);
+        targetEntity = Arrays.copyOf(targetEntity, length);
+        targetMinX = Arrays.copyOf(targetMinX, length);
+        targetMinY = Arrays.copyOf(targetMinY, length);
+        targetMinZ = Arrays.copyOf(targetMinZ, length);
+        targetMaxX = Arrays.copyOf(targetMaxX, length);
+        targetMaxY = Arrays.copyOf(targetMaxY, length);
+        targetMaxZ = Arrays.copyOf(targetMaxZ, length);
+    }
+}
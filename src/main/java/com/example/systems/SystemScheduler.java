@@ -0,0 +1,188 @@
+package com.example.systems;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+// Runs a tick's systems, in parallel where their declared data access allows.
+//
+// Each system declares the types it reads and writes: component classes, plus
+// shared resources such as PhysicsWorld.class or ECSRegistry.class for systems
+// that create entities. Two systems conflict when one writes a type the other
+// reads or writes. Conflicting systems always run in registration order;
+// everything else may run concurrently on the pool. Systems must not remove
+// entities directly while others may be iterating; they queue removals with
+// ECSRegistry.removeEntityLater() and the owner flushes after run().
+//
+// The conflicts are turned into waves once, on the first run after systems are
+// added or change their declarations. A system's wave is one past the latest
+// wave of anything it depends on, so systems that share a wave never conflict.
+// run() forks each wave's prebuilt tasks and joins them before the next wave,
+// and allocates nothing.
+public class SystemScheduler {
+    public interface Task {
+        void update(float dt);
+    }
+
+    public class Registration {
+        private final String name;
+        private final Task task;
+        private final Set<Class<?>> reads = new HashSet<>();
+        private final Set<Class<?>> writes = new HashSet<>();
+        private int[] dependencies = new int[0];
+        private int wave;
+        // Reused every run; reinitialized before it is forked again.
+        private final RecursiveAction action = new RecursiveAction() {
+            @Override
+            protected void compute() {
+                task.update(dt);
+            }
+        };
+
+        private Registration(String name, Task task) {
+            this.name = name;
+            this.task = task;
+        }
+
+        public Registration reads(Class<?>... types) {
+            reads.addAll(Arrays.asList(types));
+            graphDirty = true;
+            return this;
+        }
+
+        // Writing a type implies reading it.
+        public Registration writes(Class<?>... types) {
+            writes.addAll(Arrays.asList(types));
+            graphDirty = true;
+            return this;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        private boolean conflictsWith(Registration other) {
+            for (Class<?> type : writes) {
+                if (other.reads.contains(type) || other.writes.contains(type))
+                    return true;
+            }
+            for (Class<?> type : other.writes) {
+                if (reads.contains(type))
+                    return true;
+            }
+            return false;
+        }
+    }
+
+    private final List<Registration> systems = new ArrayList<>();
+    private final ForkJoinPool pool;
+    private boolean graphDirty;
+    // Each wave's tasks, rebuilt with the dependency graph.
+    private ForkJoinTask<?>[][] waves = new ForkJoinTask<?>[0][];
+    // The tick being run, read by every system's task.
+    private float dt;
+
+    private final RecursiveAction runWaves = new RecursiveAction() {
+        @Override
+        protected void compute() {
+            for (ForkJoinTask<?>[] wave : waves) {
+                for (ForkJoinTask<?> task : wave) {
+                    task.reinitialize();
+                }
+                ForkJoinTask.invokeAll(wave);
+            }
+        }
+    };
+
+    // A null pool runs every system on the calling thread, in registration order.
+    public SystemScheduler(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    public Registration add(String name, Task task) {
+        Registration registration = new Registration(name, task);
+        systems.add(registration);
+        graphDirty = true;
+        return registration;
+    }
+
+    public int size() {
+        return systems.size();
+    }
+
+    public String getName(int system) {
+        return systems.get(system).name;
+    }
+
+    // Systems that must finish before the given one starts: every earlier system
+    // it conflicts with.
+    public int[] getDependencies(int system) {
+        buildGraph();
+        return systems.get(system).dependencies.clone();
+    }
+
+    // The wave a system runs in; systems of one wave may run at the same time.
+    public int getWave(int system) {
+        buildGraph();
+        return systems.get(system).wave;
+    }
+
+    public int getWaveCount() {
+        buildGraph();
+        return waves.length;
+    }
+
+    public boolean isParallel() {
+        return pool != null;
+    }
+
+    // Runs every system once. If a system throws, the exception is rethrown here
+    // and the rest of the tick is abandoned.
+    public void run(float dt) {
+        this.dt = dt;
+        if (pool == null) {
+            for (int i = 0; i < systems.size(); i++) {
+                systems.get(i).task.update(dt);
+            }
+            return;
+        }
+
+        buildGraph();
+        runWaves.reinitialize();
+        pool.invoke(runWaves);
+    }
+
+    private void buildGraph() {
+        if (!graphDirty)
+            return;
+
+        int waveCount = 0;
+        for (int i = 0; i < systems.size(); i++) {
+            Registration system = systems.get(i);
+            int[] dependencies = new int[i];
+            int count = 0;
+            system.wave = 0;
+            for (int j = 0; j < i; j++) {
+                if (system.conflictsWith(systems.get(j))) {
+                    dependencies[count++] = j;
+                    system.wave = Math.max(system.wave, systems.get(j).wave + 1);
+                }
+            }
+            system.dependencies = Arrays.copyOf(dependencies, count);
+            waveCount = Math.max(waveCount, system.wave + 1);
+        }
+
+        int[] sizes = new int[waveCount];
+        for (Registration system : systems) {
+            sizes[system.wave]++;
+        }
+        waves = new ForkJoinTask<?>[waveCount][];
+        for (int w = 0; w < waveCount; w++) {
+            waves[w] = new ForkJoinTask<?>[sizes[w]];
+            sizes[w] = 0;
+        }
+        for (Registration system : systems) {
+            waves[system.wave][sizes[system.wave]++] = system.action;
+        }
+        graphDirty = false;
+    }
+}
@@ -0,0 +1,246 @@
+package com.example.assets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+// Cache files written by MeshCache and read back by mapping, and the choice
+// MeshAssets makes between a cache and its source. The source files here are
+// not models, so any load that reaches the importer fails; that is how the
+// tests tell a rebuild from a cache hit without importing anything.
+class MeshCacheTest {
+    // Two triangles sharing an edge, position then color per vertex.
+    private static final float[] VERTICES = {
+            -1.0f, 0.0f, -2.0f, 1.0f, 0.0f, 0.0f,
+            3.0f, 0.0f, -2.0f, 0.0f, 1.0f, 0.0f,
+            3.0f, 4.0f, 0.0f, 0.0f, 0.0f, 1.0f,
+            -1.0f, 4.0f, 0.5f, 1.0f, 1.0f, 1.0f,
+    };
+    private static final int[] INDICES = { 0, 1, 2, 2, 3, 0 };
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void roundTripKeepsCountsBoundsAndBytes() throws IOException {
+        MeshData mesh = MeshData.of(VERTICES, INDICES);
+        Path file = dir.resolve("quad.mesh");
+        MeshCache.write(file, mesh);
+        MeshData mapped = MeshCache.map(file);
+
+        assertEquals(4, mapped.getVertexCount());
+        assertEquals(6, mapped.getIndexCount());
+        assertEquals(-1.0f, mapped.getMinX());
+        assertEquals(0.0f, mapped.getMinY());
+        assertEquals(-2.0f, mapped.getMinZ());
+        assertEquals(3.0f, mapped.getMaxX());
+        assertEquals(4.0f, mapped.getMaxY());
+        assertEquals(0.5f, mapped.getMaxZ());
+        assertEquals(mesh.getBoundingRadius(), mapped.getBoundingRadius());
+        assertEquals(5.0f, mapped.getBoundingRadius(), 1e-6f);
+
+        assertArrayEquals(bytesOf(mesh.getVertices()), bytesOf(mapped.getVertices()));
+        assertArrayEquals(bytesOf(mesh.getIndices()), bytesOf(mapped.getIndices()));
+        assertEquals(64 + VERTICES.length * Float.BYTES + INDICES.length * Integer.BYTES, Files.size(file));
+    }
+
+    @Test
+    void mappedBuffersReadAsTheOriginalArrays() throws IOException {
+        Path file = dir.resolve("quad.mesh");
+        MeshCache.write(file, MeshData.of(VERTICES, INDICES));
+        MeshData mapped = MeshCache.map(file);
+
+        float[] vertices = new float[VERTICES.length];
+        mapped.getVertices().asFloatBuffer().get(vertices);
+        assertArrayEquals(VERTICES, vertices);
+        int[] indices = new int[INDICES.length];
+        mapped.getIndices().asIntBuffer().get(indices);
+        assertArrayEquals(INDICES, indices);
+    }
+
+    @Test
+    void writeReplacesAnExistingCacheAndLeavesNoTemporaryFiles() throws IOException {
+        Path file = dir.resolve("nested").resolve("quad.mesh");
+        MeshCache.write(file, MeshData.of(new float[6], new int[] { 0, 0, 0 }));
+        MeshCache.write(file, MeshData.of(VERTICES, INDICES));
+
+        assertEquals(4, MeshCache.map(file).getVertexCount());
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(file.getParent())) {
+            for (Path f : files)
+                assertEquals(file.getFileName(), f.getFileName());
+        }
+    }
+
+    @Test
+    void truncatedFileIsRejected() throws IOException {
+        Path file = dir.resolve("quad.mesh");
+        MeshCache.write(file, MeshData.of(VERTICES, INDICES));
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, java.util.Arrays.copyOf(bytes, bytes.length - Integer.BYTES));
+
+        IOException e = assertThrows(IOException.class, () -> MeshCache.map(file));
+        assertTrue(e.getMessage().startsWith("Truncated mesh cache"), e.getMessage());
+    }
+
+    @Test
+    void fileShorterThanTheHeaderIsRejected() throws IOException {
+        Path file = dir.resolve("short.mesh");
+        Files.write(file, new byte[10]);
+
+        IOException e = assertThrows(IOException.class, () -> MeshCache.map(file));
+        assertTrue(e.getMessage().startsWith("Not a mesh cache"), e.getMessage());
+    }
+
+    @Test
+    void badMagicIsRejected() throws IOException {
+        Path file = dir.resolve("quad.mesh");
+        MeshCache.write(file, MeshData.of(VERTICES, INDICES));
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[0] ^= 0xFF;
+        Files.write(file, bytes);
+
+        IOException e = assertThrows(IOException.class, () -> MeshCache.map(file));
+        assertTrue(e.getMessage().startsWith("Not a mesh cache"), e.getMessage());
+    }
+
+    @Test
+    void newerCacheIsMapped() throws IOException {
+        MeshAssets assets = new MeshAssets(dir.resolve("cache"));
+        Path source = source("quad.obj");
+        MeshCache.write(assets.cacheFileOf(source), MeshData.of(VERTICES, INDICES));
+        Files.setLastModifiedTime(source, FileTime.fromMillis(1_000_000L));
+        Files.setLastModifiedTime(assets.cacheFileOf(source), FileTime.fromMillis(2_000_000L));
+
+        assertEquals(4, assets.load(source).getVertexCount());
+    }
+
+    @Test
+    void cacheWithTheSourcesMtimeIsMapped() throws IOException {
+        MeshAssets assets = new MeshAssets(dir.resolve("cache"));
+        Path source = source("quad.obj");
+        MeshCache.write(assets.cacheFileOf(source), MeshData.of(VERTICES, INDICES));
+        Files.setLastModifiedTime(source, FileTime.fromMillis(1_000_000L));
+        Files.setLastModifiedTime(assets.cacheFileOf(source), FileTime.fromMillis(1_000_000L));
+
+        assertEquals(4, assets.load(source).getVertexCount());
+    }
+
+    @Test
+    void olderCacheIsRebuilt() throws IOException {
+        MeshAssets assets = new MeshAssets(dir.resolve("cache"));
+        Path source = source("quad.obj");
+        MeshCache.write(assets.cacheFileOf(source), MeshData.of(VERTICES, INDICES));
+        Files.setLastModifiedTime(assets.cacheFileOf(source), FileTime.fromMillis(1_000_000L));
+        Files.setLastModifiedTime(source, FileTime.fromMillis(2_000_000L));
+
+        IOException e = assertThrows(IOException.class, () -> assets.load(source));
+        assertTrue(e.getMessage().startsWith("Could not import"), e.getMessage());
+    }
+
+    @Test
+    void missingCacheIsBuilt() throws IOException {
+        MeshAssets assets = new MeshAssets(dir.resolve("cache"));
+        Path source = source("quad.obj");
+
+        IOException e = assertThrows(IOException.class, () -> assets.load(source));
+        assertTrue(e.getMessage().startsWith("Could not import"), e.getMessage());
+    }
+
+    @Test
+    void damagedCacheIsRebuiltWhenTheSourceIsThere() throws IOException {
+        MeshAssets assets = new MeshAssets(dir.resolve("cache"));
+        Path source = source("quad.obj");
+        Files.createDirectories(assets.cacheFileOf(source).getParent());
+        Files.write(assets.cacheFileOf(source), new byte[10]);
+        Files.setLastModifiedTime(source, FileTime.fromMillis(1_000_000L));
+        Files.setLastModifiedTime(assets.cacheFileOf(source), FileTime.fromMillis(2_000_000L));
+
+        IOException e = assertThrows(IOException.class, () -> assets.load(source));
+        assertTrue(e.getMessage().startsWith("Could not import"), e.getMessage());
+    }
+
+    @Test
+    void cacheIsMappedWhenTheSourceIsMissing() throws IOException {
+        MeshAssets assets = new MeshAssets(dir.resolve("cache"));
+        Path source = dir.resolve("shipped-without-source.obj");
+        MeshCache.write(assets.cacheFileOf(source), MeshData.of(VERTICES, INDICES));
+
+        assertEquals(6, assets.load(source).getIndexCount());
+    }
+
+    @Test
+    void damagedCacheIsReportedWhenTheSourceIsMissing() throws IOException {
+        MeshAssets assets = new MeshAssets(dir.resolve("cache"));
+        Path source = dir.resolve("shipped-without-source.obj");
+        Files.createDirectories(assets.cacheFileOf(source).getParent());
+        Files.write(assets.cacheFileOf(source), new byte[10]);
+
+        IOException e = assertThrows(IOException.class, () -> assets.load(source));
+        assertTrue(e.getMessage().startsWith("Not a mesh cache"), e.getMessage());
+    }
+
+    @Test
+    void modelsWithTheSameNameKeepSeparateCaches() throws IOException {
+        Path root = dir.resolve("assets");
+        MeshAssets assets = new MeshAssets(dir.resolve("cache"), root);
+        Path enemy = source(root.resolve("enemies").resolve("body.obj"));
+        Path prop = source(root.resolve("props").resolve("body.obj"));
+
+        assertEquals(dir.resolve("cache").resolve("enemies").resolve("body.obj.mesh"), assets.cacheFileOf(enemy));
+        assertEquals(dir.resolve("cache").resolve("props").resolve("body.obj.mesh"), assets.cacheFileOf(prop));
+
+        MeshCache.write(assets.cacheFileOf(enemy), MeshData.of(VERTICES, INDICES));
+        MeshCache.write(assets.cacheFileOf(prop), MeshData.of(new float[6], new int[] { 0, 0, 0 }));
+        for (Path source : new Path[] { enemy, prop }) {
+            Files.setLastModifiedTime(source, FileTime.fromMillis(1_000_000L));
+            Files.setLastModifiedTime(assets.cacheFileOf(source), FileTime.fromMillis(2_000_000L));
+        }
+
+        assertEquals(4, assets.load(enemy).getVertexCount());
+        assertEquals(1, assets.load(prop).getVertexCount());
+    }
+
+    @Test
+    void unnormalizedPathsShareTheirCache() throws IOException {
+        Path root = dir.resolve("assets");
+        MeshAssets assets = new MeshAssets(dir.resolve("cache"), root);
+        Path enemy = root.resolve("enemies").resolve("body.obj");
+
+        assertEquals(assets.cacheFileOf(enemy),
+                assets.cacheFileOf(root.resolve("props").resolve("..").resolve("enemies").resolve("body.obj")));
+    }
+
+    @Test
+    void modelsOutsideTheRootAreKeyedByTheirAbsolutePath() throws IOException {
+        Path cache = dir.resolve("cache");
+        MeshAssets assets = new MeshAssets(cache, dir.resolve("assets"));
+        Path first = dir.resolve("elsewhere").resolve("body.obj");
+        Path second = dir.resolve("other").resolve("body.obj");
+
+        assertNotEquals(assets.cacheFileOf(first), assets.cacheFileOf(second));
+        assertEquals(cache, assets.cacheFileOf(first).getParent());
+        assertTrue(assets.cacheFileOf(first).getFileName().toString().startsWith("body.obj."));
+        assertEquals(assets.cacheFileOf(first), new MeshAssets(cache, dir.resolve("assets")).cacheFileOf(first));
+    }
+
+    private Path source(Path file) throws IOException {
+        Files.createDirectories(file.getParent());
+        return Files.writeString(file, "not a model\n");
+    }
+
+    private Path source(String name) throws IOException {
+        return Files.writeString(dir.resolve(name), "not a model\n");
+    }
+
+    private static byte[] bytesOf(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.duplicate().get(bytes);
+        return bytes;
+    }
+}
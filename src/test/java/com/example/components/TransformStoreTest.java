@@ -0,0 +1,122 @@
+package com.example.components;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.*;
+
+// Attached entities live in the columns; their components are views that only
+// change when the store publishes.
+class TransformStoreTest {
+    private final ECSRegistry ecs = new ECSRegistry();
+    private final TransformStore store = new TransformStore();
+
+    @Test
+    void attachTakesTheViewsValues() {
+        int entity = ecs.createEntity();
+        TransformComponent view = new TransformComponent(1.0f, 2.0f, 3.0f);
+        view.rotationY = 0.5f;
+        store.attach(entity, view);
+
+        int slot = ECSRegistry.entityIndex(entity);
+        assertTrue(store.contains(entity));
+        assertEquals(1, store.size());
+        assertEquals(1.0f, store.x[slot], 0.0f);
+        assertEquals(2.0f, store.y[slot], 0.0f);
+        assertEquals(3.0f, store.z[slot], 0.0f);
+        assertEquals(0.5f, store.rotationY[slot], 0.0f);
+        assertEquals(3.0f, store.prevZ[slot], 0.0f);
+    }
+
+    @Test
+    void columnsAreAuthoritativeUntilPublished() {
+        int entity = ecs.createEntity();
+        TransformComponent view = new TransformComponent(0.0f, 0.0f, 0.0f);
+        store.attach(entity, view);
+
+        store.setPosition(entity, 4.0f, 5.0f, 6.0f);
+        view.x = 100.0f;
+        assertEquals(100.0f, view.x, 0.0f);
+
+        store.publish();
+        assertEquals(4.0f, view.x, 0.0f);
+        assertEquals(5.0f, view.y, 0.0f);
+        assertEquals(6.0f, view.z, 0.0f);
+    }
+
+    @Test
+    void snapshotKeepsThePreviousPositionForInterpolation() {
+        int entity = ecs.createEntity();
+        TransformComponent view = new TransformComponent(0.0f, 0.0f, 0.0f);
+        store.attach(entity, view);
+
+        store.setPosition(entity, 2.0f, 0.0f, 0.0f);
+        store.snapshot();
+        store.setPosition(entity, 4.0f, 0.0f, 0.0f);
+        store.publish();
+
+        assertEquals(2.0f, view.prevX, 0.0f);
+        assertEquals(3.0f, view.interpolatedX(0.5f), 0.0f);
+    }
+
+    @Test
+    void detachLeavesTheLastPublishedValues() {
+        int a = ecs.createEntity();
+        int b = ecs.createEntity();
+        int c = ecs.createEntity();
+        TransformComponent viewA = new TransformComponent(1.0f, 0.0f, 0.0f);
+        TransformComponent viewC = new TransformComponent(3.0f, 0.0f, 0.0f);
+        store.attach(a, viewA);
+        store.attach(b, new TransformComponent(2.0f, 0.0f, 0.0f));
+        store.attach(c, viewC);
+
+        store.detach(b);
+        store.setPosition(a, 10.0f, 0.0f, 0.0f);
+        store.setPosition(c, 30.0f, 0.0f, 0.0f);
+        store.publish();
+
+        assertFalse(store.contains(b));
+        assertEquals(2, store.size());
+        assertEquals(10.0f, viewA.x, 0.0f);
+        assertEquals(30.0f, viewC.x, 0.0f);
+
+        store.detach(a);
+        store.setPosition(c, 31.0f, 0.0f, 0.0f);
+        store.publish();
+        assertEquals(10.0f, viewA.x, 0.0f);
+        assertEquals(31.0f, viewC.x, 0.0f);
+    }
+
+    @Test
+    void staleHandlesAreNotContained() {
+        int entity = ecs.createEntity();
+        store.attach(entity, new TransformComponent(0.0f, 0.0f, 0.0f));
+        store.detach(entity);
+        ecs.removeEntity(entity);
+        int reused = ecs.createEntity();
+        store.attach(reused, new TransformComponent(0.0f, 0.0f, 0.0f));
+
+        assertEquals(ECSRegistry.entityIndex(entity), ECSRegistry.entityIndex(reused));
+        assertTrue(store.contains(reused));
+        assertFalse(store.contains(entity));
+        store.detach(entity);
+        assertTrue(store.contains(reused));
+        assertEquals(1, store.size());
+    }
+
+    @Test
+    void growsToHighSlots() {
+        int entity = -1;
+        for (int i = 0; i < 300; i++) {
+            entity = ecs.createEntity();
+        }
+        TransformComponent view = new TransformComponent(7.0f, 8.0f, 9.0f);
+        store.attach(entity, view);
+
+        assertEquals(300, store.getHighWater());
+        store.snapshot();
+        store.setPosition(entity, 1.0f, 1.0f, 1.0f);
+        store.publish();
+        assertEquals(7.0f, view.prevX, 0.0f);
+        assertEquals(1.0f, view.x, 0.0f);
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.entities;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.*;
+
+import com.example.components.*;
+import com.example.physics.PhysicsWorld;
+import com.example.rendering.Mesh;
+
+// Slot reuse and the overflow policies of a small pool.
+class ProjectilePoolTest {
+    private static final float[] CUBE = { 0.5f, 0.5f, 0.5f, 1.0f, 1.0f, 1.0f };
+
+    private final ECSRegistry ecs = new ECSRegistry();
+    private final PhysicsWorld physicsWorld = new PhysicsWorld();
+    private final TransformStore transformStore = new TransformStore();
+    private final Mesh mesh = Mesh.headless(CUBE, new int[] { 0, 0, 0 });
+
+    private ProjectilePool pool(int capacity, ProjectilePool.OverflowPolicy policy) {
+        return new ProjectilePool(ecs, physicsWorld, transformStore, mesh, capacity, policy);
+    }
+
+    private int spawn(ProjectilePool pool, float x) {
+        return pool.spawn(-1, x, 0.0f, 0.0f, 0.0f, 0.0f, -1.0f, 1.0f);
+    }
+
+    @Test
+    void recycleOldestReusesTheLongestLivedProjectile() {
+        ProjectilePool pool = pool(4, ProjectilePool.OverflowPolicy.RECYCLE_OLDEST);
+        int[] spawned = new int[4];
+        for (int i = 0; i < spawned.length; i++) {
+            spawned[i] = spawn(pool, i);
+        }
+
+        int fifth = spawn(pool, 4);
+        assertFalse(pool.owns(spawned[0]));
+        assertFalse(ecs.isAlive(spawned[0]));
+        assertTrue(pool.owns(fifth));
+        assertEquals(4, pool.getActiveCount());
+        assertEquals(4, pool.getCapacity());
+
+        spawn(pool, 5);
+        assertFalse(pool.owns(spawned[1]));
+        assertTrue(pool.owns(spawned[2]));
+        assertTrue(pool.owns(spawned[3]));
+    }
+
+    @Test
+    void releasedProjectilesLeaveTheSpawnOrder() {
+        ProjectilePool pool = pool(3, ProjectilePool.OverflowPolicy.RECYCLE_OLDEST);
+        int a = spawn(pool, 0);
+        int b = spawn(pool, 1);
+        int c = spawn(pool, 2);
+
+        // Releasing the oldest and a middle one leaves c oldest once d and e
+        // fill the pool again.
+        pool.release(a);
+        pool.release(b);
+        int d = spawn(pool, 3);
+        int e = spawn(pool, 4);
+        assertEquals(3, pool.getActiveCount());
+
+        spawn(pool, 5);
+        assertFalse(pool.owns(c));
+        assertTrue(pool.owns(d));
+        assertTrue(pool.owns(e));
+
+        spawn(pool, 6);
+        assertFalse(pool.owns(d));
+        assertTrue(pool.owns(e));
+    }
+
+    @Test
+    void releasingTheNewestKeepsTheOrder() {
+        ProjectilePool pool = pool(3, ProjectilePool.OverflowPolicy.RECYCLE_OLDEST);
+        int a = spawn(pool, 0);
+        int b = spawn(pool, 1);
+        int c = spawn(pool, 2);
+        pool.release(c);
+        int d = spawn(pool, 3);
+
+        spawn(pool, 4);
+        assertFalse(pool.owns(a));
+        spawn(pool, 5);
+        assertFalse(pool.owns(b));
+        assertTrue(pool.owns(d));
+    }
+
+    @Test
+    void dropRefusesWhenFull() {
+        ProjectilePool pool = pool(2, ProjectilePool.OverflowPolicy.DROP);
+        int a = spawn(pool, 0);
+        spawn(pool, 1);
+
+        assertEquals(-1, spawn(pool, 2));
+        assertTrue(pool.owns(a));
+        assertEquals(2, pool.getActiveCount());
+    }
+
+    @Test
+    void growDoublesTheCapacity() {
+        ProjectilePool pool = pool(2, ProjectilePool.OverflowPolicy.GROW);
+        int a = spawn(pool, 0);
+        spawn(pool, 1);
+        spawn(pool, 2);
+
+        assertEquals(4, pool.getCapacity());
+        assertEquals(3, pool.getActiveCount());
+        assertTrue(pool.owns(a));
+    }
+
+    @Test
+    void spawnedProjectilesLiveInTheTransformStore() {
+        ProjectilePool pool = pool(2, ProjectilePool.OverflowPolicy.RECYCLE_OLDEST);
+        int a = spawn(pool, 3.0f);
+
+        assertTrue(transformStore.contains(a));
+        assertEquals(3.0f, transformStore.x[ECSRegistry.entityIndex(a)], 0.0f);
+
+        pool.release(a);
+        assertFalse(transformStore.contains(a));
+        assertEquals(0, transformStore.size());
+    }
+
+    @Test
+    void releaseIgnoresOtherEntities() {
+        ProjectilePool pool = pool(2, ProjectilePool.OverflowPolicy.RECYCLE_OLDEST);
+        int other = ecs.createEntity();
+        pool.release(other);
+
+        assertTrue(ecs.isAlive(other));
+        assertEquals(0, pool.getActiveCount());
+    }
+}
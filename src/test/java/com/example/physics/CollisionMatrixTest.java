@@ -0,0 +1,63 @@
+package com.example.physics;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.*;
+
+import com.bulletphysics.collision.broadphase.CollisionFilterGroups;
+
+class CollisionMatrixTest {
+    private static final CollisionLayer[] LAYERS = CollisionLayer.values();
+
+    @Test
+    void layerBitsAreDistinctAndStaticKeepsJBulletsBit() {
+        assertEquals(CollisionFilterGroups.STATIC_FILTER, CollisionLayer.STATIC_WORLD.bit);
+        int seen = 0;
+        for (CollisionLayer layer : LAYERS) {
+            assertEquals(1, Integer.bitCount(layer.bit & 0xFFFF), layer + " is one bit");
+            assertEquals(0, seen & layer.bit, layer + " shares a bit");
+            assertEquals(0, layer.bit & CollisionFilterGroups.DEFAULT_FILTER, layer + " uses the default bit");
+            seen |= layer.bit;
+        }
+    }
+
+    @Test
+    void defaultsAreSymmetricAndMatchTheirMasks() {
+        CollisionMatrix matrix = CollisionMatrix.defaults();
+        for (CollisionLayer a : LAYERS) {
+            for (CollisionLayer b : LAYERS) {
+                assertEquals(matrix.collides(a, b), matrix.collides(b, a), a + "/" + b);
+                assertEquals(matrix.collides(a, b), (matrix.maskOf(a) & b.bit) != 0, a + "/" + b);
+            }
+            // Bodies added without a layer still meet every layer.
+            assertTrue((matrix.maskOf(a) & CollisionFilterGroups.DEFAULT_FILTER) != 0, a.toString());
+        }
+    }
+
+    @Test
+    void defaultPairs() {
+        CollisionMatrix matrix = CollisionMatrix.defaults();
+        assertFalse(matrix.collides(CollisionLayer.PROJECTILE, CollisionLayer.PROJECTILE));
+        assertFalse(matrix.collides(CollisionLayer.STATIC_WORLD, CollisionLayer.STATIC_WORLD));
+        assertTrue(matrix.collides(CollisionLayer.PROJECTILE, CollisionLayer.ENEMY));
+        assertTrue(matrix.collides(CollisionLayer.PROJECTILE, CollisionLayer.PLAYER));
+        assertTrue(matrix.collides(CollisionLayer.PROJECTILE, CollisionLayer.STATIC_WORLD));
+        assertTrue(matrix.collides(CollisionLayer.PLAYER, CollisionLayer.ENEMY));
+        for (CollisionLayer layer : LAYERS) {
+            assertEquals(layer == CollisionLayer.STATIC_WORLD, matrix.collides(CollisionLayer.EFFECT, layer),
+                    layer.toString());
+        }
+    }
+
+    @Test
+    void setChangesBothSides() {
+        CollisionMatrix matrix = new CollisionMatrix();
+        matrix.set(CollisionLayer.PLAYER, CollisionLayer.ENEMY, false);
+        assertFalse(matrix.collides(CollisionLayer.ENEMY, CollisionLayer.PLAYER));
+        assertEquals(0, matrix.maskOf(CollisionLayer.PLAYER) & CollisionLayer.ENEMY.bit);
+        assertEquals(0, matrix.maskOf(CollisionLayer.ENEMY) & CollisionLayer.PLAYER.bit);
+
+        matrix.set(CollisionLayer.ENEMY, CollisionLayer.PLAYER, true);
+        assertTrue(matrix.collides(CollisionLayer.PLAYER, CollisionLayer.ENEMY));
+    }
+}
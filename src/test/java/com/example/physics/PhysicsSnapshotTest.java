@@ -0,0 +1,122 @@
+package com.example.physics;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.*;
+
+import org.junit.jupiter.api.*;
+
+import com.bulletphysics.collision.shapes.BoxShape;
+import com.bulletphysics.dynamics.*;
+import com.bulletphysics.linearmath.Transform;
+
+// The moved list of published frames. Bodies are static, so the world never
+// moves them itself; the test moves them through their motion states the way
+// the solver would during a step.
+class PhysicsSnapshotTest {
+    private static final float DT = 1.0f / 60.0f;
+
+    private final PhysicsWorld world = new PhysicsWorld();
+    private final TrackedMotionState[] states = new TrackedMotionState[3];
+    private final RigidBody[] bodies = new RigidBody[3];
+
+    @BeforeEach
+    void addBodies() {
+        BoxShape shape = new BoxShape(new javax.vecmath.Vector3f(0.5f, 0.5f, 0.5f));
+        for (int i = 0; i < bodies.length; i++) {
+            Transform start = new Transform();
+            start.setIdentity();
+            start.origin.set(i, 0.0f, 0.0f);
+            states[i] = new TrackedMotionState(start);
+            bodies[i] = new RigidBody(new RigidBodyConstructionInfo(0.0f, states[i], shape));
+            PhysicsWorld.tagEntity(bodies[i], 100 + i);
+            world.addRigidBody(bodies[i]);
+        }
+    }
+
+    @Test
+    void firstFrameListsAddedBodies() {
+        world.stepSimulation(DT);
+        PhysicsSnapshot.Frame frame = world.getLatestSnapshot();
+
+        assertArrayEquals(new int[] { 0, 1, 2 }, moved(frame));
+        for (int slot = 0; slot < 3; slot++) {
+            assertEquals(100 + slot, frame.getEntity(slot));
+            assertEquals(slot, frame.getX(slot), 0.0f);
+        }
+    }
+
+    @Test
+    void restingBodiesAreNotListedAgain() {
+        world.stepSimulation(DT);
+        world.getLatestSnapshot();
+
+        world.stepSimulation(DT);
+        PhysicsSnapshot.Frame frame = world.getLatestSnapshot();
+        assertEquals(2, frame.getStep());
+        assertArrayEquals(new int[0], moved(frame));
+    }
+
+    @Test
+    void movesCarryAcrossUnreadFrames() {
+        world.stepSimulation(DT);
+        world.getLatestSnapshot();
+
+        moveTo(1, 7.0f);
+        world.stepSimulation(DT);
+        moveTo(2, 9.0f);
+        world.stepSimulation(DT);
+        world.stepSimulation(DT);
+
+        PhysicsSnapshot.Frame frame = world.getLatestSnapshot();
+        assertEquals(4, frame.getStep());
+        int[] moved = moved(frame);
+        Arrays.sort(moved);
+        assertArrayEquals(new int[] { 1, 2 }, moved);
+        assertEquals(7.0f, frame.getX(1), 0.0f);
+        assertEquals(9.0f, frame.getX(2), 0.0f);
+
+        // Once read, the moves are not repeated.
+        world.stepSimulation(DT);
+        assertArrayEquals(new int[0], moved(world.getLatestSnapshot()));
+    }
+
+    @Test
+    void unchangedWriteIsNotAMove() {
+        world.stepSimulation(DT);
+        world.getLatestSnapshot();
+
+        moveTo(0, 0.0f);
+        world.stepSimulation(DT);
+        assertArrayEquals(new int[0], moved(world.getLatestSnapshot()));
+    }
+
+    @Test
+    void removedBodyLeavesItsSlot() {
+        world.stepSimulation(DT);
+        world.getLatestSnapshot();
+
+        world.removeRigidBody(bodies[0]);
+        moveTo(0, 5.0f);
+        world.stepSimulation(DT);
+        PhysicsSnapshot.Frame frame = world.getLatestSnapshot();
+        assertEquals(PhysicsWorld.NO_ENTITY, frame.getEntity(0));
+        assertArrayEquals(new int[0], moved(frame));
+        assertEquals(-1, PhysicsWorld.snapshotSlotOf(bodies[0]));
+    }
+
+    private void moveTo(int body, float x) {
+        Transform transform = new Transform();
+        transform.setIdentity();
+        transform.origin.set(x, 0.0f, 0.0f);
+        states[body].setWorldTransform(transform);
+    }
+
+    private static int[] moved(PhysicsSnapshot.Frame frame) {
+        int[] slots = new int[frame.getMovedCount()];
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = frame.getMovedSlot(i);
+        }
+        return slots;
+    }
+}
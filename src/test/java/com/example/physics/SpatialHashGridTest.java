@@ -0,0 +1,143 @@
+package com.example.physics;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.*;
+
+import org.junit.jupiter.api.*;
+
+// Checks the grid against an O(n^2) scan over the same random boxes: every
+// query must return exactly the overlapping items, and firstOverlap must pick
+// the same item a linear scan would.
+class SpatialHashGridTest {
+    private static final int BOXES = 400;
+    private static final int QUERIES = 300;
+    private static final int ENTITIES = 20;
+    private static final short[] GROUPS = {
+            CollisionLayer.STATIC_WORLD.bit, CollisionLayer.PLAYER.bit, CollisionLayer.ENEMY.bit,
+            CollisionLayer.PROJECTILE.bit, CollisionLayer.EFFECT.bit,
+    };
+
+    private final Random random = new Random(1234);
+    private final SpatialHashGrid grid = new SpatialHashGrid(4.0f);
+
+    private int[] entity;
+    private short[] group;
+    private float[][] box;
+
+    @BeforeEach
+    void fill() {
+        build(BOXES);
+    }
+
+    @Test
+    void queryMatchesBruteForce() {
+        for (int q = 0; q < QUERIES; q++) {
+            float[] query = randomBox();
+            int count = grid.query(query[0], query[1], query[2], query[3], query[4], query[5]);
+
+            int[] found = new int[count];
+            for (int i = 0; i < count; i++) {
+                found[i] = grid.result(i);
+            }
+            assertArrayEquals(bruteForceQuery(query), found, "query " + q);
+        }
+    }
+
+    @Test
+    void firstOverlapMatchesBruteForce() {
+        for (int q = 0; q < QUERIES; q++) {
+            float[] query = randomBox();
+            int exclude = random.nextInt(ENTITIES);
+            int expected = bruteForceFirst((short) -1, exclude, exclude, query);
+            assertEquals(expected,
+                    grid.firstOverlap(exclude, query[0], query[1], query[2], query[3], query[4], query[5]),
+                    "query " + q);
+        }
+    }
+
+    @Test
+    void maskedFirstOverlapMatchesBruteForce() {
+        CollisionMatrix matrix = CollisionMatrix.defaults();
+        CollisionLayer[] layers = CollisionLayer.values();
+        for (int q = 0; q < QUERIES; q++) {
+            float[] query = randomBox();
+            short mask = matrix.maskOf(layers[random.nextInt(layers.length)]);
+            int self = random.nextInt(ENTITIES);
+            int owner = random.nextInt(ENTITIES);
+            int expected = bruteForceFirst(mask, self, owner, query);
+            assertEquals(expected,
+                    grid.firstOverlap(mask, self, owner, query[0], query[1], query[2], query[3], query[4], query[5]),
+                    "query " + q);
+        }
+    }
+
+    @Test
+    void touchingBoxesOverlap() {
+        grid.clear();
+        grid.insert(7, 0.0f, 0.0f, 0.0f, 4.0f, 1.0f, 1.0f);
+        assertEquals(1, grid.query(4.0f, 0.0f, 0.0f, 5.0f, 1.0f, 1.0f));
+        assertEquals(0, grid.firstOverlap(-1, 4.0f, 1.0f, 1.0f, 5.0f, 2.0f, 2.0f));
+        assertEquals(0, grid.query(4.01f, 0.0f, 0.0f, 5.0f, 1.0f, 1.0f));
+    }
+
+    @Test
+    void rebuildForgetsPreviousBoxes() {
+        build(BOXES / 3);
+        assertEquals(BOXES / 3, grid.size());
+        queryMatchesBruteForce();
+        firstOverlapMatchesBruteForce();
+    }
+
+    private void build(int count) {
+        grid.clear();
+        entity = new int[count];
+        group = new short[count];
+        box = new float[count][];
+        for (int i = 0; i < count; i++) {
+            // Entities repeat, so exclusion skips more than one item.
+            entity[i] = random.nextInt(ENTITIES);
+            group[i] = GROUPS[random.nextInt(GROUPS.length)];
+            box[i] = randomBox();
+            float[] b = box[i];
+            assertEquals(i, grid.insert(entity[i], group[i], b[0], b[1], b[2], b[3], b[4], b[5]));
+        }
+    }
+
+    // Mostly small boxes with a few spanning many cells, some of them in
+    // negative coordinates.
+    private float[] randomBox() {
+        float size = random.nextInt(10) == 0 ? 12.0f : 4.0f;
+        float x = random.nextFloat() * 40.0f - 20.0f;
+        float y = random.nextFloat() * 10.0f - 5.0f;
+        float z = random.nextFloat() * 40.0f - 20.0f;
+        return new float[] {
+                x, y, z,
+                x + random.nextFloat() * size, y + random.nextFloat() * size, z + random.nextFloat() * size,
+        };
+    }
+
+    private int[] bruteForceQuery(float[] query) {
+        int[] found = new int[entity.length];
+        int count = 0;
+        for (int i = 0; i < entity.length; i++) {
+            if (overlaps(box[i], query)) {
+                found[count++] = i;
+            }
+        }
+        return Arrays.copyOf(found, count);
+    }
+
+    private int bruteForceFirst(short mask, int self, int owner, float[] query) {
+        for (int i = 0; i < entity.length; i++) {
+            if ((group[i] & mask) != 0 && entity[i] != self && entity[i] != owner && overlaps(box[i], query))
+                return i;
+        }
+        return -1;
+    }
+
+    // Touching boxes overlap, as in the grid.
+    private static boolean overlaps(float[] a, float[] b) {
+        return a[0] <= b[3] && a[3] >= b[0] && a[1] <= b[4] && a[4] >= b[1] && a[2] <= b[5] && a[5] >= b[2];
+    }
+}
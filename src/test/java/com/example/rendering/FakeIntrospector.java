@@ -0,0 +1,55 @@
+package com.example.rendering;
+
+import java.util.*;
+
+// A linked program described in plain Java: its active uniforms in the order
+// GL would list them, each with the location the driver would report, and the
+// uniform blocks it declares. Block bindings made through it are recorded.
+class FakeIntrospector implements UniformIntrospector {
+    final List<String> names = new ArrayList<>();
+    final Map<String, Integer> locations = new HashMap<>();
+    final List<String> blocks = new ArrayList<>();
+    final Map<Integer, Integer> blockBindings = new HashMap<>();
+    int locationQueries;
+
+    // Adds an active uniform. Uniforms inside a block are listed with location -1.
+    FakeIntrospector uniform(String name, int location) {
+        names.add(name);
+        locations.put(name, location);
+        return this;
+    }
+
+    FakeIntrospector block(String name) {
+        blocks.add(name);
+        return this;
+    }
+
+    @Override
+    public int getActiveUniformCount(int programId) {
+        return names.size();
+    }
+
+    @Override
+    public String getActiveUniformName(int programId, int index) {
+        return names.get(index);
+    }
+
+    @Override
+    public int getUniformLocation(int programId, String name) {
+        locationQueries++;
+        Integer location = locations.get(name);
+        return location != null ? location : -1;
+    }
+
+    @Override
+    public int getUniformBlockIndex(int programId, String blockName) {
+        return blocks.indexOf(blockName);
+    }
+
+    @Override
+    public void setUniformBlockBinding(int programId, int blockIndex, int bindingPoint) {
+        if (blockIndex < 0 || blockIndex >= blocks.size())
+            throw new IllegalArgumentException("No uniform block " + blockIndex);
+        blockBindings.put(blockIndex, bindingPoint);
+    }
+}
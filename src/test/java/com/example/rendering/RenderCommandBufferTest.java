@@ -0,0 +1,201 @@
+package com.example.rendering;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.*;
+
+import org.junit.jupiter.api.*;
+
+// Command packing and submission order, with headless meshes and programs
+// wrapped around a fake introspector, so nothing here needs a GL context.
+class RenderCommandBufferTest {
+    private static final float FAR = 100.0f;
+    private static final float[] CUBE = { 0.5f, 0.5f, 0.5f, 1.0f, 1.0f, 1.0f };
+
+    private final ShaderProgram shaderA = new ShaderProgram(1, new FakeIntrospector());
+    private final ShaderProgram shaderB = new ShaderProgram(2, new FakeIntrospector());
+    private final Mesh meshA = Mesh.headless(CUBE, new int[] { 0, 0, 0 });
+    private final Mesh meshB = Mesh.headless(CUBE, new int[] { 0, 0, 0 });
+    private final RenderCommandBuffer commands = new RenderCommandBuffer(FAR);
+
+    @Test
+    void packsTheMatrixAndAlphaOfEachCommand() {
+        float[] matrices = new float[3 * RenderCommandBuffer.MATRIX_FLOATS];
+        for (int i = 0; i < matrices.length; i++) {
+            matrices[i] = i;
+        }
+        commands.add(RenderCommandBuffer.PASS_OPAQUE, shaderA, meshA, 1.0f, matrices, 32, 1.0f);
+        commands.add(RenderCommandBuffer.PASS_TRANSPARENT, shaderB, meshB, 2.0f, matrices, 16, 0.25f);
+
+        assertEquals(2, commands.size());
+        float[] data = commands.getInstanceData();
+        for (int f = 0; f < RenderCommandBuffer.MATRIX_FLOATS; f++) {
+            assertEquals(32 + f, data[f], 0.0f);
+            assertEquals(16 + f, data[RenderCommandBuffer.FLOATS_PER_INSTANCE + f], 0.0f);
+        }
+        assertEquals(1.0f, data[RenderCommandBuffer.MATRIX_FLOATS], 0.0f);
+        assertEquals(0.25f, data[RenderCommandBuffer.FLOATS_PER_INSTANCE + RenderCommandBuffer.MATRIX_FLOATS], 0.0f);
+
+        assertEquals(RenderCommandBuffer.PASS_TRANSPARENT, commands.getPass(1));
+        assertSame(shaderB, commands.getShader(1));
+        assertSame(meshB, commands.getMesh(1));
+    }
+
+    @Test
+    void sameBatchNeedsPassShaderAndMesh() {
+        float[] matrix = new float[RenderCommandBuffer.MATRIX_FLOATS];
+        commands.add(RenderCommandBuffer.PASS_OPAQUE, shaderA, meshA, 1.0f, matrix, 0, 1.0f);
+        commands.add(RenderCommandBuffer.PASS_OPAQUE, shaderA, meshA, 50.0f, matrix, 0, 1.0f);
+        commands.add(RenderCommandBuffer.PASS_OPAQUE, shaderB, meshA, 1.0f, matrix, 0, 1.0f);
+        commands.add(RenderCommandBuffer.PASS_OPAQUE, shaderA, meshB, 1.0f, matrix, 0, 1.0f);
+        commands.add(RenderCommandBuffer.PASS_TRANSPARENT, shaderA, meshA, 1.0f, matrix, 0, 1.0f);
+
+        assertTrue(commands.sameBatch(0, 1));
+        assertFalse(commands.sameBatch(0, 2));
+        assertFalse(commands.sameBatch(0, 3));
+        assertFalse(commands.sameBatch(0, 4));
+    }
+
+    // Replays the batching loop of Renderer.submit() and checks that every
+    // pass, shader and mesh combination is drawn exactly once, opaque batches
+    // front to back inside, then transparent commands strictly back to front.
+    @Test
+    void sortGroupsOpaqueBatchesAndOrdersTransparentByDepth() {
+        Random random = new Random(11);
+        ShaderProgram[] shaders = { shaderA, shaderB };
+        Mesh[] meshes = { meshA, meshB };
+        float[] depths = new float[200];
+        float[] matrix = new float[RenderCommandBuffer.MATRIX_FLOATS];
+        for (int i = 0; i < depths.length; i++) {
+            int pass = random.nextInt(3) == 0 ? RenderCommandBuffer.PASS_TRANSPARENT : RenderCommandBuffer.PASS_OPAQUE;
+            depths[i] = random.nextFloat() * FAR;
+            commands.add(pass, shaders[random.nextInt(2)], meshes[random.nextInt(2)], depths[i], matrix, 0, 1.0f);
+        }
+        commands.sort();
+
+        Set<String> opaqueBatches = new HashSet<>();
+        boolean inTransparent = false;
+        int seen = 0;
+        for (int start = 0, n = commands.size(); start < n;) {
+            int first = commands.commandAt(start);
+            int end = start + 1;
+            while (end < n && commands.sameBatch(first, commands.commandAt(end))) {
+                end++;
+            }
+
+            if (commands.getPass(first) == RenderCommandBuffer.PASS_OPAQUE) {
+                assertFalse(inTransparent, "opaque batch after a transparent one");
+                String batch = commands.getShader(first).getSortId() + "/" + commands.getMesh(first).getSortId();
+                assertTrue(opaqueBatches.add(batch), "opaque batch split: " + batch);
+                for (int i = start + 1; i < end; i++) {
+                    assertTrue(depths[commands.commandAt(i - 1)] <= depths[commands.commandAt(i)],
+                            "opaque batch not front to back");
+                }
+            } else {
+                inTransparent = true;
+            }
+            seen += end - start;
+            start = end;
+        }
+        assertEquals(depths.length, seen);
+
+        float previous = Float.POSITIVE_INFINITY;
+        for (int i = 0; i < commands.size(); i++) {
+            int command = commands.commandAt(i);
+            if (commands.getPass(command) != RenderCommandBuffer.PASS_TRANSPARENT)
+                continue;
+            assertTrue(depths[command] <= previous, "transparent commands not back to front");
+            previous = depths[command];
+        }
+        assertTrue(inTransparent);
+    }
+
+    @Test
+    void transparentDepthOrderSplitsBatches() {
+        float[] matrix = new float[RenderCommandBuffer.MATRIX_FLOATS];
+        commands.add(RenderCommandBuffer.PASS_TRANSPARENT, shaderA, meshA, 10.0f, matrix, 0, 1.0f);
+        commands.add(RenderCommandBuffer.PASS_TRANSPARENT, shaderA, meshB, 20.0f, matrix, 0, 1.0f);
+        commands.add(RenderCommandBuffer.PASS_TRANSPARENT, shaderA, meshA, 30.0f, matrix, 0, 1.0f);
+        commands.sort();
+
+        assertEquals(2, commands.commandAt(0));
+        assertEquals(1, commands.commandAt(1));
+        assertEquals(0, commands.commandAt(2));
+    }
+
+    @Test
+    void depthsOutsideTheRangeAreClamped() {
+        float[] matrix = new float[RenderCommandBuffer.MATRIX_FLOATS];
+        commands.add(RenderCommandBuffer.PASS_OPAQUE, shaderA, meshA, FAR * 10.0f, matrix, 0, 1.0f);
+        commands.add(RenderCommandBuffer.PASS_OPAQUE, shaderA, meshA, FAR * 0.5f, matrix, 0, 1.0f);
+        commands.add(RenderCommandBuffer.PASS_OPAQUE, shaderA, meshA, -5.0f, matrix, 0, 1.0f);
+        commands.sort();
+
+        assertEquals(2, commands.commandAt(0));
+        assertEquals(1, commands.commandAt(1));
+        assertEquals(0, commands.commandAt(2));
+    }
+
+    @Test
+    void growsPastItsInitialCapacity() {
+        float[] matrix = new float[RenderCommandBuffer.MATRIX_FLOATS];
+        int n = 1000;
+        for (int i = 0; i < n; i++) {
+            commands.add(RenderCommandBuffer.PASS_OPAQUE, shaderA, meshA, FAR - i * 0.09f, matrix, 0, i);
+        }
+        commands.sort();
+
+        assertEquals(n, commands.size());
+        float[] data = commands.getInstanceData();
+        for (int i = 0; i < n; i++) {
+            int command = commands.commandAt(i);
+            assertEquals(n - 1 - i, command);
+            assertEquals(command, data[command * RenderCommandBuffer.FLOATS_PER_INSTANCE
+                    + RenderCommandBuffer.MATRIX_FLOATS], 0.0f);
+        }
+    }
+
+    @Test
+    void appendMovesCommandsAndEmptiesTheSource() {
+        RenderCommandBuffer worker = new RenderCommandBuffer(FAR);
+        float[] matrix = new float[RenderCommandBuffer.MATRIX_FLOATS];
+        Arrays.fill(matrix, 7.0f);
+        commands.add(RenderCommandBuffer.PASS_OPAQUE, shaderA, meshA, 5.0f, new float[16], 0, 1.0f);
+        commands.noteMatrixRebuild();
+        worker.add(RenderCommandBuffer.PASS_TRANSPARENT, shaderB, meshB, 3.0f, matrix, 0, 0.5f);
+        worker.noteMatrixRebuild();
+        worker.noteMatrixRebuild();
+
+        commands.append(worker);
+
+        assertEquals(2, commands.size());
+        assertEquals(0, worker.size());
+        assertEquals(0, worker.getMatrixRebuilds());
+        assertEquals(3, commands.getMatrixRebuilds());
+        assertEquals(RenderCommandBuffer.PASS_TRANSPARENT, commands.getPass(1));
+        assertSame(shaderB, commands.getShader(1));
+        assertSame(meshB, commands.getMesh(1));
+        int offset = RenderCommandBuffer.FLOATS_PER_INSTANCE;
+        assertEquals(7.0f, commands.getInstanceData()[offset], 0.0f);
+        assertEquals(0.5f, commands.getInstanceData()[offset + RenderCommandBuffer.MATRIX_FLOATS], 0.0f);
+
+        commands.sort();
+        assertEquals(0, commands.commandAt(0));
+        assertEquals(1, commands.commandAt(1));
+    }
+
+    @Test
+    void clearForgetsCommandsAndRebuilds() {
+        commands.add(RenderCommandBuffer.PASS_OPAQUE, shaderA, meshA, 5.0f, new float[16], 0, 1.0f);
+        commands.noteMatrixRebuild();
+        commands.clear();
+
+        assertEquals(0, commands.size());
+        assertEquals(0, commands.getMatrixRebuilds());
+    }
+
+    @Test
+    void rejectsANonPositiveMaxDepth() {
+        assertThrows(IllegalArgumentException.class, () -> new RenderCommandBuffer(0.0f));
+    }
+}
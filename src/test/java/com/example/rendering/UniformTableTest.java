@@ -0,0 +1,91 @@
+package com.example.rendering;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.*;
+
+// UniformTable built from a fake program description: the names GL would list
+// as active uniforms and the locations it would report for them.
+class UniformTableTest {
+    private static final int PROGRAM = 3;
+
+    private final FakeIntrospector program = new FakeIntrospector()
+            .uniform("model", 4)
+            .uniform("alpha", 9)
+            .uniform("lights[0]", 12)
+            .uniform("Camera.view", -1)
+            .uniform("Camera.projection", -1)
+            .block("Lights")
+            .block(CameraUniformBuffer.BLOCK_NAME);
+
+    @Test
+    void looksUpTheLocationsOfActiveUniforms() {
+        UniformTable table = new UniformTable(program, PROGRAM);
+
+        assertEquals(4, table.location("model"));
+        assertEquals(9, table.location("alpha"));
+        assertTrue(table.has("model"));
+    }
+
+    @Test
+    void arraysAreReachableWithAndWithoutTheIndex() {
+        UniformTable table = new UniformTable(program, PROGRAM);
+
+        assertEquals(12, table.location("lights[0]"));
+        assertEquals(12, table.location("lights"));
+        assertTrue(table.has("lights"));
+    }
+
+    @Test
+    void blockMembersAndUnknownNamesAreMissing() {
+        UniformTable table = new UniformTable(program, PROGRAM);
+
+        assertEquals(UniformTable.MISSING, table.location("Camera.view"));
+        assertEquals(UniformTable.MISSING, table.location("unknown"));
+        assertFalse(table.has("Camera.projection"));
+        assertFalse(table.has("unknown"));
+        assertEquals(4, table.size());
+    }
+
+    @Test
+    void asksForEachLocationOnceWhenBuilt() {
+        UniformTable table = new UniformTable(program, PROGRAM);
+        int queries = program.locationQueries;
+
+        for (int i = 0; i < 10; i++) {
+            table.location("model");
+            table.location("unknown");
+        }
+        assertEquals(5, queries);
+        assertEquals(queries, program.locationQueries);
+    }
+
+    @Test
+    void bindsDeclaredBlocksOnly() {
+        UniformTable table = new UniformTable(program, PROGRAM);
+
+        assertTrue(table.bindBlock("Lights", 3));
+        assertEquals(Integer.valueOf(3), program.blockBindings.get(0));
+        assertFalse(table.bindBlock("Missing", 5));
+        assertEquals(1, program.blockBindings.size());
+    }
+
+    @Test
+    void emptyProgramHasNoUniforms() {
+        UniformTable table = new UniformTable(new FakeIntrospector(), PROGRAM);
+
+        assertEquals(0, table.size());
+        assertEquals(UniformTable.MISSING, table.location("model"));
+    }
+
+    @Test
+    void shaderProgramResolvesItsUniformsAndBindsTheCameraBlock() {
+        ShaderProgram shader = new ShaderProgram(PROGRAM, program);
+
+        assertEquals(4, shader.getUniformLocation("model"));
+        assertEquals(12, shader.getUniformLocation("lights"));
+        assertEquals(UniformTable.MISSING, shader.getUniformLocation("unknown"));
+        assertEquals(Integer.valueOf(CameraUniformBuffer.BINDING), program.blockBindings.get(1));
+        assertEquals(1, program.blockBindings.size());
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.systems;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.joml.Vector3f;
+import org.junit.jupiter.api.*;
+
+import com.example.components.*;
+import com.example.components.AIComponent.AIState;
+import com.example.physics.PhysicsWorld;
+
+// The same seeded crowd run serially and with chunks decided on a ForkJoin
+// pool must end up in exactly the same place: decisions only read the world as
+// it stood at the start of an update and are applied in agent order.
+class AISystemParallelTest {
+    private static final int AGENTS = 2000;
+    private static final int TICKS = 120;
+    private static final float DT = 1.0f / 30.0f;
+
+    // One world: its registry, AI system, player and agents in creation order.
+    private static class World {
+        final ECSRegistry ecs = new ECSRegistry();
+        final AISystem aiSystem;
+        final int player;
+        final int[] agents = new int[AGENTS];
+
+        World(long seed, ForkJoinPool pool) {
+            Random random = new Random(seed);
+            player = ecs.createEntity();
+            ecs.addComponent(player, new TransformComponent(0.0f, 0.0f, 0.0f));
+
+            // Spread over the full and reduced level-of-detail tiers, with some
+            // agents already wounded or dead.
+            for (int i = 0; i < AGENTS; i++) {
+                int agent = ecs.createEntity();
+                float x = (random.nextFloat() - 0.5f) * 120.0f;
+                float z = (random.nextFloat() - 0.5f) * 120.0f;
+                ecs.addComponent(agent, new TransformComponent(x, 0.0f, z));
+                ecs.addComponent(agent, new HealthComponent(random.nextInt(10) == 0 ? 0 : 100));
+
+                AIComponent ai = new AIComponent();
+                ai.waypoints = new Vector3f[] {
+                        new Vector3f(x + (random.nextFloat() - 0.5f) * 30.0f, 0.0f,
+                                z + (random.nextFloat() - 0.5f) * 30.0f),
+                        new Vector3f(-x * 0.1f, 0.0f, -z * 0.1f)
+                };
+                ai.detectionRange = 8.0f + random.nextFloat() * 8.0f;
+                ai.fieldOfView = 45.0f + random.nextFloat() * 90.0f;
+                ecs.addComponent(agent, ai);
+                agents[i] = agent;
+            }
+
+            aiSystem = new AISystem(ecs, new PhysicsWorld(), player, pool);
+        }
+
+        void tick(int tick) {
+            // The player walks a circle through the crowd.
+            TransformComponent transform = ecs.getComponent(player, TransformComponent.class);
+            float angle = tick * 0.05f;
+            transform.x = (float) Math.cos(angle) * 20.0f;
+            transform.z = (float) Math.sin(angle) * 20.0f;
+            aiSystem.update(DT);
+        }
+    }
+
+    @Test
+    void parallelRunMatchesSerialRun() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            World serial = new World(17, null);
+            World parallel = new World(17, pool);
+
+            EnumSet<AIState> reached = EnumSet.noneOf(AIState.class);
+            for (int tick = 0; tick < TICKS; tick++) {
+                serial.tick(tick);
+                parallel.tick(tick);
+                for (int i = 0; i < AGENTS; i++) {
+                    reached.add(serial.ecs.getComponent(serial.agents[i], AIComponent.class).currentState);
+                }
+            }
+
+            for (int i = 0; i < AGENTS; i++) {
+                String agent = "agent " + i;
+                AIComponent a = serial.ecs.getComponent(serial.agents[i], AIComponent.class);
+                AIComponent b = parallel.ecs.getComponent(parallel.agents[i], AIComponent.class);
+                assertEquals(a.currentState, b.currentState, agent);
+                assertEquals(a.currentWaypoint, b.currentWaypoint, agent);
+                assertEquals(a.targetPlayerEntity, b.targetPlayerEntity, agent);
+                assertEquals(Float.floatToIntBits(a.timeSinceDetection), Float.floatToIntBits(b.timeSinceDetection),
+                        agent);
+                assertEquals(Float.floatToIntBits(a.pendingTime), Float.floatToIntBits(b.pendingTime), agent);
+
+                TransformComponent ta = serial.ecs.getComponent(serial.agents[i], TransformComponent.class);
+                TransformComponent tb = parallel.ecs.getComponent(parallel.agents[i], TransformComponent.class);
+                assertEquals(Float.floatToIntBits(ta.x), Float.floatToIntBits(tb.x), agent);
+                assertEquals(Float.floatToIntBits(ta.y), Float.floatToIntBits(tb.y), agent);
+                assertEquals(Float.floatToIntBits(ta.z), Float.floatToIntBits(tb.z), agent);
+                assertEquals(Float.floatToIntBits(ta.rotationY), Float.floatToIntBits(tb.rotationY), agent);
+            }
+
+            // The crowd must have exercised every state, or the comparison
+            // proves little.
+            assertEquals(EnumSet.allOf(AIState.class), reached);
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.systems;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.joml.Vector3f;
+import org.junit.jupiter.api.*;
+
+import com.example.components.*;
+import com.example.components.AIComponent.AIState;
+import com.example.physics.PhysicsWorld;
+
+// An agent with a clear view of the player, in an empty physics world.
+class AISystemTest {
+    private static final float DT = 0.1f;
+
+    private AISystem aiSystem;
+    private AIComponent ai;
+
+    @BeforeEach
+    void setUp() {
+        ECSRegistry ecs = new ECSRegistry();
+        int player = ecs.createEntity();
+        ecs.addComponent(player, new TransformComponent(0.0f, 0.0f, 5.0f));
+
+        // Patrolling toward the player, so it faces it.
+        int agent = ecs.createEntity();
+        ecs.addComponent(agent, new TransformComponent(0.0f, 0.0f, 0.0f));
+        ai = new AIComponent();
+        ai.waypoints = new Vector3f[] { new Vector3f(0.0f, 0.0f, 20.0f), new Vector3f(0.0f, 0.0f, 0.0f) };
+        ecs.addComponent(agent, ai);
+
+        aiSystem = new AISystem(ecs, new PhysicsWorld(), player);
+    }
+
+    @Test
+    void seenPlayerIsDetectedThenFought() {
+        aiSystem.update(DT);
+        assertEquals(AIState.DETECT, ai.currentState);
+
+        // Seeing the player again must not restart detection.
+        int ticks = 1;
+        while (ai.currentState == AIState.DETECT && ticks < 100) {
+            aiSystem.update(DT);
+            ticks++;
+        }
+        assertEquals(AIState.COMBAT, ai.currentState);
+        assertTrue(ticks * DT <= ai.detectionTime + 2 * DT, "detection took " + ticks + " ticks");
+
+        for (int i = 0; i < 10; i++) {
+            aiSystem.update(DT);
+            assertEquals(AIState.COMBAT, ai.currentState);
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.example.systems;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.*;
+
+import com.example.components.*;
+import com.example.physics.*;
+
+// Shots against a 2x2x2 enemy box centred on the origin, in an empty physics
+// world with the default collision matrix. Many of them are axis-parallel and
+// start on one of the box's face planes, where a slab test that divides by zero
+// loses the hit.
+class HitscanSystemTest {
+    private static final float RANGE = 100.0f;
+    private static final float DAMAGE = 10.0f;
+
+    private final ECSRegistry ecs = new ECSRegistry();
+    private final PhysicsWorld physicsWorld = new PhysicsWorld();
+    private final HitscanSystem hitscan = new HitscanSystem(ecs, physicsWorld);
+    private int shooter;
+    private int box;
+
+    @BeforeEach
+    void createBox() {
+        shooter = ecs.createEntity();
+        box = target(0.0f, 0.0f, 0.0f);
+    }
+
+    private int target(float x, float y, float z) {
+        return target(x, y, z, CollisionLayer.ENEMY);
+    }
+
+    private int target(float x, float y, float z, CollisionLayer layer) {
+        int entity = ecs.createEntity();
+        ecs.addComponent(entity, new TransformComponent(x, y, z));
+        ecs.addComponent(entity, new ColliderComponent(2.0f, 2.0f, 2.0f, layer));
+        ecs.addComponent(entity, new HealthComponent(100));
+        return entity;
+    }
+
+    private void shoot(float ox, float oy, float oz, float dx, float dy, float dz) {
+        hitscan.queue(shooter, ox, oy, oz, dx, dy, dz, RANGE, DAMAGE);
+        hitscan.resolve();
+    }
+
+    private int health(int entity) {
+        return ecs.getComponent(entity, HealthComponent.class).health;
+    }
+
+    @Test
+    void straightAheadAlongAFacePlaneHits() {
+        shoot(-1.0f, 0.0f, 5.0f, 0.0f, 0.0f, -1.0f);
+        assertEquals(90, health(box));
+        shoot(1.0f, 1.0f, 5.0f, 0.0f, 0.0f, -1.0f);
+        assertEquals(80, health(box));
+    }
+
+    @Test
+    void straightDownAlongAFacePlaneHits() {
+        shoot(1.0f, 10.0f, 0.0f, 0.0f, -1.0f, 0.0f);
+        assertEquals(90, health(box));
+        shoot(0.0f, 10.0f, -1.0f, 0.0f, -1.0f, 0.0f);
+        assertEquals(80, health(box));
+    }
+
+    @Test
+    void straightDownThroughTheMiddleHits() {
+        shoot(0.0f, 10.0f, 0.0f, 0.0f, -1.0f, 0.0f);
+        assertEquals(90, health(box));
+    }
+
+    @Test
+    void axisParallelShotsOutsideTheSlabMiss() {
+        shoot(1.01f, 0.0f, 5.0f, 0.0f, 0.0f, -1.0f);
+        shoot(0.0f, 10.0f, -1.01f, 0.0f, -1.0f, 0.0f);
+        shoot(0.0f, 1.5f, 5.0f, 0.0f, 0.0f, -1.0f);
+        assertEquals(100, health(box));
+    }
+
+    @Test
+    void shotsPointingAwayMiss() {
+        shoot(0.0f, 0.0f, 5.0f, 0.0f, 0.0f, 1.0f);
+        shoot(-1.0f, 10.0f, 0.0f, 0.0f, 1.0f, 0.0f);
+        assertEquals(100, health(box));
+    }
+
+    @Test
+    void obliqueShotHits() {
+        shoot(5.0f, 5.0f, 5.0f, -1.0f, -1.0f, -1.0f);
+        assertEquals(90, health(box));
+    }
+
+    @Test
+    void shotStartingInsideTheBoxHits() {
+        shoot(0.5f, 0.0f, 0.0f, 0.0f, 0.0f, -1.0f);
+        assertEquals(90, health(box));
+    }
+
+    @Test
+    void nearestBoxTakesTheDamage() {
+        int behind = target(0.0f, 0.0f, -10.0f);
+        shoot(0.0f, 0.0f, 5.0f, 0.0f, 0.0f, -1.0f);
+
+        assertEquals(90, health(box));
+        assertEquals(100, health(behind));
+    }
+
+    @Test
+    void boxesBeyondTheRangeAreNotHit() {
+        hitscan.queue(shooter, 0.0f, 0.0f, 5.0f, 0.0f, 0.0f, -1.0f, 3.0f, DAMAGE);
+        hitscan.resolve();
+        assertEquals(100, health(box));
+    }
+
+    @Test
+    void shotsPassThroughLayersProjectilesDoNotHit() {
+        int effect = target(0.0f, 0.0f, 3.0f, CollisionLayer.EFFECT);
+        shoot(0.0f, 0.0f, 10.0f, 0.0f, 0.0f, -1.0f);
+
+        assertEquals(100, health(effect));
+        assertEquals(90, health(box));
+    }
+
+    @Test
+    void staticWorldCollidersAreHit() {
+        int wall = target(0.0f, 0.0f, 3.0f, CollisionLayer.STATIC_WORLD);
+        shoot(0.0f, 0.0f, 10.0f, 0.0f, 0.0f, -1.0f);
+
+        assertEquals(90, health(wall));
+        assertEquals(100, health(box));
+    }
+
+    @Test
+    void matrixChangesAreFollowed() {
+        physicsWorld.getCollisionMatrix().set(CollisionLayer.PROJECTILE, CollisionLayer.ENEMY, false);
+        shoot(0.0f, 0.0f, 5.0f, 0.0f, 0.0f, -1.0f);
+        assertEquals(100, health(box));
+
+        physicsWorld.getCollisionMatrix().set(CollisionLayer.PROJECTILE, CollisionLayer.ENEMY, true);
+        shoot(0.0f, 0.0f, 5.0f, 0.0f, 0.0f, -1.0f);
+        assertEquals(90, health(box));
+    }
+
+    @Test
+    void lethalShotQueuesTheRemoval() {
+        hitscan.queue(shooter, 0.0f, 0.0f, 5.0f, 0.0f, 0.0f, -1.0f, RANGE, 100.0f);
+        hitscan.resolve();
+
+        assertEquals(1, ecs.getPendingRemovalCount());
+        assertEquals(box, ecs.getPendingRemoval(0));
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.systems;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.junit.jupiter.api.*;
+
+// Wave planning from declared reads and writes, and running the waves on a
+// pool. The component types are stand-ins; only their identity matters.
+class SystemSchedulerTest {
+    private static class A {}
+
+    private static class B {}
+
+    private static class C {}
+
+    private final ForkJoinPool pool = new ForkJoinPool(4);
+
+    @AfterEach
+    void shutdown() {
+        pool.shutdown();
+    }
+
+    @Test
+    void conflictingSystemsGoToLaterWaves() {
+        SystemScheduler scheduler = new SystemScheduler(pool);
+        scheduler.add("writeA", dt -> {}).writes(A.class);
+        scheduler.add("readB", dt -> {}).reads(B.class);
+        scheduler.add("readA", dt -> {}).reads(A.class);
+        scheduler.add("writeB", dt -> {}).writes(B.class);
+        scheduler.add("readAB", dt -> {}).reads(A.class, B.class);
+        scheduler.add("writeC", dt -> {}).writes(C.class);
+
+        assertEquals(0, scheduler.getWave(0));
+        assertEquals(0, scheduler.getWave(1));
+        assertEquals(1, scheduler.getWave(2));
+        assertEquals(1, scheduler.getWave(3));
+        assertEquals(2, scheduler.getWave(4));
+        assertEquals(0, scheduler.getWave(5));
+        assertEquals(3, scheduler.getWaveCount());
+        assertArrayEquals(new int[] { 0, 3 }, scheduler.getDependencies(4));
+    }
+
+    @Test
+    void addingASystemReplansTheWaves() {
+        SystemScheduler scheduler = new SystemScheduler(pool);
+        scheduler.add("writeA", dt -> {}).writes(A.class);
+        assertEquals(1, scheduler.getWaveCount());
+
+        SystemScheduler.Registration reader = scheduler.add("readA", dt -> {});
+        assertEquals(1, scheduler.getWaveCount());
+        reader.reads(A.class);
+        assertEquals(2, scheduler.getWaveCount());
+        assertEquals(1, scheduler.getWave(1));
+    }
+
+    @Test
+    void conflictingSystemsRunInRegistrationOrderEveryTick() {
+        SystemScheduler scheduler = new SystemScheduler(pool);
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+        scheduler.add("first", dt -> order.add("first")).writes(A.class);
+        scheduler.add("second", dt -> order.add("second")).writes(A.class);
+        scheduler.add("third", dt -> order.add("third")).reads(A.class);
+
+        for (int tick = 0; tick < 100; tick++) {
+            order.clear();
+            scheduler.run(1.0f);
+            assertEquals(List.of("first", "second", "third"), order);
+        }
+    }
+
+    @Test
+    void systemsOfOneWaveRunAtTheSameTime() throws Exception {
+        SystemScheduler scheduler = new SystemScheduler(pool);
+        CyclicBarrier barrier = new CyclicBarrier(2);
+        SystemScheduler.Task meet = dt -> {
+            try {
+                barrier.await(5, TimeUnit.SECONDS);
+            } catch (Exception e) {
+                throw new IllegalStateException("Systems did not overlap", e);
+            }
+        };
+        scheduler.add("a", meet).writes(A.class);
+        scheduler.add("b", meet).writes(B.class);
+
+        // Each tick only finishes if both systems wait at the barrier together.
+        for (int tick = 0; tick < 10; tick++) {
+            scheduler.run(1.0f);
+        }
+    }
+
+    @Test
+    void everySystemSeesTheTicksStep() {
+        SystemScheduler scheduler = new SystemScheduler(pool);
+        float[] seen = new float[3];
+        scheduler.add("a", dt -> seen[0] = dt).writes(A.class);
+        scheduler.add("b", dt -> seen[1] = dt).writes(B.class);
+        scheduler.add("c", dt -> seen[2] = dt).reads(A.class);
+
+        scheduler.run(0.25f);
+        assertArrayEquals(new float[] { 0.25f, 0.25f, 0.25f }, seen);
+        scheduler.run(0.5f);
+        assertArrayEquals(new float[] { 0.5f, 0.5f, 0.5f }, seen);
+    }
+
+    @Test
+    void serialSchedulerRunsOnTheCallingThread() {
+        SystemScheduler scheduler = new SystemScheduler(null);
+        Thread caller = Thread.currentThread();
+        List<String> order = new ArrayList<>();
+        scheduler.add("a", dt -> {
+            assertSame(caller, Thread.currentThread());
+            order.add("a");
+        }).writes(A.class);
+        scheduler.add("b", dt -> order.add("b")).writes(B.class);
+
+        scheduler.run(1.0f);
+        assertFalse(scheduler.isParallel());
+        assertEquals(List.of("a", "b"), order);
+    }
+
+    @Test
+    void exceptionsReachTheCaller() {
+        SystemScheduler scheduler = new SystemScheduler(pool);
+        scheduler.add("fails", dt -> {
+            throw new IllegalStateException("boom");
+        }).writes(A.class);
+
+        assertThrows(IllegalStateException.class, () -> scheduler.run(1.0f));
+        // The tasks can run again after a failed tick.
+        assertThrows(IllegalStateException.class, () -> scheduler.run(1.0f));
+    }
+}